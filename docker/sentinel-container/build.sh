@@ -11,6 +11,8 @@ writeConfig() {
 agent.host=agentd
 agent.port=4931
 agent.max.connections=4
+poll.interval.min.millis=100
+poll.interval.max.millis=1000
 vault.host=vault
 vault.port=11001
 search.host=search
@@ -57,8 +57,8 @@ public class RefereeSentinel implements Sentinel {
     @Override
     public synchronized Optional<Criteria> notify(UUID blockId, Criteria criteria) {
         blockchain.findAllBlocksAfter(criteria.getLatestBlockId())
-            .flatMap(blockReader -> blockReader.getTransactions().stream())
-            .filter(transactionReader -> MOVED_TRANSACTION_TYPE.getId().equals(transactionReader.getTransactionType()))
+            .flatMap(blockReader -> blockReader.getTransactionStream())
+            .filter(transactionReader -> transactionReader.isOfTransactionType(MOVED_TRANSACTION_TYPE.getId()))
             .forEach(this::processTransactions);
 
         return criteria.withBlockId(blockId);
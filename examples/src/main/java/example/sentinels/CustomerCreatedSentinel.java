@@ -49,8 +49,8 @@ public class CustomerCreatedSentinel implements Sentinel {
     @Override
     public synchronized Optional<Criteria> notify(UUID latestBlockId, Criteria criteria) {
         blockchain.findAllBlocksAfter(criteria.getLatestBlockId())
-            .flatMap(blockReader -> blockReader.getTransactions().stream())
-            .filter(transactionReader -> CUSTOMER_CREATED_TRANSACTION.getId().equals(transactionReader.getTransactionType()))
+            .flatMap(blockReader -> blockReader.getTransactionStream())
+            .filter(transactionReader -> transactionReader.isOfTransactionType(CUSTOMER_CREATED_TRANSACTION.getId()))
             .forEach(this::processTransactions);
 
         return criteria.withBlockId(latestBlockId);
@@ -0,0 +1,27 @@
+package com.velopayments.blockchain.sdk;
+
+/**
+ * Specifies when pooled agentd connections are checked with a connection status request.
+ */
+public enum AgentConnectionValidation {
+
+    /**
+     * Connections are only checked when a request made with them fails. No round trip is added to successful requests.
+     */
+    ON_ERROR,
+
+    /**
+     * Connections are checked when borrowed, but only if they have been idle for longer than the validation interval.
+     */
+    ON_BORROW_AFTER_IDLE,
+
+    /**
+     * Idle connections are checked by the pool watchdog once per validation interval.
+     */
+    BACKGROUND,
+
+    /**
+     * Every connection is checked when it is returned to the pool. This adds a round trip to every request.
+     */
+    ON_RETURN
+}
@@ -0,0 +1,70 @@
+package com.velopayments.blockchain.sdk;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Specifies non-blocking variants of the {@link BlockchainOperations} finders.
+ * <p>
+ * Each method issues its request and returns immediately. The returned {@code CompletableFuture} completes when the
+ * blockchain agent responds, so a single thread may have many lookups in flight at once. A future completes
+ * exceptionally with a {@link BlockchainException} if the request cannot be made or does not complete.
+ */
+public interface AsyncBlockchainOperations {
+
+    /**
+     * @see BlockchainOperations#getLatestBlockId()
+     */
+    CompletableFuture<UUID> getLatestBlockIdAsync();
+
+    /**
+     * @see BlockchainOperations#findTransactionBlockId(UUID)
+     */
+    CompletableFuture<Optional<UUID>> findTransactionBlockIdAsync(UUID transactionId);
+
+    /**
+     * @see BlockchainOperations#findPrevBlockId(UUID)
+     */
+    CompletableFuture<Optional<UUID>> findPrevBlockIdAsync(UUID blockId);
+
+    /**
+     * @see BlockchainOperations#findNextBlockId(UUID)
+     */
+    CompletableFuture<Optional<UUID>> findNextBlockIdAsync(UUID blockId);
+
+    /**
+     * @see BlockchainOperations#findBlockById(UUID)
+     */
+    CompletableFuture<Optional<BlockReader>> findBlockByIdAsync(UUID blockId);
+
+    /**
+     * @see BlockchainOperations#findBlockIdByBlockHeight(long)
+     */
+    CompletableFuture<Optional<UUID>> findBlockIdByBlockHeightAsync(long blockHeight);
+
+    /**
+     * @see BlockchainOperations#findTransactionById(UUID)
+     */
+    CompletableFuture<Optional<TransactionReader>> findTransactionByIdAsync(UUID transactionId);
+
+    /**
+     * @see BlockchainOperations#findNextTransactionIdForTransactionById(UUID)
+     */
+    CompletableFuture<Optional<UUID>> findNextTransactionIdForTransactionByIdAsync(UUID transactionId);
+
+    /**
+     * @see BlockchainOperations#findPreviousTransactionIdForTransactionById(UUID)
+     */
+    CompletableFuture<Optional<UUID>> findPreviousTransactionIdForTransactionByIdAsync(UUID transactionId);
+
+    /**
+     * @see BlockchainOperations#findFirstTransactionIdForArtifactById(UUID)
+     */
+    CompletableFuture<Optional<UUID>> findFirstTransactionIdForArtifactByIdAsync(UUID artifactId);
+
+    /**
+     * @see BlockchainOperations#findLastTransactionIdForArtifactById(UUID)
+     */
+    CompletableFuture<Optional<UUID>> findLastTransactionIdForArtifactByIdAsync(UUID artifactId);
+}
@@ -0,0 +1,69 @@
+package com.velopayments.blockchain.sdk;
+
+import com.velopayments.blockchain.client.TransactionStatus;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * The outcome of submitting a batch of transactions with {@link BlockchainOperations#submitAll(List)}.
+ * <p>
+ * Each transaction has its own {@code TransactionStatus} future, in the order the transactions were given. The
+ * aggregate future completes once every transaction in the batch has a status.
+ */
+public final class BatchSubmission {
+
+    private final List<CompletableFuture<TransactionStatus>> statuses;
+    private final CompletableFuture<List<TransactionStatus>> all;
+
+    public BatchSubmission(List<CompletableFuture<TransactionStatus>> statuses) {
+        this.statuses = Collections.unmodifiableList(statuses);
+        this.all = CompletableFuture.allOf(statuses.toArray(new CompletableFuture[0]))
+            .thenApply(done -> statuses.stream()
+                .map(CompletableFuture::join)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * @return the number of transactions in the batch
+     */
+    public int size() {
+        return statuses.size();
+    }
+
+    /**
+     * @param index the index of the transaction in the submitted list
+     * @return a {@code CompletableFuture} which will provide the {@code TransactionStatus} of the transaction
+     */
+    public CompletableFuture<TransactionStatus> getStatus(int index) {
+        return statuses.get(index);
+    }
+
+    /**
+     * @return the {@code TransactionStatus} futures, in the order the transactions were submitted
+     */
+    public List<CompletableFuture<TransactionStatus>> getStatuses() {
+        return statuses;
+    }
+
+    /**
+     * @return a {@code CompletableFuture} which will provide the status of every transaction, in the order the
+     *       transactions were submitted, or complete exceptionally if any transaction could not be submitted
+     */
+    public CompletableFuture<List<TransactionStatus>> all() {
+        return all;
+    }
+
+    /**
+     * @return a {@code CompletableFuture} which will provide {@code TransactionStatus#SUCCEEDED} if every transaction
+     *       succeeded, or else the first status in the batch which is not {@code SUCCEEDED}
+     */
+    public CompletableFuture<TransactionStatus> overallStatus() {
+        return all.thenApply(results -> results.stream()
+            .filter(status -> status != TransactionStatus.SUCCEEDED)
+            .findFirst()
+            .orElse(TransactionStatus.SUCCEEDED));
+    }
+}
@@ -0,0 +1,12 @@
+package com.velopayments.blockchain.sdk;
+
+/**
+ * A source of notifications that new blocks have been created, letting a {@link SentinelContainer} process them as
+ * soon as they are committed rather than on its next poll
+ */
+public interface BlockNotificationSource {
+
+    void subscribe(BlockCreationListener listener);
+
+    void unsubscribe(BlockCreationListener listener);
+}
@@ -3,16 +3,29 @@ package com.velopayments.blockchain.sdk;
 import com.velopayments.blockchain.cert.Certificate;
 import com.velopayments.blockchain.cert.CertificateParser;
 import com.velopayments.blockchain.cert.CertificateReader;
-import com.velopayments.blockchain.cert.Field;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static com.velopayments.blockchain.cert.Field.*;
 
 public class BlockReader extends CertificateReaderSupport {
 
+    private static final long HEIGHT_NOT_READ = Long.MIN_VALUE;
+
+    // core fields, decoded on first use
+    private UUID blockId;
+    private volatile long blockHeight = HEIGHT_NOT_READ;
+
+    private volatile int transactionCount = -1;
+    private volatile AtomicReferenceArray<TransactionReader> parsedTransactions;
+    private volatile List<TransactionHeader> transactionHeaders;
+
     public BlockReader(Certificate cert) {
         super(cert);
     }
@@ -22,25 +35,113 @@ public class BlockReader extends CertificateReaderSupport {
     }
 
     public Long getBlockHeight() {
-        return getLong(BLOCK_HEIGHT);
+        return hasField(BLOCK_HEIGHT) ? getBlockHeightAsLong() : null;
+    }
+
+    /**
+     * @return the height of the block, without boxing
+     * @throws BlockchainException if the block has no height
+     */
+    public long getBlockHeightAsLong() {
+        long height = this.blockHeight;
+        if (height == HEIGHT_NOT_READ) {
+            if (!hasField(BLOCK_HEIGHT)) {
+                throw new BlockchainException("Block " + getBlockId() + " has no height");
+            }
+            height = getLongOrDefault(BLOCK_HEIGHT, HEIGHT_NOT_READ);
+            this.blockHeight = height;
+        }
+        return height;
     }
 
     public UUID getBlockId() {
-        return getUUID(BLOCK_UUID);
+        UUID id = this.blockId;
+        if (id == null) {
+            id = getUUID(BLOCK_UUID);
+            this.blockId = id;
+        }
+        return id;
     }
 
     public UUID getPreviousBlockId() {
         return getUUID(PREVIOUS_BLOCK_UUID);
     }
 
-    //TODO: seems like this would benefit from being lazy
+    /**
+     * @return the number of transactions in the block
+     */
+    public int transactionCount() {
+        int count = this.transactionCount;
+        if (count < 0) {
+            count = this.certificateReader.count(WRAPPED_TRANSACTION_TUPLE);
+            this.transactionCount = count;
+        }
+        return count;
+    }
+
+    /**
+     * Read a transaction in the block. Each transaction is parsed on first access only.
+     * @param index the index of the transaction, from 0 to {@code transactionCount() - 1}
+     * @return the transaction
+     */
+    public TransactionReader getTransaction(int index) {
+        AtomicReferenceArray<TransactionReader> parsed = parsedTransactions();
+        TransactionReader transaction = parsed.get(index);
+        if (transaction == null) {
+            byte[] certdata = this.certificateReader.get(WRAPPED_TRANSACTION_TUPLE, index).asByteArray();
+            transaction = new TransactionReader(new CertificateReader(new CertificateParser(Certificate.fromByteArray(certdata))));
+            if (!parsed.compareAndSet(index, null, transaction)) {
+                transaction = parsed.get(index); // parsed concurrently, keep the first
+            }
+        }
+        return transaction;
+    }
+
+    /**
+     * Every transaction in the block is parsed. To read only some of them, or to read them as they are needed, use
+     * {@link #getTransaction(int)} or {@link #getTransactionStream()} instead.
+     *
+     * @return a new, modifiable list of the transactions in the block
+     */
     public List<TransactionReader> getTransactions() {
-        List<TransactionReader> transactions = new ArrayList<>();
-        for (int i = 0; i < this.certificateReader.count(Field.WRAPPED_TRANSACTION_TUPLE); ++i) {
-            byte[] certdata = this.certificateReader.get(WRAPPED_TRANSACTION_TUPLE, i).asByteArray();
-            CertificateReader certReader = new CertificateReader(new CertificateParser(Certificate.fromByteArray(certdata)));
-            transactions.add(new TransactionReader(certReader));
+        int count = transactionCount();
+        List<TransactionReader> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(getTransaction(i));
         }
         return transactions;
     }
+
+    /**
+     * @return a {@code Stream} of the transactions in the block, which are parsed as they are reached
+     */
+    public Stream<TransactionReader> getTransactionStream() {
+        return IntStream.range(0, transactionCount()).mapToObj(this::getTransaction);
+    }
+
+    /**
+     * @return the headers of the transactions in the block, decoded without parsing the transactions
+     */
+    public List<TransactionHeader> getTransactionHeaders() {
+        List<TransactionHeader> headers = this.transactionHeaders;
+        if (headers == null) {
+            headers = Collections.unmodifiableList(TransactionHeader.decodeBlock(getCertificate().toByteArray()));
+            this.transactionHeaders = headers;
+        }
+        return headers;
+    }
+
+    private AtomicReferenceArray<TransactionReader> parsedTransactions() {
+        AtomicReferenceArray<TransactionReader> parsed = this.parsedTransactions;
+        if (parsed == null) {
+            synchronized (this) {
+                parsed = this.parsedTransactions;
+                if (parsed == null) {
+                    parsed = new AtomicReferenceArray<>(transactionCount());
+                    this.parsedTransactions = parsed;
+                }
+            }
+        }
+        return parsed;
+    }
 }
@@ -1,14 +1,19 @@
 package com.velopayments.blockchain.sdk;
 
 import com.velopayments.blockchain.cert.Certificate;
+import com.velopayments.blockchain.cert.CertificateType;
 import com.velopayments.blockchain.client.TransactionStatus;
 import com.velopayments.blockchain.sdk.guard.PreSubmitGuard;
 import com.velopayments.blockchain.sdk.vault.ExternalReference;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 /**
@@ -27,6 +32,30 @@ public interface BlockchainOperations {
      */
     CompletableFuture<TransactionStatus> submit(Certificate transaction);
 
+    /**
+     * Submits a batch of transactions to the blockchain. All transactions are evaluated by the registered
+     * {@code PreSubmitGuard}s before any is submitted, so a guard rejecting one transaction rejects the batch. Unlike
+     * submitting the transactions one at a time with {@link #submit(Certificate)}, a guard evaluating a transaction
+     * cannot see the effect of the transactions before it in the batch, as none of them has been submitted yet.
+     * <p>
+     * Transactions for the same artifact are submitted in the order given. Otherwise there is no ordering between the
+     * transactions: a transaction which fails does not stop the later transactions in the batch from being submitted,
+     * so transactions which depend on another transaction committing should be submitted once it has.
+     * <p>
+     * By default the transactions are submitted one at a time with {@link #submit(Certificate)}, so each is evaluated
+     * by the guards as it is submitted, and a guard rejecting a transaction leaves those before it submitted.
+     *
+     * @param transactions  a non-null list of artifact transaction {@code Certificate}s to submit
+     * @return a {@code BatchSubmission} providing the {@code TransactionStatus} of each transaction once committed
+     */
+    default BatchSubmission submitAll(List<Certificate> transactions) {
+        List<CompletableFuture<TransactionStatus>> statuses = new ArrayList<>(transactions.size());
+        for (Certificate transaction : transactions) {
+            statuses.add(submit(transaction));
+        }
+        return new BatchSubmission(statuses);
+    }
+
     /**
      * Adds an external reference to the vault. The external reference certificate is best to construct with
      * {@code VaultUtils}, so that the certificate will provide the fields required by the vault.
@@ -104,6 +133,17 @@ public interface BlockchainOperations {
      */
     Optional<BlockReader> findBlockById(UUID blockId);
 
+    /**
+     * Find the blocks with the given ids. The lookups may be made concurrently but the results are given in the order
+     * of the ids, as they become available. By default each block is looked up in turn with
+     * {@link #findBlockById(UUID)}.
+     * @param blockIds  non-null block ids
+     * @return a {@code Stream} with an {@code Optional} for each id, which is empty if the block was not found
+     */
+    default Stream<Optional<BlockReader>> findBlocksByIds(Collection<UUID> blockIds) {
+        return blockIds.stream().map(this::findBlockById);
+    }
+
     /**
      * Find the transaction {@code Certificate} for the transaction with the given id.
      * @param transactionId  a non-null transaction id
@@ -111,6 +151,17 @@ public interface BlockchainOperations {
      */
     Optional<TransactionReader> findTransactionById(UUID transactionId);
 
+    /**
+     * Find the transactions with the given ids. The lookups may be made concurrently but the results are given in the
+     * order of the ids, as they become available. By default each transaction is looked up in turn with
+     * {@link #findTransactionById(UUID)}.
+     * @param transactionIds  non-null transaction ids
+     * @return a {@code Stream} with an {@code Optional} for each id, which is empty if the transaction was not found
+     */
+    default Stream<Optional<TransactionReader>> findTransactionsByIds(Collection<UUID> transactionIds) {
+        return transactionIds.stream().map(this::findTransactionById);
+    }
+
     /**
      * Find the id of next transaction following the transaction with the given id.
      * @param transactionId  a non-null transaction id
@@ -146,6 +197,43 @@ public interface BlockchainOperations {
      */
     Stream<BlockReader> findAllBlocksAfter(UUID targetBlock);
 
+    /**
+     * Finds the blocks with heights in the given range, in ascending height order. Heights beyond the latest block
+     * are ignored.
+     * @param fromHeight the lowest block height, inclusive
+     * @param toHeight the highest block height, inclusive
+     * @return a {@code Stream} of {@code BlockReader} objects for each block in the range
+     */
+    default Stream<BlockReader> findBlocksByHeightRange(long fromHeight, long toHeight) {
+        return findBlocksByHeightRange(fromHeight, toHeight, true);
+    }
+
+    /**
+     * Finds the blocks with heights in the given range. Heights beyond the latest block are ignored. By default each
+     * block is looked up in turn with {@link #findBlockIdByBlockHeight(long)} and {@link #findBlockById(UUID)}, in
+     * ascending height order whether or not it is asked for.
+     * @param fromHeight the lowest block height, inclusive
+     * @param toHeight the highest block height, inclusive
+     * @param ordered true to give the blocks in ascending height order, or false to give them as soon as they are
+     *      found
+     * @return a {@code Stream} of {@code BlockReader} objects for each block in the range
+     */
+    default Stream<BlockReader> findBlocksByHeightRange(long fromHeight, long toHeight, boolean ordered) {
+        if (fromHeight < 0) {
+            throw new IllegalArgumentException("Block height must not be negative: " + fromHeight);
+        }
+        UUID latestBlockId = getLatestBlockId();
+        long latestHeight = CertificateType.ROOT_BLOCK.equals(latestBlockId)
+            ? 0
+            : findBlockById(latestBlockId).map(BlockReader::getBlockHeightAsLong)
+                .orElseThrow(() -> new BlockchainException("Couldn't find latest block " + latestBlockId));
+        return LongStream.rangeClosed(fromHeight, Math.min(toHeight, latestHeight))
+            .mapToObj(this::findBlockIdByBlockHeight)
+            .flatMap(Optional::stream)
+            .map(this::findBlockById)
+            .flatMap(Optional::stream);
+    }
+
     /**
      * Find the last block id for an artifact
      *
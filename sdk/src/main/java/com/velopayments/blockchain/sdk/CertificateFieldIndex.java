@@ -0,0 +1,105 @@
+package com.velopayments.blockchain.sdk;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * The location of the first value of each field in an encoded certificate, found with one walk over the certificate,
+ * so that a field's value is decoded straight from the certificate bytes.
+ * <p>
+ * The field ids are held sorted, with the offset and size of each value, in primitive arrays.
+ */
+final class CertificateFieldIndex {
+
+    private static final int LONG_SIZE = 8;
+    private static final int INT_SIZE = 4;
+
+    private final byte[] data;
+    private final int[] fieldIds;
+    private final int[] offsets;
+    private final int[] sizes;
+
+    private CertificateFieldIndex(byte[] data, int[] fieldIds, int[] offsets, int[] sizes) {
+        this.data = data;
+        this.fieldIds = fieldIds;
+        this.offsets = offsets;
+        this.sizes = sizes;
+    }
+
+    /**
+     * @param certificate the encoded certificate, which must not be modified while the index is in use
+     */
+    static CertificateFieldIndex build(byte[] certificate) {
+        int[] fieldIds = new int[16];
+        int[] offsets = new int[16];
+        int[] sizes = new int[16];
+        int count = 0;
+        int position = 0;
+        while (position < certificate.length) {
+            int size = TransactionHeader.readSize(certificate, position, certificate.length);
+            int fieldId = TransactionHeader.readShort(certificate, position);
+            int value = position + TransactionHeader.FIELD_HEADER_SIZE;
+            int slot = Arrays.binarySearch(fieldIds, 0, count, fieldId);
+            if (slot < 0) { // the first value of the field, a repeated field keeps its first
+                slot = -slot - 1;
+                if (count == fieldIds.length) {
+                    fieldIds = Arrays.copyOf(fieldIds, count * 2);
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                    sizes = Arrays.copyOf(sizes, count * 2);
+                }
+                System.arraycopy(fieldIds, slot, fieldIds, slot + 1, count - slot);
+                System.arraycopy(offsets, slot, offsets, slot + 1, count - slot);
+                System.arraycopy(sizes, slot, sizes, slot + 1, count - slot);
+                fieldIds[slot] = fieldId;
+                offsets[slot] = value;
+                sizes[slot] = size;
+                ++count;
+            }
+            position = value + size;
+        }
+        return new CertificateFieldIndex(certificate,
+            Arrays.copyOf(fieldIds, count), Arrays.copyOf(offsets, count), Arrays.copyOf(sizes, count));
+    }
+
+    /**
+     * @return the slot of the field, or a negative number if the certificate doesn't have it
+     */
+    int find(int fieldId) {
+        return Arrays.binarySearch(fieldIds, fieldId);
+    }
+
+    boolean isUUID(int slot) {
+        return sizes[slot] == TransactionHeader.UUID_SIZE;
+    }
+
+    boolean isLong(int slot) {
+        return sizes[slot] == LONG_SIZE;
+    }
+
+    boolean isInt(int slot) {
+        return sizes[slot] == INT_SIZE;
+    }
+
+    UUID readUUID(int slot) {
+        return TransactionHeader.readUUID(data, offsets[slot]);
+    }
+
+    long readLong(int slot) {
+        return TransactionHeader.readLong(data, offsets[slot]);
+    }
+
+    int readInt(int slot) {
+        int position = offsets[slot];
+        return ((data[position] & 0xff) << 24) | ((data[position + 1] & 0xff) << 16)
+            | ((data[position + 2] & 0xff) << 8) | (data[position + 3] & 0xff);
+    }
+
+    String readString(int slot) {
+        return new String(data, offsets[slot], sizes[slot], StandardCharsets.UTF_8);
+    }
+
+    byte[] readBytes(int slot) {
+        return Arrays.copyOfRange(data, offsets[slot], offsets[slot] + sizes[slot]);
+    }
+}
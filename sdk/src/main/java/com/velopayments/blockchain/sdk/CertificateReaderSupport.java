@@ -11,6 +11,11 @@ import static com.velopayments.blockchain.cert.Field.CERTIFICATE_CRYPTO_SUITE;
 public abstract class CertificateReaderSupport {
     protected final CertificateReader certificateReader;
 
+    /**
+     * The location of the first value of each field in the certificate, built on first use
+     */
+    private volatile CertificateFieldIndex fieldIndex;
+
     public CertificateReaderSupport(Certificate cert) {
         this(new CertificateReader(new CertificateParser(cert)));
     }
@@ -60,35 +65,94 @@ public abstract class CertificateReaderSupport {
     }
 
     public Optional<CertificateFieldReader> findFirst(int fieldId) {
-        if (this.certificateReader.getFields().contains(fieldId)) {
-            return Optional.of(this.certificateReader.getFirst(Field.CERTIFICATE_VALID_FROM));
+        if (hasField(fieldId)) {
+            return Optional.of(this.certificateReader.getFirst(fieldId));
         } else {
             return Optional.empty();
         }
     }
 
+    /**
+     * @return true if the certificate has the field
+     */
+    public boolean hasField(int fieldId) {
+        return fieldIndex().find(fieldId) >= 0;
+    }
+
+    // The typed accessors decode the first value of a field from the certificate bytes, found with the field index.
+    // A value of an unexpected size is left to the certificate reader, which reports it as it always has.
+
     public String getString(int fieldId) {
-        return CertificateUtils.getString(this.certificateReader, fieldId);
+        CertificateFieldIndex index = fieldIndex();
+        int slot = index.find(fieldId);
+        return slot < 0 ? null : index.readString(slot);
     }
 
     public UUID getUUID(int fieldId) {
-        return CertificateUtils.getUUID(this.certificateReader, fieldId);
+        CertificateFieldIndex index = fieldIndex();
+        int slot = index.find(fieldId);
+        if (slot < 0) {
+            return null;
+        }
+        return index.isUUID(slot) ? index.readUUID(slot) : this.certificateReader.getFirst(fieldId).asUUID();
     }
 
     public Long getLong(int fieldId) {
-        return CertificateUtils.getLong(this.certificateReader, fieldId);
+        return hasField(fieldId) ? getLongOrDefault(fieldId, 0) : null;
     }
 
     public Integer getInt(int fieldId) {
-        return CertificateUtils.getInt(this.certificateReader, fieldId);
+        return hasField(fieldId) ? getIntOrDefault(fieldId, 0) : null;
     }
 
     public Boolean getBoolean(int fieldId) {
-        return CertificateUtils.getBoolean(this.certificateReader, fieldId);
+        return hasField(fieldId) ? getIntOrDefault(fieldId, 0) == 1 : null;
+    }
+
+    /**
+     * @return the first value of the field, or {@code defaultValue} if the certificate doesn't have it
+     */
+    public long getLongOrDefault(int fieldId, long defaultValue) {
+        CertificateFieldIndex index = fieldIndex();
+        int slot = index.find(fieldId);
+        if (slot < 0) {
+            return defaultValue;
+        }
+        return index.isLong(slot) ? index.readLong(slot) : this.certificateReader.getFirst(fieldId).asLong();
+    }
+
+    /**
+     * @return the first value of the field, or {@code defaultValue} if the certificate doesn't have it
+     */
+    public int getIntOrDefault(int fieldId, int defaultValue) {
+        CertificateFieldIndex index = fieldIndex();
+        int slot = index.find(fieldId);
+        if (slot < 0) {
+            return defaultValue;
+        }
+        return index.isInt(slot) ? index.readInt(slot) : this.certificateReader.getFirst(fieldId).asInt();
+    }
+
+    /**
+     * @return the first value of the field, or {@code defaultValue} if the certificate doesn't have it
+     */
+    public boolean getBooleanOrDefault(int fieldId, boolean defaultValue) {
+        return hasField(fieldId) ? getIntOrDefault(fieldId, 0) == 1 : defaultValue;
     }
 
     public byte[] getByteArray(int fieldId) {
-        return CertificateUtils.getByteArray(this.certificateReader, fieldId);
+        CertificateFieldIndex index = fieldIndex();
+        int slot = index.find(fieldId);
+        return slot < 0 ? null : index.readBytes(slot);
+    }
+
+    private CertificateFieldIndex fieldIndex() {
+        CertificateFieldIndex index = this.fieldIndex;
+        if (index == null) {
+            index = CertificateFieldIndex.build(getCertificate().toByteArray());
+            this.fieldIndex = index;
+        }
+        return index;
     }
 
 }
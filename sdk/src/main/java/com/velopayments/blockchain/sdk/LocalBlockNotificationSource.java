@@ -0,0 +1,43 @@
+package com.velopayments.blockchain.sdk;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A {@code BlockNotificationSource} which is told of new blocks by the application, for tests and for processes which
+ * learn of new blocks by some other means
+ */
+@Slf4j
+public class LocalBlockNotificationSource implements BlockNotificationSource {
+
+    private final List<BlockCreationListener> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void subscribe(BlockCreationListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void unsubscribe(BlockCreationListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Notify each listener of a new block, unless it has already been notified of it
+     */
+    public void publish(UUID blockId) {
+        for (BlockCreationListener listener : listeners) {
+            if (listener.getLatestNotifiedBlockId().filter(blockId::equals).isPresent()) {
+                continue;
+            }
+            try {
+                listener.blockCreated(blockId);
+            } catch (RuntimeException e) {
+                log.error("Error notifying listener of block " + blockId, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.velopayments.blockchain.sdk;
+
+import java.time.Duration;
+
+/**
+ * The delay before the next poll for new blocks, doubling from the minimum up to the maximum while the chain is idle
+ */
+class PollBackoff {
+
+    private final long minMillis;
+    private final long maxMillis;
+    private long nextMillis;
+
+    PollBackoff(Duration minInterval, Duration maxInterval) {
+        this.minMillis = minInterval.toMillis();
+        this.maxMillis = maxInterval.toMillis();
+        if (minMillis < 1 || maxMillis < minMillis) {
+            throw new IllegalArgumentException("Poll interval must be at least 1ms and no more than the maximum: " + minInterval + " - " + maxInterval);
+        }
+        this.nextMillis = minMillis;
+    }
+
+    /**
+     * @return the delay after a poll which found no new blocks
+     */
+    long idle() {
+        long delay = nextMillis;
+        nextMillis = Math.min(maxMillis, nextMillis * 2);
+        return delay;
+    }
+
+    /**
+     * Start backing off from the minimum again, after new blocks are found
+     */
+    void reset() {
+        nextMillis = minMillis;
+    }
+}
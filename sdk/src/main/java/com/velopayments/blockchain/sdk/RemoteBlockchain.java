@@ -3,6 +3,7 @@ package com.velopayments.blockchain.sdk;
 import com.velopayments.blockchain.cert.Certificate;
 import com.velopayments.blockchain.cert.CertificateParser;
 import com.velopayments.blockchain.cert.CertificateReader;
+import com.velopayments.blockchain.cert.CertificateType;
 import com.velopayments.blockchain.cert.Field;
 import com.velopayments.blockchain.client.RemoteAgentConfiguration;
 import com.velopayments.blockchain.client.RemoteAgentConnection;
@@ -28,8 +29,14 @@ import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -40,14 +47,31 @@ import java.util.stream.Stream;
  * configuration where possible. A constructor is also available if more flexibility is needed.
 */
 @Slf4j
-public class RemoteBlockchain implements BlockchainOperations, AutoCloseable {
+public class RemoteBlockchain implements BlockchainOperations, AsyncBlockchainOperations, AutoCloseable {
 
     public static final int DEFAULT_AGENTD_PORT = 4931;
     public static final int DEFAULT_VAULT_PORT = 11001;
+    public static final int DEFAULT_MAX_TRANSACTIONS_IN_FLIGHT = 10_000;
+    public static final int DEFAULT_BLOCK_READ_AHEAD = 16;
     private static final long TO_SECS = 10;
 
     /**
      * RemoteBlockchain builder factory method
+     * <p>
+     * Setting {@code minIdleAgentConnections} below {@code maxAgentConnections} makes the agent connection pool
+     * elastic, idle connections above the minimum are closed after {@code agentConnectionIdleTimeout}, which defaults to
+     * one minute.
+     * <p>
+     * Connections are only checked after a failed request unless another {@code agentConnectionValidation} is given.
+     * <p>
+     * Setting {@code maxRequestsPerAgentConnection} above one lets that many concurrent requests share a connection,
+     * so fewer agentd connections are needed for the same number of requests in flight.
+     * <p>
+     * {@code maxTransactionsInFlight} bounds the number of transactions {@code submitAll} will have submitted but not
+     * yet committed.
+     * <p>
+     * {@code blockReadAhead} is the most blocks {@code findAllBlocksAfter} fetches ahead of the consumer, limited by the
+     * capacity of the agent connection pool. The read-ahead starts at one block and grows as blocks are found.
      */
     @Builder
     private static RemoteBlockchain createBlockchain(String agentHost,
@@ -55,7 +79,14 @@ public class RemoteBlockchain implements BlockchainOperations, AutoCloseable {
                                                      String vaultHost,
                                                      Integer vaultPort,
                                                      Integer maxAgentConnections,
+                                                     Integer minIdleAgentConnections,
+                                                     Integer maxRequestsPerAgentConnection,
                                                      Duration agentConnectionTimeout,
+                                                     Duration agentConnectionIdleTimeout,
+                                                     AgentConnectionValidation agentConnectionValidation,
+                                                     Duration agentConnectionValidationInterval,
+                                                     Integer maxTransactionsInFlight,
+                                                     Integer blockReadAhead,
                                                      EntityKeys entityKeys) {
         Objects.requireNonNull(entityKeys, "EntityKeys is required");
         Objects.requireNonNull(entityKeys.getEntityId(), "EntityKeys has no entity id");
@@ -94,21 +125,44 @@ public class RemoteBlockchain implements BlockchainOperations, AutoCloseable {
 
         Duration connTimeout = agentConnectionTimeout == null ? Duration.ofSeconds(10) : agentConnectionTimeout;
         int maxConnections = maxAgentConnections == null ? 16 : maxAgentConnections;
+        // without a minimum the pool is fixed at the maximum size
+        int minIdle = minIdleAgentConnections == null ? maxConnections : minIdleAgentConnections;
         return new RemoteBlockchain(
-            new RemoteAgentConnectionPool(agentConfig, entityId, entityPrivateKey, maxConnections, connTimeout),
+            new RemoteAgentConnectionPool(agentConfig, entityId, entityPrivateKey, minIdle, maxConnections,
+                maxRequestsPerAgentConnection == null ? 1 : maxRequestsPerAgentConnection,
+                connTimeout, agentConnectionIdleTimeout,
+                agentConnectionValidation == null ? AgentConnectionValidation.ON_ERROR : agentConnectionValidation,
+                agentConnectionValidationInterval == null ? RemoteAgentConnectionPool.DEFAULT_VALIDATION_INTERVAL : agentConnectionValidationInterval),
             new RemoteVault(HttpClient.newHttpClient(), vaultUri),
-            new GuardRegistry());
+            new GuardRegistry(),
+            maxTransactionsInFlight == null ? DEFAULT_MAX_TRANSACTIONS_IN_FLIGHT : maxTransactionsInFlight,
+            blockReadAhead == null ? DEFAULT_BLOCK_READ_AHEAD : blockReadAhead);
     }
 
     private final Vault vault;
     private final GuardRegistry guardRegistry;
 
     private final RemoteAgentConnectionPool connectionPool;
+    private final Semaphore transactionsInFlight;
+    private final int blockReadAhead;
 
     public RemoteBlockchain(RemoteAgentConnectionPool connectionPool, RemoteVault vault, GuardRegistry guardRegistry) {
+        this(connectionPool, vault, guardRegistry, DEFAULT_MAX_TRANSACTIONS_IN_FLIGHT, DEFAULT_BLOCK_READ_AHEAD);
+    }
+
+    public RemoteBlockchain(RemoteAgentConnectionPool connectionPool, RemoteVault vault, GuardRegistry guardRegistry,
+                            int maxTransactionsInFlight, int blockReadAhead) {
         this.vault = Objects.requireNonNull(vault, "Vault is required");
         this.guardRegistry = Objects.requireNonNull(guardRegistry, "Guard Registry is required");
         this.connectionPool = Objects.requireNonNull(connectionPool, "Connection pool is required");
+        if (maxTransactionsInFlight < 1) {
+            throw new IllegalArgumentException("Maximum transactions in flight must be at least 1: " + maxTransactionsInFlight);
+        }
+        this.transactionsInFlight = new Semaphore(maxTransactionsInFlight, true);
+        if (blockReadAhead < 1) {
+            throw new IllegalArgumentException("Block read ahead must be at least 1: " + blockReadAhead);
+        }
+        this.blockReadAhead = blockReadAhead;
     }
 
     public void start() {
@@ -147,28 +201,227 @@ public class RemoteBlockchain implements BlockchainOperations, AutoCloseable {
 
         int length = transactionCert.toByteArray().length;
         RemoteAgentConnection conn = null;
+        boolean failed = false;
         try {
             conn = connectionPool.borrowConnection();
             log.debug("Connection open for transaction ({} bytes)", length);
-            return conn.submit(transactionCert);
+            synchronized (conn) {
+                return conn.submit(transactionCert);
+            }
         } catch (IOException e) {
+            failed = true;
             throw new BlockchainIOException(e);
         } finally {
-            connectionPool.returnConnection(conn);
+            connectionPool.returnConnection(conn, failed);
         }
     }
 
-    private <T> CompletableFuture<T> requestWithAgentConnection(Function<RemoteAgentConnection, CompletableFuture<T>> unit) throws IOException {
-        RemoteAgentConnection conn = null;
+    /**
+     * @see BlockchainOperations#submitAll(List)
+     * <p>
+     * The transactions are written over as many pooled connections as can be borrowed without waiting, up to one per
+     * artifact, so that the transactions for an artifact share a connection and keep their order. Once
+     * {@code maxTransactionsInFlight} transactions are awaiting their status, the calling thread is blocked until
+     * earlier transactions are committed.
+     */
+    @Override
+    public final BatchSubmission submitAll(List<Certificate> transactions) {
+        UUID[] artifactIds = guardAll(transactions);
+
+        List<CompletableFuture<TransactionStatus>> statuses = new ArrayList<>(transactions.size());
+        int next = 0;
+        while (next < transactions.size()) {
+            int window = acquireTransactionPermits(transactions.size() - next);
+            RemoteAgentConnection[] connections;
+            try {
+                connections = borrowConnections(Math.min(window, connectionPool.capacity()));
+            } catch (BlockchainException e) {
+                // the transactions already submitted keep their status, the rest of the batch fails
+                log.error("Could not submit {} of {} transactions", transactions.size() - next, transactions.size(), e);
+                transactionsInFlight.release(window);
+                while (statuses.size() < transactions.size()) {
+                    statuses.add(CompletableFuture.failedFuture(e));
+                }
+                break;
+            }
+
+            boolean[] failed = new boolean[connections.length];
+            try {
+                for (int i = next; i < next + window; i++) {
+                    int stripe = Math.floorMod(Objects.hashCode(artifactIds[i]), connections.length);
+                    CompletableFuture<TransactionStatus> status;
+                    try {
+                        synchronized (connections[stripe]) {
+                            status = connections[stripe].submit(transactions.get(i));
+                        }
+                    } catch (IOException e) {
+                        failed[stripe] = true;
+                        status = CompletableFuture.failedFuture(new BlockchainIOException(e));
+                    }
+                    statuses.add(status.whenComplete((result, ex) -> transactionsInFlight.release()));
+                }
+            } finally {
+                for (int c = 0; c < connections.length; c++) {
+                    connectionPool.returnConnection(connections[c], failed[c]);
+                }
+            }
+            log.debug("Submitted {} of {} transactions over {} connection(s)", next + window, transactions.size(), connections.length);
+            next += window;
+        }
+        return new BatchSubmission(statuses);
+    }
+
+    /**
+     * Evaluate the guards for a batch of transactions before any is submitted
+     * @return the artifact id of each transaction
+     */
+    private UUID[] guardAll(List<Certificate> transactions) {
+        Set<PreSubmitGuard> guards = this.guardRegistry.getPreSumbitGuards();
+        UUID[] artifactIds = new UUID[transactions.size()];
+        for (int i = 0; i < artifactIds.length; i++) {
+            TransactionReader reader = new TransactionReader(Objects.requireNonNull(transactions.get(i), "Transaction is required"));
+            for (PreSubmitGuard guard : guards) {
+                try {
+                    guard.evaluate(reader, this);
+                } catch (Exception ex) {
+                    log.warn("{} guard rejected transaction {} of batch {}", guard.getClass().getName(), i, ex.getMessage());
+                    throw ex;
+                }
+            }
+            artifactIds[i] = reader.getArtifactId();
+        }
+        return artifactIds;
+    }
+
+    /**
+     * Wait for at least one transaction permit, then take as many more as are free
+     * @return the number of permits acquired, at most {@code wanted}
+     */
+    private int acquireTransactionPermits(int wanted) {
         try {
-            conn = connectionPool.borrowConnection();
-            return unit.apply(conn);
-        } catch (Exception ex) {
+            transactionsInFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BlockchainException("Interrupted waiting to submit transactions", e);
+        }
+        int acquired = 1;
+        while (acquired < wanted && transactionsInFlight.tryAcquire()) {
+            ++acquired;
+        }
+        return acquired;
+    }
+
+    /**
+     * Borrow one connection, waiting if necessary, and up to {@code wanted} connections in total if they are free
+     */
+    private RemoteAgentConnection[] borrowConnections(int wanted) {
+        List<RemoteAgentConnection> borrowed = new ArrayList<>(wanted);
+        try {
+            borrowed.add(connectionPool.borrowConnection());
+            RemoteAgentConnection conn;
+            while (borrowed.size() < wanted && (conn = connectionPool.tryBorrowConnection()) != null) {
+                borrowed.add(conn);
+            }
+        } catch (RuntimeException e) {
+            borrowed.forEach(connectionPool::returnConnection);
+            throw e;
+        }
+        return borrowed.toArray(new RemoteAgentConnection[0]);
+    }
+
+    /**
+     * @see BlockchainOperations#findTransactionsByIds(Collection)
+     */
+    @Override
+    public Stream<Optional<TransactionReader>> findTransactionsByIds(Collection<UUID> transactionIds) {
+        return findAll(transactionIds, this::findTransactionByIdAsync);
+    }
+
+    /**
+     * @see BlockchainOperations#findBlocksByIds(Collection)
+     */
+    @Override
+    public Stream<Optional<BlockReader>> findBlocksByIds(Collection<UUID> blockIds) {
+        return findAll(blockIds, this::findBlockByIdAsync);
+    }
+
+    /**
+     * Look up each id, keeping as many requests in flight as the connection pool can carry, and give the results in
+     * the order of the ids
+     */
+    private <T> Stream<Optional<T>> findAll(Collection<UUID> ids, Function<UUID, CompletableFuture<Optional<T>>> lookup) {
+        Iterator<UUID> remaining = ids.iterator();
+        return new ReadAheadSpliterator<>(connectionPool.capacity(), ids.size(), () -> remaining.hasNext()
+            ? lookup.apply(Objects.requireNonNull(remaining.next(), "Id is required"))
+            : null)
+            .stream();
+    }
+
+    /**
+     * Make a request with a pooled connection. The connection is held until the request completes, and the request
+     * fails with a {@code BlockchainIOException} if there is no response within the request timeout.
+     * <p>
+     * The connection is borrowed without blocking the calling thread: when the pool is fully loaded the request is made
+     * once a connection is returned, on a thread of the pool.
+     */
+    private <T> CompletableFuture<T> requestWithAgentConnection(AgentRequest<T> request, Supplier<String> failure) {
+        return connectionPool.borrowAsync()
+            .handle((conn, ex) -> {
+                if (ex != null) {
+                    Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                    log.error("Request to blockchain failed", cause);
+                    return CompletableFuture.<T>failedFuture(cause);
+                }
+                return request(conn, request, failure);
+            })
+            .thenCompose(Function.identity());
+    }
+
+    private <T> CompletableFuture<T> request(RemoteAgentConnection conn, AgentRequest<T> request, Supplier<String> failure) {
+        CompletableFuture<T> response;
+        try {
+            // a connection may be shared with other borrowers, so writes to it are serialized
+            synchronized (conn) {
+                response = request.apply(conn);
+            }
+            response = response.orTimeout(TO_SECS, TimeUnit.SECONDS);
+        } catch (IOException | RuntimeException ex) {
+            connectionPool.returnConnection(conn, true);
             log.error("Request to blockchain failed", ex);
-            throw ex;
-        } finally {
-            connectionPool.returnConnection(conn);
+            return CompletableFuture.failedFuture(new BlockchainIOException(failure.get(), ex));
         }
+
+        return response.handle((result, ex) -> {
+            connectionPool.returnConnection(conn, ex != null);
+            if (ex != null) {
+                throw new BlockchainIOException(failure.get(), ex instanceof CompletionException ? ex.getCause() : ex);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Wait for the result of a request made with {@link #requestWithAgentConnection(AgentRequest, Supplier)}
+     */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(TO_SECS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BlockchainException) {
+                throw (BlockchainException) e.getCause();
+            }
+            throw new BlockchainIOException("Request to blockchain failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BlockchainIOException("Interrupted waiting for blockchain response", e);
+        } catch (TimeoutException e) {
+            throw new BlockchainIOException("Timed out waiting for blockchain response", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface AgentRequest<T> {
+        CompletableFuture<T> apply(RemoteAgentConnection connection) throws IOException;
     }
 
 
@@ -253,30 +506,83 @@ public class RemoteBlockchain implements BlockchainOperations, AutoCloseable {
      */
     @Override
     public Stream<BlockReader> findAllBlocksAfter(UUID afterBlockId) {
-        Optional<UUID> nextBlockId = findNextBlockId(afterBlockId);
-        return nextBlockId.flatMap(blockId -> findBlockById(blockId)
-            .map(reader -> Stream.concat(Stream.of(reader), findAllBlocksAfter(blockId))))
+        // a single lookup when there is no new block, as for a poll of an idle chain
+        return findNextBlockId(afterBlockId)
+            .flatMap(this::findBlockById)
+            .map(first -> Stream.concat(Stream.of(first), findBlocksFromHeight(first.getBlockHeightAsLong() + 1)))
             .orElse(Stream.empty());
     }
 
+    /**
+     * Read the blocks from the given height up to the latest block. One block is fetched ahead of the consumer at
+     * first, doubling with each block found up to {@code blockReadAhead}, so that few lookups go past the latest block.
+     */
+    private Stream<BlockReader> findBlocksFromHeight(long fromHeight) {
+        long[] nextHeight = {fromHeight};
+        int window = Math.min(blockReadAhead, connectionPool.capacity());
+        return new ReadAheadSpliterator<BlockReader>(1, window, Long.MAX_VALUE, () -> findBlockByHeightAsync(nextHeight[0]++))
+            .stream()
+            .takeWhile(Optional::isPresent) // the first missing height is past the latest block
+            .map(Optional::get);
+    }
+
+    /**
+     * @see BlockchainOperations#findBlocksByHeightRange(long, long, boolean)
+     * <p>
+     * The blocks are fetched with as many requests in flight as the connection pool can carry.
+     */
+    @Override
+    public Stream<BlockReader> findBlocksByHeightRange(long fromHeight, long toHeight, boolean ordered) {
+        if (fromHeight < 0) {
+            throw new IllegalArgumentException("Block height must not be negative: " + fromHeight);
+        }
+        UUID latestBlockId = getLatestBlockId();
+        long latestHeight = CertificateType.ROOT_BLOCK.equals(latestBlockId)
+            ? 0
+            : findBlockById(latestBlockId).map(BlockReader::getBlockHeight)
+                .orElseThrow(() -> new BlockchainException("Couldn't find latest block " + latestBlockId));
+        long lastHeight = Math.min(toHeight, latestHeight);
+        if (lastHeight < fromHeight) {
+            return Stream.empty();
+        }
+
+        long[] nextHeight = {fromHeight};
+        Supplier<CompletableFuture<Optional<BlockReader>>> lookups = () -> nextHeight[0] <= lastHeight
+            ? findBlockByHeightAsync(nextHeight[0]++)
+            : null;
+        long count = lastHeight - fromHeight + 1;
+        int window = connectionPool.capacity();
+        Stream<Optional<BlockReader>> blocks = ordered
+            ? new ReadAheadSpliterator<>(window, count, lookups).stream()
+            : new CompletionOrderSpliterator<>(window, count, lookups).stream();
+        return blocks
+            .filter(Optional::isPresent)
+            .map(Optional::get);
+    }
+
+    private CompletableFuture<Optional<BlockReader>> findBlockByHeightAsync(long blockHeight) {
+        return findBlockIdByBlockHeightAsync(blockHeight)
+            .thenCompose(blockId -> blockId.isPresent()
+                ? findBlockByIdAsync(blockId.get())
+                : CompletableFuture.completedFuture(Optional.empty()));
+    }
+
     /**
      * @see BlockchainOperations#findTransactionById(UUID)
      */
     @Override
     public Optional<TransactionReader> findTransactionById(UUID transactionId) {
-        try {
-            return requestWithAgentConnection(connection -> {
-                try {
-                    return connection.getTransactionById(transactionId);
-                } catch (IOException  e) {
-                    throw new BlockchainIOException("Failed to find transaction for " + transactionId, e);
-                }
-            })
-            .get(TO_SECS, TimeUnit.SECONDS)
-            .map(TransactionReader::new);
-        } catch (IOException | InterruptedException | ExecutionException | TimeoutException e) {
-            throw new BlockchainIOException("Failed to find transaction for " + transactionId, e);
-        }
+        return await(findTransactionByIdAsync(transactionId));
+    }
+
+    /**
+     * @see AsyncBlockchainOperations#findTransactionByIdAsync(UUID)
+     */
+    @Override
+    public CompletableFuture<Optional<TransactionReader>> findTransactionByIdAsync(UUID transactionId) {
+        return requestWithAgentConnection(connection -> connection.getTransactionById(transactionId),
+            () -> "Failed to find transaction for " + transactionId)
+            .thenApply(cert -> cert.map(TransactionReader::new));
     }
 
     /**
@@ -284,17 +590,16 @@ public class RemoteBlockchain implements BlockchainOperations, AutoCloseable {
      */
     @Override
     public Optional<UUID> findNextTransactionIdForTransactionById(UUID transactionId) {
-        try {
-            return requestWithAgentConnection(connection -> {
-                try {
-                    return connection.getNextTransactionIdForTransactionById(transactionId);
-                } catch (IOException  e) {
-                    throw new BlockchainIOException("Failed to find transaction for " + transactionId, e);
-                }
-            }).get(TO_SECS, TimeUnit.SECONDS);
-        } catch (IOException | InterruptedException | ExecutionException | TimeoutException e) {
-            throw new BlockchainIOException("Failed to find transaction for " + transactionId, e);
-        }
+        return await(findNextTransactionIdForTransactionByIdAsync(transactionId));
+    }
+
+    /**
+     * @see AsyncBlockchainOperations#findNextTransactionIdForTransactionByIdAsync(UUID)
+     */
+    @Override
+    public CompletableFuture<Optional<UUID>> findNextTransactionIdForTransactionByIdAsync(UUID transactionId) {
+        return requestWithAgentConnection(connection -> connection.getNextTransactionIdForTransactionById(transactionId),
+            () -> "Failed to find transaction for " + transactionId);
     }
 
     /**
@@ -302,17 +607,16 @@ public class RemoteBlockchain implements BlockchainOperations, AutoCloseable {
      */
     @Override
     public Optional<UUID> findPreviousTransactionIdForTransactionById(UUID transactionId) {
-        try {
-            return requestWithAgentConnection(connection -> {
-                try {
-                    return connection.getPreviousTransactionIdForTransactionById(transactionId);
-                } catch (IOException  e) {
-                    throw new BlockchainIOException("Failed to find transaction for " + transactionId, e);
-                }
-            }).get(TO_SECS, TimeUnit.SECONDS);
-        } catch (IOException | InterruptedException | ExecutionException | TimeoutException e) {
-            throw new BlockchainIOException("Failed to find transaction for " + transactionId, e);
-        }
+        return await(findPreviousTransactionIdForTransactionByIdAsync(transactionId));
+    }
+
+    /**
+     * @see AsyncBlockchainOperations#findPreviousTransactionIdForTransactionByIdAsync(UUID)
+     */
+    @Override
+    public CompletableFuture<Optional<UUID>> findPreviousTransactionIdForTransactionByIdAsync(UUID transactionId) {
+        return requestWithAgentConnection(connection -> connection.getPreviousTransactionIdForTransactionById(transactionId),
+            () -> "Failed to find transaction for " + transactionId);
     }
 
     /**
@@ -320,17 +624,16 @@ public class RemoteBlockchain implements BlockchainOperations, AutoCloseable {
      */
     @Override
     public Optional<UUID> findFirstTransactionIdForArtifactById(UUID artifactId) {
-        try {
-            return requestWithAgentConnection(connection -> {
-                try {
-                    return connection.getFirstTransactionIdForArtifactById(artifactId);
-                } catch (IOException  e) {
-                    throw new BlockchainIOException("Failed to find first transaction id for artifact " + artifactId, e);
-                }
-            }).get(TO_SECS, TimeUnit.SECONDS);
-        } catch (IOException | InterruptedException | ExecutionException | TimeoutException e) {
-            throw new BlockchainIOException("Failed to find first transaction id for artifact " + artifactId, e);
-        }
+        return await(findFirstTransactionIdForArtifactByIdAsync(artifactId));
+    }
+
+    /**
+     * @see AsyncBlockchainOperations#findFirstTransactionIdForArtifactByIdAsync(UUID)
+     */
+    @Override
+    public CompletableFuture<Optional<UUID>> findFirstTransactionIdForArtifactByIdAsync(UUID artifactId) {
+        return requestWithAgentConnection(connection -> connection.getFirstTransactionIdForArtifactById(artifactId),
+            () -> "Failed to find first transaction id for artifact " + artifactId);
     }
 
     /**
@@ -338,17 +641,16 @@ public class RemoteBlockchain implements BlockchainOperations, AutoCloseable {
      */
     @Override
     public Optional<UUID> findLastTransactionIdForArtifactById(UUID artifactId) {
-        try {
-            return requestWithAgentConnection(connection -> {
-                try {
-                    return connection.getLastTransactionIdForArtifactById(artifactId);
-                } catch (IOException e) {
-                    throw new BlockchainIOException("Failed to find last transaction id for artifact " + artifactId, e);
-                }
-            }).get(TO_SECS, TimeUnit.SECONDS);
-        } catch (IOException | InterruptedException | ExecutionException | TimeoutException e) {
-            throw new BlockchainIOException("Failed to find last transaction id for artifact " + artifactId, e);
-        }
+        return await(findLastTransactionIdForArtifactByIdAsync(artifactId));
+    }
+
+    /**
+     * @see AsyncBlockchainOperations#findLastTransactionIdForArtifactByIdAsync(UUID)
+     */
+    @Override
+    public CompletableFuture<Optional<UUID>> findLastTransactionIdForArtifactByIdAsync(UUID artifactId) {
+        return requestWithAgentConnection(connection -> connection.getLastTransactionIdForArtifactById(artifactId),
+            () -> "Failed to find last transaction id for artifact " + artifactId);
     }
 
     /**
@@ -361,19 +663,21 @@ public class RemoteBlockchain implements BlockchainOperations, AutoCloseable {
         throw new UnsupportedOperationException("No longer available");
     }
 
+    /**
+     * @see BlockchainOperations#getLatestBlockId()
+     */
     @Override
     public UUID getLatestBlockId() {
-        try {
-            return requestWithAgentConnection(connection -> {
-                try {
-                    return connection.getLatestBlockId();
-                } catch (IOException  e) {
-                    throw new BlockchainIOException("Could not read latest block id", e);
-                }
-            }).get(TO_SECS, TimeUnit.SECONDS);
-        } catch (IOException | InterruptedException | ExecutionException | TimeoutException e) {
-            throw new BlockchainIOException("Could not read latest block id", e);
-        }
+        return await(getLatestBlockIdAsync());
+    }
+
+    /**
+     * @see AsyncBlockchainOperations#getLatestBlockIdAsync()
+     */
+    @Override
+    public CompletableFuture<UUID> getLatestBlockIdAsync() {
+        return requestWithAgentConnection(connection -> connection.getLatestBlockId(),
+            () -> "Could not read latest block id");
     }
 
     /**
@@ -381,17 +685,16 @@ public class RemoteBlockchain implements BlockchainOperations, AutoCloseable {
      */
     @Override
     public Optional<UUID> findNextBlockId(UUID blockId) {
-        try {
-            return requestWithAgentConnection(connection -> {
-                try {
-                    return connection.getNextBlockId(blockId);
-                } catch (IOException  e) {
-                    throw new BlockchainIOException("Could not read next block after block " + blockId, e);
-                }
-            }).get(TO_SECS, TimeUnit.SECONDS);
-        } catch (IOException | InterruptedException | ExecutionException | TimeoutException e) {
-            throw new BlockchainIOException("Could not read next block after block " + blockId, e);
-        }
+        return await(findNextBlockIdAsync(blockId));
+    }
+
+    /**
+     * @see AsyncBlockchainOperations#findNextBlockIdAsync(UUID)
+     */
+    @Override
+    public CompletableFuture<Optional<UUID>> findNextBlockIdAsync(UUID blockId) {
+        return requestWithAgentConnection(connection -> connection.getNextBlockId(blockId),
+            () -> "Could not read next block after block " + blockId);
     }
 
     /**
@@ -399,37 +702,34 @@ public class RemoteBlockchain implements BlockchainOperations, AutoCloseable {
      */
     @Override
     public Optional<UUID> findPrevBlockId(UUID blockId) {
-        try {
-            return requestWithAgentConnection(connection -> {
-                try {
-                    return connection.getPrevBlockId(blockId);
-                } catch (IOException  e) {
-                    throw new BlockchainIOException("Could not read next block after block " + blockId, e);
-                }
-            }).get(TO_SECS, TimeUnit.SECONDS);
-        } catch (IOException | InterruptedException | ExecutionException | TimeoutException e) {
-            throw new BlockchainIOException("Could not read previous block of block " + blockId, e);
-        }
+        return await(findPrevBlockIdAsync(blockId));
     }
 
     /**
-     * @see BlockchainOperations#findBlockById(UUID)
+     * @see AsyncBlockchainOperations#findPrevBlockIdAsync(UUID)
+     */
+    @Override
+    public CompletableFuture<Optional<UUID>> findPrevBlockIdAsync(UUID blockId) {
+        return requestWithAgentConnection(connection -> connection.getPrevBlockId(blockId),
+            () -> "Could not read previous block of block " + blockId);
+    }
+
+    /**
+     * @see BlockchainOperations#findTransactionBlockId(UUID)
      */
     @Override
     public Optional<UUID> findTransactionBlockId(UUID transactionId) {
-        try {
-            return requestWithAgentConnection(connection -> {
-                try {
-                    return connection.getTransactionBlockId(transactionId);
-                } catch (IOException  e) {
-                    throw new BlockchainIOException("Could not find block id for transaction id " + transactionId, e);
-                }
-            }).get(TO_SECS, TimeUnit.SECONDS);
-        } catch (IOException | InterruptedException | ExecutionException | TimeoutException e) {
-            throw new BlockchainIOException("Could not find block id for transaction id " + transactionId, e);
-        }
+        return await(findTransactionBlockIdAsync(transactionId));
     }
 
+    /**
+     * @see AsyncBlockchainOperations#findTransactionBlockIdAsync(UUID)
+     */
+    @Override
+    public CompletableFuture<Optional<UUID>> findTransactionBlockIdAsync(UUID transactionId) {
+        return requestWithAgentConnection(connection -> connection.getTransactionBlockId(transactionId),
+            () -> "Could not find block id for transaction id " + transactionId);
+    }
 
     protected void guard(Certificate transactionCert) {
         for (PreSubmitGuard guard : this.guardRegistry.getPreSumbitGuards()) {
@@ -442,36 +742,39 @@ public class RemoteBlockchain implements BlockchainOperations, AutoCloseable {
         }
     }
 
+    /**
+     * @see BlockchainOperations#findBlockIdByBlockHeight(long)
+     */
     @Override
     public Optional<UUID> findBlockIdByBlockHeight(long blockHeight) {
-        try {
-            return requestWithAgentConnection(connection -> {
-                try {
-                    return connection.getBlockIdByBlockHeight(blockHeight);
-                } catch (IOException  e) {
-                    throw new BlockchainIOException("Could not find block id for block height " + blockHeight, e);
-                }
-            }).get(TO_SECS, TimeUnit.SECONDS);
-        } catch (IOException | InterruptedException | ExecutionException | TimeoutException e) {
-            throw new BlockchainIOException("Could not find block id for block height " + blockHeight, e);
-        }
+        return await(findBlockIdByBlockHeightAsync(blockHeight));
+    }
+
+    /**
+     * @see AsyncBlockchainOperations#findBlockIdByBlockHeightAsync(long)
+     */
+    @Override
+    public CompletableFuture<Optional<UUID>> findBlockIdByBlockHeightAsync(long blockHeight) {
+        return requestWithAgentConnection(connection -> connection.getBlockIdByBlockHeight(blockHeight),
+            () -> "Could not find block id for block height " + blockHeight);
     }
 
+    /**
+     * @see BlockchainOperations#findBlockById(UUID)
+     */
     @Override
     public Optional<BlockReader> findBlockById(UUID blockId) {
-        try {
-            return requestWithAgentConnection(connection -> {
-                try {
-                    return connection.getBlockById(blockId);
-                } catch (IOException  e) {
-                    throw new BlockchainIOException("Could not read block id" + blockId, e);
-                }
-            })
-            .get(TO_SECS, TimeUnit.SECONDS)
-            .map(BlockReader::new);
-        } catch (IOException | InterruptedException | ExecutionException | TimeoutException e) {
-            throw new BlockchainIOException("Could not read block id" + blockId, e);
-        }
+        return await(findBlockByIdAsync(blockId));
+    }
+
+    /**
+     * @see AsyncBlockchainOperations#findBlockByIdAsync(UUID)
+     */
+    @Override
+    public CompletableFuture<Optional<BlockReader>> findBlockByIdAsync(UUID blockId) {
+        return requestWithAgentConnection(connection -> connection.getBlockById(blockId),
+            () -> "Could not read block id " + blockId)
+            .thenApply(cert -> cert.map(BlockReader::new));
     }
 
     /**
@@ -494,46 +797,225 @@ public class RemoteBlockchain implements BlockchainOperations, AutoCloseable {
         return this.guardRegistry.getPreSumbitGuards();
     }
 
+    /**
+     * Gives the results of a sequence of lookups in order, keeping up to {@code window} lookups in flight ahead of the
+     * consumer. The window may start smaller and double with each lookup which finds a result. Closing the stream
+     * cancels the lookups not yet consumed.
+     */
+    private static final class ReadAheadSpliterator<T> extends Spliterators.AbstractSpliterator<Optional<T>> {
+        private final Deque<CompletableFuture<Optional<T>>> inFlight = new ArrayDeque<>();
+        private final int maxWindow;
+        private final Supplier<CompletableFuture<Optional<T>>> lookups;
+        private int window;
+        private boolean exhausted;
+
+        /**
+         * @param lookups issues the next lookup, or gives null when there are no more
+         */
+        private ReadAheadSpliterator(int window, long estimatedSize, Supplier<CompletableFuture<Optional<T>>> lookups) {
+            this(window, window, estimatedSize, lookups);
+        }
+
+        private ReadAheadSpliterator(int initialWindow, int maxWindow, long estimatedSize,
+                                     Supplier<CompletableFuture<Optional<T>>> lookups) {
+            super(estimatedSize, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.maxWindow = Math.max(maxWindow, 1);
+            this.window = Math.min(Math.max(initialWindow, 1), this.maxWindow);
+            this.lookups = lookups;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Optional<T>> action) {
+            while (!exhausted && inFlight.size() < window) {
+                CompletableFuture<Optional<T>> lookup = lookups.get();
+                if (lookup == null) {
+                    exhausted = true;
+                } else {
+                    inFlight.add(lookup);
+                }
+            }
+            CompletableFuture<Optional<T>> next = inFlight.poll();
+            if (next == null) {
+                return false;
+            }
+            Optional<T> result = await(next);
+            if (result.isPresent() && window < maxWindow) {
+                window = Math.min(window * 2, maxWindow);
+            }
+            action.accept(result);
+            return true;
+        }
+
+        private Stream<Optional<T>> stream() {
+            return StreamSupport.stream(this, false)
+                .onClose(() -> inFlight.forEach(lookup -> lookup.cancel(false)));
+        }
+    }
+
+    /**
+     * Gives the results of a sequence of lookups as they complete, keeping up to {@code window} lookups in flight.
+     * Closing the stream cancels the lookups not yet consumed.
+     */
+    private static final class CompletionOrderSpliterator<T> extends Spliterators.AbstractSpliterator<Optional<T>> {
+        private final Set<CompletableFuture<Optional<T>>> inFlight = ConcurrentHashMap.newKeySet();
+        private final BlockingQueue<CompletableFuture<Optional<T>>> completed = new LinkedBlockingQueue<>();
+        private final int window;
+        private final Supplier<CompletableFuture<Optional<T>>> lookups;
+        private boolean exhausted;
+
+        /**
+         * @param lookups issues the next lookup, or gives null when there are no more
+         */
+        private CompletionOrderSpliterator(int window, long estimatedSize, Supplier<CompletableFuture<Optional<T>>> lookups) {
+            super(estimatedSize, Spliterator.NONNULL);
+            this.window = Math.max(window, 1);
+            this.lookups = lookups;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Optional<T>> action) {
+            while (!exhausted && inFlight.size() < window) {
+                CompletableFuture<Optional<T>> lookup = lookups.get();
+                if (lookup == null) {
+                    exhausted = true;
+                } else {
+                    inFlight.add(lookup);
+                    lookup.whenComplete((result, ex) -> completed.add(lookup));
+                }
+            }
+            if (inFlight.isEmpty()) {
+                return false;
+            }
+            CompletableFuture<Optional<T>> next;
+            try {
+                next = completed.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BlockchainException("Interrupted waiting for blockchain response", e);
+            }
+            inFlight.remove(next);
+            action.accept(await(next));
+            return true;
+        }
+
+        private Stream<Optional<T>> stream() {
+            return StreamSupport.stream(this, false)
+                .onClose(() -> inFlight.forEach(lookup -> lookup.cancel(false)));
+        }
+    }
+
+    /**
+     * A pool of agentd connections bounded by a minimum number of idle connections and a maximum number of open
+     * connections.
+     * <p>
+     * When {@code minIdle} equals {@code maxConnections} the pool is fixed in size: all connections are opened on
+     * initialization and only lost connections are replaced. Otherwise the pool is elastic: connections are opened on
+     * demand when no open connection can take another request, and idle connections in excess of {@code minIdle} are
+     * closed by the watchdog once they have been idle for longer than the idle timeout, which defaults to
+     * {@link #DEFAULT_IDLE_TIMEOUT} for an elastic pool. Borrowers waiting for a
+     * connection are served in arrival order, those borrowing with {@link #borrowAsync()} ahead of those blocked in
+     * {@link #borrowConnection()}.
+     * <p>
+     * By default a connection is lent to one borrower at a time. When {@code requestsPerConnection} is greater than one
+     * the pool is multiplexed: up to that many borrowers share a connection, each with a request in flight, and the
+     * agent connection matches the responses to the requests. Borrowers are given the least loaded connection, so new
+     * connections are only opened once every open connection is fully loaded.
+     * <p>
+     * Connections are checked for health according to the {@link AgentConnectionValidation} policy.
+     */
     static final class RemoteAgentConnectionPool {
-        private final BlockingQueue<RemoteAgentConnection> queue;
+        static final Duration DEFAULT_VALIDATION_INTERVAL = Duration.ofSeconds(30);
+        static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(1);
+
+        private final List<PooledConnection> connections = new CopyOnWriteArrayList<>();
+        private final Semaphore permits;
+        // asynchronous borrowers waiting for a permit, which are handed permits as they are released
+        private final Queue<CompletableFuture<RemoteAgentConnection>> waiters = new ConcurrentLinkedQueue<>();
+        // lends connections to asynchronous borrowers, so that neither opening a connection nor making the request
+        // happens on the thread which returned a connection, with at most a thread per connection the pool may open
+        private final ThreadPoolExecutor lender;
+        // signalled when a connection may have become available to borrowers holding a permit, for those waiting on a
+        // pool at its maximum while a connection is being opened, checked or replaced
+        private final Lock availabilityLock = new ReentrantLock();
+        private final Condition connectionAvailable = availabilityLock.newCondition();
+        private final AtomicInteger waitingLenders = new AtomicInteger();
+        private volatile long availabilityChanges; // written holding the availability lock
+        private final AtomicInteger open = new AtomicInteger(0);
         private final RemoteAgentConfiguration agentConfig;
-        private final UUID entityId;
-        private final EncryptionPrivateKey entityPrivateKey;
-        private final SocketFactory socketFactory;
-        private Duration connectionTimeout;
+        private final ConnectionFactory connectionFactory;
+        private final int minIdle;
+        private final int maxConnections;
+        private final int requestsPerConnection;
+        private final Duration connectionTimeout;
+        private final Duration idleTimeout;
+        private final AgentConnectionValidation validation;
+        private final Duration validationInterval;
 
-        private boolean initialized;
-        private AtomicInteger inUse = new AtomicInteger(0);
+        private volatile boolean initialized;
         private ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor();
         private ScheduledFuture<?> watchdogTask;
 
 
         public RemoteAgentConnectionPool(RemoteAgentConfiguration agentConfig, UUID entityId, EncryptionPrivateKey entityPrivateKey, int maxConnections,  Duration connectionTimeout) {
-            this.agentConfig = agentConfig;
-            this.entityId = entityId;
-            this.entityPrivateKey = entityPrivateKey;
-            this.socketFactory = SocketFactory.getDefault();
+            this(agentConfig, entityId, entityPrivateKey, maxConnections, maxConnections, 1, connectionTimeout, null,
+                AgentConnectionValidation.ON_ERROR, DEFAULT_VALIDATION_INTERVAL);
+        }
+
+        public RemoteAgentConnectionPool(RemoteAgentConfiguration agentConfig, UUID entityId, EncryptionPrivateKey entityPrivateKey, int minIdle, int maxConnections, int requestsPerConnection,
+                                         Duration connectionTimeout, Duration idleTimeout, AgentConnectionValidation validation, Duration validationInterval) {
+            this(agentConfig, () -> {
+                RemoteAgentConnection connection = new RemoteAgentConnection(agentConfig, SocketFactory.getDefault(), entityId, entityPrivateKey);
+                connection.connect();
+                return connection;
+            }, minIdle, maxConnections, requestsPerConnection, connectionTimeout, idleTimeout, validation, validationInterval);
+        }
 
-            this.queue = new LinkedBlockingQueue<>(maxConnections);
-            // not worried about configuration yet
-            this.connectionTimeout = connectionTimeout;
+        RemoteAgentConnectionPool(RemoteAgentConfiguration agentConfig, ConnectionFactory connectionFactory, int minIdle, int maxConnections, int requestsPerConnection,
+                                  Duration connectionTimeout, Duration idleTimeout, AgentConnectionValidation validation, Duration validationInterval) {
+            if (maxConnections < 1) {
+                throw new IllegalArgumentException("Maximum agent connections must be at least 1: " + maxConnections);
+            }
+            if (minIdle < 0 || minIdle > maxConnections) {
+                throw new IllegalArgumentException("Minimum idle agent connections must be between 0 and " + maxConnections + ": " + minIdle);
+            }
+            if (requestsPerConnection < 1) {
+                throw new IllegalArgumentException("Requests per agent connection must be at least 1: " + requestsPerConnection);
+            }
+            this.agentConfig = agentConfig;
+            this.connectionFactory = Objects.requireNonNull(connectionFactory);
+            this.minIdle = minIdle;
+            this.maxConnections = maxConnections;
+            this.requestsPerConnection = requestsPerConnection;
+            this.permits = new Semaphore(maxConnections * requestsPerConnection, true); // fair, so waiting borrowers are served in order
+            this.connectionTimeout = Objects.requireNonNull(connectionTimeout);
+            // an elastic pool without an idle timeout would grow to its maximum and never shrink
+            this.idleTimeout = idleTimeout == null && minIdle < maxConnections ? DEFAULT_IDLE_TIMEOUT : idleTimeout;
+            this.validation = Objects.requireNonNull(validation);
+            this.validationInterval = Objects.requireNonNull(validationInterval);
+            // each lender holds a permit, and waits while the pool is at its maximum
+            this.lender = new ThreadPoolExecutor(maxConnections, maxConnections, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), RemoteAgentConnectionPool::lenderThread);
+            this.lender.allowCoreThreadTimeOut(true);
         }
 
         public void initialize() throws IOException {
-            synchronized (this.queue) {
-                log.info("Open {} Blockchain Agent connection(s) to {}:{}", queue.remainingCapacity(), agentConfig.getHost(), agentConfig.getPort());
+            synchronized (this.connections) {
+                log.info("Open {} of max {} Blockchain Agent connection(s) to {}:{}", minIdle, maxConnections, agentConfig.getHost(), agentConfig.getPort());
                 fillCapacity();
                 this.watchdogTask = executorService.scheduleAtFixedRate(this::checkCapacity, 10, 1, TimeUnit.SECONDS);
                 initialized = true;
             }
         }
 
-        private void checkCapacity() {
-            synchronized (this.queue) {
-                int capacity = this.queue.remainingCapacity();
-                if (this.inUse.get() < capacity) {
-                    // Top up lost connections
-                    log.info("Connection pool found to be below capacity {}, {} connections in use.", capacity, this.inUse.get());
+        void checkCapacity() {
+            synchronized (this.connections) {
+                evictIdle();
+                if (validation == AgentConnectionValidation.BACKGROUND) {
+                    validateIdle();
+                }
+                if (idleConnections() < minIdle && this.open.get() < maxConnections) {
+                    // Top up lost or evicted connections
+                    log.info("Connection pool found to be below capacity {}, {} connections in use.", minIdle, this.open.get() - idleConnections());
                     try {
                         fillCapacity();
                     } catch (IOException e) {
@@ -543,85 +1025,468 @@ public class RemoteBlockchain implements BlockchainOperations, AutoCloseable {
             }
         }
 
-        private void fillCapacity() throws IOException {
-            while (true) {
-                RemoteAgentConnection connection = new RemoteAgentConnection(this.agentConfig, socketFactory, this.entityId, this.entityPrivateKey);
-                if (!queue.offer(connection)) {
+        private void evictIdle() {
+            if (idleTimeout == null) {
+                return;
+            }
+            long now = System.nanoTime();
+            // only idle connections count towards the minimum, so connections in use don't make idle ones surplus
+            int idle = idleConnections();
+            List<PooledConnection> leastRecentlyUsed = new ArrayList<>(this.connections);
+            leastRecentlyUsed.sort(Comparator.comparingLong(c -> c.lastUsed));
+            for (PooledConnection pooled : leastRecentlyUsed) {
+                if (idle <= minIdle || now - pooled.lastUsed < idleTimeout.toNanos()) {
                     break;
                 }
-                connection.connect();
+                // connections with requests in flight are not evicted
+                if (pooled.inFlight.compareAndSet(0, -1)) {
+                    retire(pooled);
+                    --idle;
+                    log.debug("Idle connection evicted [{}]", this.open.get());
+                }
+            }
+        }
+
+        private void validateIdle() {
+            long now = System.nanoTime();
+            for (PooledConnection pooled : this.connections) {
+                if (now - pooled.checkedAt < validationInterval.toNanos() || pooled.inFlight.get() != 0) {
+                    continue;
+                }
+                // hold a permit and the connection while it is checked, as a borrower would, so it is not lent out
+                if (!permits.tryAcquire()) {
+                    return; // the pool is fully loaded, so there is nothing idle to check
+                }
+                if (pooled.inFlight.compareAndSet(0, 1)) {
+                    if (isHealthy(pooled.connection)) {
+                        pooled.checkedAt = System.nanoTime();
+                        pooled.inFlight.decrementAndGet();
+                        signalAvailable();
+                    } else {
+                        retire(pooled);
+                    }
+                }
+                releasePermit();
+            }
+        }
+
+        private void fillCapacity() throws IOException {
+            while (idleConnections() < minIdle && reserve()) {
+                this.connections.add(new PooledConnection(openReserved(), 0));
+                signalAvailable();
                 log.debug("Connection added");
             }
         }
 
+        private boolean reserve() {
+            int current;
+            do {
+                current = this.open.get();
+                if (current >= maxConnections) {
+                    return false;
+                }
+            } while (!this.open.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        private RemoteAgentConnection openReserved() throws IOException {
+            try {
+                return connectionFactory.open();
+            } catch (IOException | RuntimeException e) {
+                this.open.decrementAndGet();
+                signalAvailable();
+                throw e;
+            }
+        }
+
+        /**
+         * @return the number of requests the pool can have in flight at once
+         */
+        int capacity() {
+            return maxConnections * requestsPerConnection;
+        }
+
+        int openConnections() {
+            return this.open.get();
+        }
+
+        Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        int idleConnections() {
+            int idle = 0;
+            for (PooledConnection pooled : this.connections) {
+                if (pooled.inFlight.get() == 0) {
+                    ++idle;
+                }
+            }
+            return idle;
+        }
+
         public void clear() throws IOException {
-            synchronized (this.queue) {
+            synchronized (this.connections) {
                 if (this.watchdogTask != null) {
                     this.watchdogTask.cancel(true);
                 }
                 executorService.shutdown();
-                ArrayList<RemoteAgentConnection> connections = new ArrayList<>();
-                int i = queue.drainTo(connections);
-                connections.forEach(c -> {
-                    if (c != null) {
+                lender.shutdown();
+                CompletableFuture<RemoteAgentConnection> waiter;
+                while ((waiter = waiters.poll()) != null) {
+                    waiter.completeExceptionally(new BlockchainException("Connection pool closed"));
+                }
+                int i = 0;
+                for (PooledConnection pooled : this.connections) {
+                    if (this.connections.remove(pooled)) {
+                        this.open.decrementAndGet();
+                        ++i;
                         try {
-                            c.close();
+                            pooled.connection.close();
                         } catch (Exception e) {
                             log.warn("IO error on closing connection", e);
                         }
                     }
-                });
+                }
                 log.debug("Closed {} connections", i);
                 initialized = false;
             }
         }
 
         public RemoteAgentConnection borrowConnection() {
-            //TODO: this is a somewhat simplistic pool. would likely be a good idea to scale up and down based on load
             if (!initialized) throw new BlockchainException("Connection pool not initialized");
 
+            long deadline = System.nanoTime() + connectionTimeout.toNanos();
             try {
-                RemoteAgentConnection connection = queue.poll(connectionTimeout.toMillis(), TimeUnit.MILLISECONDS);
-                if (connection == null) {
+                if (!permits.tryAcquire(connectionTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
                     throw new BlockchainIOException("Connection pool depleted");
                 }
-                this.inUse.incrementAndGet();
-                if (log.isDebugEnabled()) log.debug("Agent connection borrowed [{}]", queue.size());
-                return connection;
             } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BlockchainIOException("Timeout waiting for available connection", e);
+            }
+            RemoteAgentConnection conn = lendOrOpen(deadline);
+            if (conn == null) {
+                throw new BlockchainIOException("Connection pool depleted");
+            }
+            return conn;
+        }
+
+        /**
+         * Borrow a connection without blocking the calling thread. When the pool is fully loaded the borrower waits for
+         * a connection to be returned, and the future fails with a {@code BlockchainIOException} if none is returned
+         * within the connection timeout.
+         *
+         * @return a future completed with the connection, which must be returned to the pool
+         */
+        CompletableFuture<RemoteAgentConnection> borrowAsync() {
+            if (!initialized) {
+                return CompletableFuture.failedFuture(new BlockchainException("Connection pool not initialized"));
+            }
+            CompletableFuture<RemoteAgentConnection> borrowed = new CompletableFuture<>();
+            if (permits.tryAcquire()) {
+                PooledConnection pooled = lendConnection();
+                if (pooled != null) {
+                    borrowed.complete(pooled.connection);
+                } else {
+                    lendAsync(borrowed); // a connection has to be opened, or is being replaced
+                }
+                return borrowed;
+            }
+
+            waiters.add(borrowed);
+            ScheduledFuture<?> timeout;
+            try {
+                timeout = executorService.schedule(() -> {
+                    waiters.remove(borrowed);
+                    borrowed.completeExceptionally(new BlockchainIOException("Connection pool depleted"));
+                }, connectionTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                waiters.remove(borrowed);
+                return CompletableFuture.failedFuture(new BlockchainException("Connection pool closed"));
+            }
+            borrowed.whenComplete((conn, ex) -> timeout.cancel(false));
+
+            // a permit released before the borrower was queued would otherwise not be handed to it
+            if (permits.tryAcquire()) {
+                if (waiters.remove(borrowed)) {
+                    lendAsync(borrowed);
+                } else {
+                    releasePermit(); // the borrower was handed a permit already
+                }
+            }
+            return borrowed;
+        }
+
+        /**
+         * Lend a connection to an asynchronous borrower holding a permit, on a lender thread
+         */
+        private void lendAsync(CompletableFuture<RemoteAgentConnection> borrowed) {
+            try {
+                lender.execute(() -> {
+                    RemoteAgentConnection conn;
+                    try {
+                        conn = lendOrOpen(System.nanoTime() + connectionTimeout.toNanos());
+                    } catch (RuntimeException e) {
+                        borrowed.completeExceptionally(e);
+                        return;
+                    }
+                    if (conn == null) {
+                        borrowed.completeExceptionally(new BlockchainIOException("Connection pool depleted"));
+                    } else if (!borrowed.complete(conn)) {
+                        returnConnection(conn); // the borrower timed out
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                borrowed.completeExceptionally(new BlockchainException("Connection pool closed"));
+            }
+        }
+
+        /**
+         * Hand a released permit to the longest waiting asynchronous borrower, if there is one
+         */
+        private void releasePermit() {
+            CompletableFuture<RemoteAgentConnection> waiter;
+            while ((waiter = waiters.poll()) != null) {
+                if (!waiter.isDone()) {
+                    lendAsync(waiter);
+                    return;
+                }
+            }
+            permits.release();
+        }
+
+        private static Thread lenderThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "agent-connection-lender");
+            thread.setDaemon(true);
+            return thread;
+        }
+
+        /**
+         * Borrow a connection only if one can be lent without waiting for another borrower to return one
+         * @return the connection, or null if the pool is fully loaded
+         */
+        RemoteAgentConnection tryBorrowConnection() {
+            if (!initialized) throw new BlockchainException("Connection pool not initialized");
+
+            if (!permits.tryAcquire()) {
+                return null;
+            }
+            return lendOrOpen(System.nanoTime());
+        }
+
+        /**
+         * Lend a connection to a borrower holding a permit, opening one if all open connections are fully loaded
+         * @return the connection, or null if none became available before the deadline, in which case the permit has
+         *      been released
+         */
+        private RemoteAgentConnection lendOrOpen(long deadline) {
+            try {
+                PooledConnection pooled = lendConnection();
+                if (pooled == null && reserve()) {
+                    pooled = openOnDemand();
+                } else if (pooled == null) {
+                    pooled = awaitConnection(deadline);
+                    if (pooled == null) {
+                        releasePermit();
+                        return null;
+                    }
+                }
+                if (log.isDebugEnabled()) log.debug("Agent connection borrowed [{}]", pooled.inFlight.get());
+                return pooled.connection;
+            } catch (InterruptedException e) {
+                releasePermit();
+                Thread.currentThread().interrupt();
                 throw new BlockchainIOException("Timeout waiting for available connection", e);
+            } catch (IOException e) {
+                releasePermit();
+                throw new BlockchainIOException("Failure opening connection", e);
+            } catch (RuntimeException e) {
+                releasePermit();
+                throw e;
+            }
+        }
+
+        /**
+         * Wait for a connection to become available, when the pool is at its maximum but a connection is being opened,
+         * checked or replaced
+         * @return the connection, or null if none became available before the deadline
+         */
+        private PooledConnection awaitConnection(long deadline) throws IOException, InterruptedException {
+            waitingLenders.incrementAndGet();
+            try {
+                while (true) {
+                    long changes = this.availabilityChanges;
+                    PooledConnection pooled = lendConnection();
+                    if (pooled != null) {
+                        return pooled;
+                    }
+                    if (reserve()) {
+                        return openOnDemand();
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    availabilityLock.lock();
+                    try {
+                        if (this.availabilityChanges == changes) {
+                            connectionAvailable.awaitNanos(remaining);
+                        }
+                    } finally {
+                        availabilityLock.unlock();
+                    }
+                }
+            } finally {
+                waitingLenders.decrementAndGet();
+            }
+        }
+
+        /**
+         * Wake the borrowers waiting for a connection, after one has been added, returned, checked or retired
+         */
+        private void signalAvailable() {
+            if (waitingLenders.get() > 0) {
+                availabilityLock.lock();
+                try {
+                    this.availabilityChanges++;
+                    connectionAvailable.signalAll();
+                } finally {
+                    availabilityLock.unlock();
+                }
+            }
+        }
+
+        private PooledConnection openOnDemand() throws IOException {
+            PooledConnection pooled = new PooledConnection(openReserved(), 1);
+            this.connections.add(pooled);
+            signalAvailable();
+            log.debug("Connection added on demand [{}]", this.open.get());
+            return pooled;
+        }
+
+        /**
+         * Lend the least loaded open connection, preferring the most recently used so that surplus connections idle
+         * @return the connection, or null if no open connection can take another request
+         */
+        private PooledConnection lendConnection() {
+            while (true) {
+                PooledConnection best = null;
+                int bestInFlight = requestsPerConnection;
+                for (PooledConnection pooled : this.connections) {
+                    int inFlight = pooled.inFlight.get();
+                    if (inFlight >= 0 && (inFlight < bestInFlight || (inFlight == bestInFlight && best != null && pooled.lastUsed > best.lastUsed))) {
+                        best = pooled;
+                        bestInFlight = inFlight;
+                    }
+                }
+                if (best == null) {
+                    return null;
+                }
+                if (best.tryLend(requestsPerConnection) && checkOnBorrow(best)) {
+                    return best;
+                }
+                // lost a race for the connection, or it failed its check
             }
         }
 
         public void returnConnection(RemoteAgentConnection conn) {
+            returnConnection(conn, false);
+        }
+
+        /**
+         * Return a borrowed connection to the pool
+         * @param conn the connection, or null if none was borrowed
+         * @param failed true if the request made with the connection failed
+         */
+        public void returnConnection(RemoteAgentConnection conn, boolean failed) {
             if (conn != null) {
-                Integer status;
-                try {
-                    status = conn.getConnectionStatus().get(500, TimeUnit.MILLISECONDS);
-                } catch (CancellationException | InterruptedException ex) {
-                    log.warn("Connection status check canceled");
-                    status = 0; // probably a shutdown, ignore
-                } catch (TimeoutException ex) {
-                    log.warn("Connection status check not responding");
-                    status = -10;
-                } catch (IOException | ExecutionException ex) {
-                    log.error("Connection status check error", ex);
-                    status = -100;
-                }
-
-                if (status == 0) {
-                    if (!queue.offer(conn)) {
-                        log.info("Could not return connection. Pool is at capacity.[{}]. Closing connection", queue.size());
-                        silentClose(conn);
-                    } else {
-                        this.inUse.decrementAndGet();
+                PooledConnection pooled = find(conn);
+                if (pooled == null) {
+                    // already retired by another borrower or closed with the pool
+                    releasePermit();
+                } else if (failed || validation == AgentConnectionValidation.ON_RETURN) {
+                    // check off the calling thread, which may be the one completing responses for this connection
+                    try {
+                        executorService.execute(() -> release(pooled, isHealthy(conn)));
+                    } catch (RejectedExecutionException e) {
+                        release(pooled, false);
                     }
-                    if (log.isDebugEnabled()) log.debug("Agent connection returned [{}]", queue.size());
                 } else {
-                    log.warn("Connection status check failed: {}. Replacing connection", status);
-                    silentClose(conn);
+                    release(pooled, true);
+                }
+            }
+        }
+
+        private PooledConnection find(RemoteAgentConnection conn) {
+            for (PooledConnection pooled : this.connections) {
+                if (pooled.connection == conn) {
+                    return pooled;
                 }
             }
+            return null;
+        }
+
+        private void release(PooledConnection pooled, boolean healthy) {
+            if (healthy && initialized) {
+                long now = System.nanoTime();
+                pooled.lastUsed = now;
+                pooled.checkedAt = now;
+                int inFlight = pooled.inFlight.decrementAndGet();
+                signalAvailable();
+                if (log.isDebugEnabled()) log.debug("Agent connection returned [{}]", inFlight);
+            } else {
+                if (healthy) {
+                    log.info("Could not return connection. Pool is closed. Closing connection");
+                }
+                retire(pooled);
+            }
+            releasePermit();
+        }
+
+        private boolean checkOnBorrow(PooledConnection pooled) {
+            if (validation == AgentConnectionValidation.ON_BORROW_AFTER_IDLE
+                && pooled.inFlight.get() == 1 // no other borrower has used it since it idled
+                && System.nanoTime() - pooled.checkedAt >= validationInterval.toNanos()) {
+                if (!isHealthy(pooled.connection)) {
+                    retire(pooled);
+                    return false;
+                }
+                pooled.checkedAt = System.nanoTime();
+            }
+            return true;
+        }
+
+        private boolean isHealthy(RemoteAgentConnection conn) {
+            Integer status;
+            try {
+                status = conn.getConnectionStatus().get(500, TimeUnit.MILLISECONDS);
+            } catch (CancellationException | InterruptedException ex) {
+                log.warn("Connection status check canceled");
+                status = 0; // probably a shutdown, ignore
+            } catch (TimeoutException ex) {
+                log.warn("Connection status check not responding");
+                status = -10;
+            } catch (IOException | ExecutionException ex) {
+                log.error("Connection status check error", ex);
+                status = -100;
+            }
+            if (status != 0) {
+                log.warn("Connection status check failed: {}. Replacing connection", status);
+            }
+            return status == 0;
+        }
+
+        /**
+         * Remove a connection from the pool and close it. Requests still in flight on the connection will fail.
+         */
+        private void retire(PooledConnection pooled) {
+            pooled.inFlight.set(-1);
+            if (this.connections.remove(pooled)) {
+                this.open.decrementAndGet();
+                signalAvailable();
+                silentClose(pooled.connection);
+            }
         }
 
         private void silentClose(RemoteAgentConnection conn) {
@@ -632,5 +1497,40 @@ public class RemoteBlockchain implements BlockchainOperations, AutoCloseable {
             }
         }
 
+        /**
+         * Opens connected agentd connections for the pool
+         */
+        @FunctionalInterface
+        interface ConnectionFactory {
+            RemoteAgentConnection open() throws IOException;
+        }
+
+        private static final class PooledConnection {
+            private final RemoteAgentConnection connection;
+            /**
+             * The number of borrowers holding the connection, or -1 once the connection is retired
+             */
+            private final AtomicInteger inFlight;
+            private volatile long lastUsed;
+            private volatile long checkedAt;
+
+            private PooledConnection(RemoteAgentConnection connection, int inFlight) {
+                this.connection = connection;
+                this.inFlight = new AtomicInteger(inFlight);
+                this.lastUsed = System.nanoTime();
+                this.checkedAt = this.lastUsed;
+            }
+
+            private boolean tryLend(int limit) {
+                int current;
+                do {
+                    current = this.inFlight.get();
+                    if (current < 0 || current >= limit) {
+                        return false;
+                    }
+                } while (!this.inFlight.compareAndSet(current, current + 1));
+                return true;
+            }
+        }
     }
 }
@@ -3,7 +3,12 @@ package com.velopayments.blockchain.sdk;
 import com.velopayments.blockchain.sdk.entity.EntityKeys;
 import com.velopayments.blockchain.sdk.entity.EntityTool;
 import com.velopayments.blockchain.sdk.sentinel.*;
+import com.velopayments.blockchain.sdk.sentinel.offsetstore.AppendOnlyOffsetStore;
+import com.velopayments.blockchain.sdk.sentinel.offsetstore.BlockOffset;
 import com.velopayments.blockchain.sdk.sentinel.offsetstore.FileSystemOffsetStore;
+import com.velopayments.blockchain.sdk.sentinel.offsetstore.OffsetStore;
+import com.velopayments.blockchain.sdk.store.BlockSegmentStore;
+import com.velopayments.blockchain.sdk.store.LocalBlockStoreBlockchain;
 import lombok.extern.slf4j.Slf4j;
 
 import java.lang.reflect.InvocationTargetException;
@@ -14,6 +19,7 @@ import java.util.*;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import static java.util.Objects.requireNonNull;
@@ -27,43 +33,220 @@ public class SentinelContainer {
     static final String VAULT_PORT_PROPERTY = "vault.port";
     static final String AGENT_CONNNECTION_TO_PROPERTY = "agent.connection.timeout.millis";
     static final String AGENT_MAX_CONNNECTION_PROPERTY = "agent.max.connections";
+    static final String MAILBOX_CAPACITY_PROPERTY = "mailbox.capacity";
+    static final String MAILBOX_OVERFLOW_PROPERTY = "mailbox.overflow";
+    static final String POLL_INTERVAL_MIN_PROPERTY = "poll.interval.min.millis";
+    static final String POLL_INTERVAL_MAX_PROPERTY = "poll.interval.max.millis";
+    static final String BLOCK_STORE_DIR_PROPERTY = "block.store.dir";
 
 
+    public static final Duration DEFAULT_MIN_POLL_INTERVAL = Duration.ofMillis(100);
+    public static final Duration DEFAULT_MAX_POLL_INTERVAL = Duration.ofSeconds(1);
+    public static final Duration DEFAULT_MAX_FALLBACK_POLL_INTERVAL = Duration.ofSeconds(30);
+
     private final List<BlockCreationListener> blockCreationListeners = new Vector<>();  //Vector is thread-safe
     private final SentinelRegistry sentinelRegistry;
     private final BlockchainOperations blockchain;
 
     private final ScheduledExecutorService executor;
+    private final OffsetStore offsetStore;
     private final SentinelPollerTask sentinelPollerTask;
-    private ScheduledFuture<?> sentinelTaskHandle;
-    private final long sentinelPollMillis;
+    private final BlockNotificationSource blockNotificationSource;
+    private final BlockCreationListener blockNotificationListener = new BlockNotificationListener();
+    private final PollBackoff pollBackoff;
+
+    // guarded by this
+    private ScheduledFuture<?> nextPoll;
+    private boolean polling;
+    private boolean notifiedWhilePolling;
+    private boolean stopped;
 
     public SentinelContainer(BlockchainOperations blockchain) {
         this(blockchain, Executors.newScheduledThreadPool(1));
     }
 
     public SentinelContainer(BlockchainOperations blockchain, ScheduledExecutorService executor) {
+        this(blockchain, executor, new SentinelRegistry());
+    }
+
+    public SentinelContainer(BlockchainOperations blockchain, ScheduledExecutorService executor, SentinelRegistry sentinelRegistry) {
+        this(blockchain, executor, sentinelRegistry, null);
+    }
+
+    /**
+     * @param blockNotificationSource notifies the container of new blocks, so that it only polls for them as a fallback,
+     *                                or null to rely on polling alone
+     */
+    public SentinelContainer(BlockchainOperations blockchain, ScheduledExecutorService executor, SentinelRegistry sentinelRegistry,
+                             BlockNotificationSource blockNotificationSource) {
+        this(blockchain, executor, sentinelRegistry, blockNotificationSource, DEFAULT_MIN_POLL_INTERVAL,
+            blockNotificationSource == null ? DEFAULT_MAX_POLL_INTERVAL : DEFAULT_MAX_FALLBACK_POLL_INTERVAL);
+    }
+
+    /**
+     * @param minPollInterval the delay before polling again after a poll which found no new blocks
+     * @param maxPollInterval the longest delay between polls, reached by doubling the delay while the chain is idle
+     */
+    public SentinelContainer(BlockchainOperations blockchain, ScheduledExecutorService executor, SentinelRegistry sentinelRegistry,
+                             BlockNotificationSource blockNotificationSource, Duration minPollInterval, Duration maxPollInterval) {
+        this(blockchain, executor, sentinelRegistry, blockNotificationSource, minPollInterval, maxPollInterval, Path.of("."));
+    }
+
+    SentinelContainer(BlockchainOperations blockchain, ScheduledExecutorService executor, SentinelRegistry sentinelRegistry,
+                      BlockNotificationSource blockNotificationSource, Duration minPollInterval, Duration maxPollInterval,
+                      Path offsetDirectory) {
         this.blockchain = requireNonNull(blockchain, "Blockchain is required");
         this.executor = requireNonNull(executor, "Executor is required");
-        this.sentinelPollMillis = 1000;
-        this.sentinelRegistry = new SentinelRegistry();
-        var offsetStore = new FileSystemOffsetStore(Path.of(".").resolve("sentinel.log"));
+        this.sentinelRegistry = requireNonNull(sentinelRegistry, "Sentinel registry is required");
+        this.blockNotificationSource = blockNotificationSource;
+        this.pollBackoff = new PollBackoff(minPollInterval, maxPollInterval);
+        this.offsetStore = openOffsetStore(offsetDirectory);
         this.sentinelPollerTask = new SentinelPollerTask(blockchain, offsetStore, sentinelRegistry);
     }
 
+    /**
+     * Open the offset log in the directory, carrying over the offset from a {@link FileSystemOffsetStore} log written
+     * by an earlier version
+     */
+    static OffsetStore openOffsetStore(Path directory) {
+        Path offsetLog = directory.resolve("sentinel.offsets");
+        Path legacyLog = directory.resolve("sentinel.log");
+        AppendOnlyOffsetStore offsetStore = new AppendOnlyOffsetStore(offsetLog);
+        if (!Files.exists(offsetLog) && Files.exists(legacyLog)) {
+            BlockOffset legacy = new FileSystemOffsetStore(legacyLog).initialize();
+            offsetStore.initialize();
+            offsetStore.recordBlock(legacy.getBlockId(), legacy.getBlockHeight());
+            offsetStore.flush();
+            log.info("Carried over block offset {} - {} from {}", legacy.getBlockHeight(), legacy.getBlockId(), legacyLog);
+        }
+        return offsetStore;
+    }
+
+    /**
+     * Start the sentinels and begin processing new blocks.
+     * <p>
+     * The container polls for new blocks again straight away while it finds them, and backs off up to the maximum
+     * poll interval while the chain is idle. A notification from the {@link BlockNotificationSource} triggers a poll
+     * at once.
+     */
     public void start() {
         sentinelRegistry.start();
-        this.sentinelTaskHandle = this.executor.scheduleAtFixedRate(sentinelPollerTask::processLatestBlocks, sentinelPollMillis, sentinelPollMillis, MILLISECONDS);
+        if (blockNotificationSource != null) {
+            blockNotificationSource.subscribe(blockNotificationListener);
+        }
+        synchronized (this) {
+            nextPoll = executor.schedule(this::poll, pollBackoff.idle(), MILLISECONDS);
+        }
     }
 
     public void stop() {
-        if (this.sentinelTaskHandle != null) {
-            this.sentinelTaskHandle.cancel(true);
+        synchronized (this) {
+            stopped = true;
+            if (this.nextPoll != null) {
+                // not interrupting a poll in progress, which would fail the writes of its offsets
+                this.nextPoll.cancel(false);
+            }
+        }
+        if (blockNotificationSource != null) {
+            blockNotificationSource.unsubscribe(blockNotificationListener);
         }
         this.executor.shutdown();
+        try {
+            // let a poll in progress record its offsets before the offset store is closed
+            this.executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.sentinelPollerTask.stop();
+        this.sentinelRegistry.close();
+        this.offsetStore.close();
         log.debug("Closed");
     }
 
+    /**
+     * Replay blocks to one sentinel from the given height, while the others carry on with the new blocks
+     *
+     * @see SentinelPollerTask#replay(String, long)
+     */
+    public void replay(String name, long fromHeight) {
+        sentinelPollerTask.replay(name, fromHeight);
+    }
+
+    private void poll() {
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            polling = true;
+            notifiedWhilePolling = false;
+        }
+        int found = 0;
+        try {
+            found = sentinelPollerTask.processLatestBlocks();
+        } catch (RuntimeException e) {
+            log.error("Error processing new blocks", e);
+        }
+        if (found > 0) {
+            notifyBlockCreationListeners(sentinelPollerTask.currentHighWaterMark());
+        }
+        synchronized (this) {
+            polling = false;
+            if (stopped) {
+                return;
+            }
+            long delay;
+            if (found > 0 || notifiedWhilePolling) {
+                // catching up, so poll again straight away
+                pollBackoff.reset();
+                delay = 0;
+            } else {
+                delay = pollBackoff.idle();
+            }
+            nextPoll = executor.schedule(this::poll, delay, MILLISECONDS);
+        }
+    }
+
+    /**
+     * Poll now rather than waiting for the next scheduled poll
+     */
+    private synchronized void wake() {
+        if (stopped) {
+            return;
+        }
+        if (polling) {
+            notifiedWhilePolling = true;
+        } else if (nextPoll != null && nextPoll.cancel(false)) {
+            pollBackoff.reset();
+            nextPoll = executor.schedule(this::poll, 0, MILLISECONDS);
+        }
+    }
+
+    private void notifyBlockCreationListeners(UUID latestBlockId) {
+        for (BlockCreationListener listener : blockCreationListeners) {
+            if (listener.getLatestNotifiedBlockId().filter(latestBlockId::equals).isPresent()) {
+                continue;
+            }
+            try {
+                listener.blockCreated(latestBlockId);
+            } catch (RuntimeException e) {
+                log.error("Error notifying listener of block " + latestBlockId, e);
+            }
+        }
+    }
+
+    private class BlockNotificationListener implements BlockCreationListener {
+
+        @Override
+        public Optional<UUID> getLatestNotifiedBlockId() {
+            return Optional.ofNullable(sentinelPollerTask.currentHighWaterMark());
+        }
+
+        @Override
+        public void blockCreated(UUID latestBlockId) {
+            wake();
+        }
+    }
+
     /**
      * Register a {@code Sentinel} to handle transactions from the blockchain.
      * @param name a unique sentinel name to register
@@ -120,6 +303,7 @@ public class SentinelContainer {
         }
 
         SentinelContainer sentinelContainer = null;
+        BlockSegmentStore blockStore = null;
         try (RemoteBlockchain blockchain = RemoteBlockchain.builder()
                 .entityKeys(connectionKeys)
                 .agentHost(properties.getProperty(AGENT_HOST_PROPERTY, "localhost"))
@@ -129,7 +313,19 @@ public class SentinelContainer {
                 .maxAgentConnections(maxConnections)
                 .build()) {
             blockchain.start();
-            sentinelContainer = new SentinelContainer(blockchain);
+            BlockchainOperations operations = blockchain;
+            String blockStoreDir = properties.getProperty(BLOCK_STORE_DIR_PROPERTY);
+            if (blockStoreDir != null) {
+                blockStore = BlockSegmentStore.open(Path.of(blockStoreDir.trim()));
+                operations = new LocalBlockStoreBlockchain(blockchain, blockStore);
+            }
+            int mailboxCapacity = Integer.parseInt(properties.getProperty(MAILBOX_CAPACITY_PROPERTY, String.valueOf(SentinelRegistry.DEFAULT_MAILBOX_CAPACITY)));
+            MailboxOverflowPolicy overflowPolicy = MailboxOverflowPolicy.valueOf(properties.getProperty(MAILBOX_OVERFLOW_PROPERTY, MailboxOverflowPolicy.BLOCK.name()).trim().toUpperCase());
+            Duration minPollInterval = Duration.ofMillis(Long.parseLong(properties.getProperty(POLL_INTERVAL_MIN_PROPERTY, String.valueOf(DEFAULT_MIN_POLL_INTERVAL.toMillis()))));
+            Duration maxPollInterval = Duration.ofMillis(Long.parseLong(properties.getProperty(POLL_INTERVAL_MAX_PROPERTY, String.valueOf(DEFAULT_MAX_POLL_INTERVAL.toMillis()))));
+            sentinelContainer = new SentinelContainer(operations, Executors.newScheduledThreadPool(1),
+                new SentinelRegistry(mailboxCapacity, overflowPolicy, Executors.defaultThreadFactory()),
+                null, minPollInterval, maxPollInterval);
 
             // configure sentinels
             for (String key : properties.stringPropertyNames()) {
@@ -150,6 +346,9 @@ public class SentinelContainer {
             if (sentinelContainer != null) {
                 sentinelContainer.stop();
             }
+            if (blockStore != null) {
+                blockStore.close();
+            }
             log.info("Shutdown");
         }
     }
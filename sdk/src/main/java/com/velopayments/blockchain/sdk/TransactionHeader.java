@@ -0,0 +1,124 @@
+package com.velopayments.blockchain.sdk;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.velopayments.blockchain.cert.Field.*;
+
+/**
+ * The core fields identifying a transaction, decoded directly from the certificate bytes.
+ * <p>
+ * A certificate is a sequence of fields, each a two byte field type and a two byte value size, both big-endian,
+ * followed by the value. Decoding a header walks the fields once without copying values or building a field map, so it
+ * is much cheaper than a {@link TransactionReader} when only the ids are needed.
+ */
+@Data
+public class TransactionHeader {
+
+    static final int FIELD_HEADER_SIZE = 4;
+    static final int UUID_SIZE = 16;
+
+    private final UUID transactionId;
+    private final UUID transactionType;
+    private final UUID artifactId;
+    private final UUID artifactType;
+
+    /**
+     * Decode the header of a transaction certificate
+     * @param certificate the encoded transaction certificate
+     * @return the header, with null for any field the certificate does not have
+     */
+    public static TransactionHeader decode(byte[] certificate) {
+        return decode(certificate, 0, certificate.length);
+    }
+
+    /**
+     * Decode the header of a transaction certificate held within a larger array
+     * @param data the array holding the certificate
+     * @param offset the offset of the certificate in the array
+     * @param length the length of the certificate
+     * @return the header, with null for any field the certificate does not have
+     */
+    public static TransactionHeader decode(byte[] data, int offset, int length) {
+        UUID transactionId = null;
+        UUID transactionType = null;
+        UUID artifactId = null;
+        UUID artifactType = null;
+        int end = checkedEnd(data, offset, length);
+        int position = offset;
+        while (position < end && (transactionId == null || transactionType == null || artifactId == null || artifactType == null)) {
+            int size = readSize(data, position, end);
+            int fieldType = readShort(data, position);
+            int value = position + FIELD_HEADER_SIZE;
+            if (size == UUID_SIZE) {
+                if (fieldType == CERTIFICATE_ID && transactionId == null) {
+                    transactionId = readUUID(data, value);
+                } else if (fieldType == TRANSACTION_TYPE && transactionType == null) {
+                    transactionType = readUUID(data, value);
+                } else if (fieldType == ARTIFACT_ID && artifactId == null) {
+                    artifactId = readUUID(data, value);
+                } else if (fieldType == ARTIFACT_TYPE && artifactType == null) {
+                    artifactType = readUUID(data, value);
+                }
+            }
+            position = value + size;
+        }
+        return new TransactionHeader(transactionId, transactionType, artifactId, artifactType);
+    }
+
+    /**
+     * Decode the headers of the transactions wrapped in a block certificate, in block order
+     * @param block the encoded block certificate
+     * @return the transaction headers
+     */
+    public static List<TransactionHeader> decodeBlock(byte[] block) {
+        List<TransactionHeader> headers = new ArrayList<>();
+        int position = 0;
+        while (position < block.length) {
+            int size = readSize(block, position, block.length);
+            int fieldType = readShort(block, position);
+            if (fieldType == WRAPPED_TRANSACTION_TUPLE) {
+                headers.add(decode(block, position + FIELD_HEADER_SIZE, size));
+            }
+            position += FIELD_HEADER_SIZE + size;
+        }
+        return headers;
+    }
+
+    private static int checkedEnd(byte[] data, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > data.length) {
+            throw new BlockchainException("Certificate of " + length + " bytes at " + offset + " exceeds " + data.length + " bytes");
+        }
+        return offset + length;
+    }
+
+    static int readSize(byte[] data, int position, int end) {
+        if (position + FIELD_HEADER_SIZE > end) {
+            throw new BlockchainException("Truncated certificate field header at " + position);
+        }
+        int size = readShort(data, position + 2);
+        if (position + FIELD_HEADER_SIZE + size > end) {
+            throw new BlockchainException("Truncated certificate field value at " + position);
+        }
+        return size;
+    }
+
+    static int readShort(byte[] data, int position) {
+        return ((data[position] & 0xff) << 8) | (data[position + 1] & 0xff);
+    }
+
+    static UUID readUUID(byte[] data, int position) {
+        return new UUID(readLong(data, position), readLong(data, position + 8));
+    }
+
+    static long readLong(byte[] data, int position) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (data[position + i] & 0xff);
+        }
+        return value;
+    }
+}
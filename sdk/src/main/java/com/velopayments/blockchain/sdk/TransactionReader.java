@@ -14,6 +14,13 @@ import static com.velopayments.blockchain.cert.Field.*;
 
 public class TransactionReader extends CertificateReaderSupport {
 
+    // core fields, decoded on first use
+    private UUID transactionId;
+    private UUID transactionType;
+    private UUID artifactId;
+    private UUID artifactType;
+    private UUID previousTransactionId;
+
     public TransactionReader(Certificate cert) {
         super(cert);
     }
@@ -23,39 +30,81 @@ public class TransactionReader extends CertificateReaderSupport {
     }
 
     public UUID getArtifactId() {
-        return getUUID(ARTIFACT_ID);
+        UUID id = this.artifactId;
+        if (id == null) {
+            id = getUUID(ARTIFACT_ID);
+            this.artifactId = id;
+        }
+        return id;
     }
 
     public UUID getArtifactType() {
-        return getUUID(ARTIFACT_TYPE);
+        UUID id = this.artifactType;
+        if (id == null) {
+            id = getUUID(ARTIFACT_TYPE);
+            this.artifactType = id;
+        }
+        return id;
     }
 
     public UUID getTransactionType() {
-        return getUUID(TRANSACTION_TYPE);
+        UUID id = this.transactionType;
+        if (id == null) {
+            id = getUUID(TRANSACTION_TYPE);
+            this.transactionType = id;
+        }
+        return id;
     }
 
     public UUID getTransactionId() {
-        return getUUID(CERTIFICATE_ID);
+        UUID id = this.transactionId;
+        if (id == null) {
+            id = getUUID(CERTIFICATE_ID);
+            this.transactionId = id;
+        }
+        return id;
+    }
+
+    /**
+     * Compare the artifact id without decoding it again once it has been read
+     * @return true if the transaction is for the artifact
+     */
+    public boolean isForArtifact(UUID artifactId) {
+        return artifactId.equals(getArtifactId());
+    }
+
+    /**
+     * @return true if the transaction is of the given transaction type
+     */
+    public boolean isOfTransactionType(UUID transactionType) {
+        return transactionType.equals(getTransactionType());
+    }
+
+    /**
+     * @return true if the transaction is for an artifact of the given type
+     */
+    public boolean isOfArtifactType(UUID artifactType) {
+        return artifactType.equals(getArtifactType());
     }
 
     public UUID getPreviousTransactionId() {
-        return certificateReader.getFirst(Field.PREVIOUS_CERTIFICATE_ID).asUUID();
+        UUID id = this.previousTransactionId;
+        if (id == null) {
+            id = hasField(Field.PREVIOUS_CERTIFICATE_ID) ? getUUID(Field.PREVIOUS_CERTIFICATE_ID)
+                : certificateReader.getFirst(Field.PREVIOUS_CERTIFICATE_ID).asUUID(); // reports the missing field
+            this.previousTransactionId = id;
+        }
+        return id;
     }
 
     public EncryptionPublicKey getPublicEncryptionKey() {
-        if (certificateReader.getFields().contains(Field.PUBLIC_ENCRYPTION_KEY)) {
-            return new EncryptionPublicKey(certificateReader.getFirst(Field.PUBLIC_ENCRYPTION_KEY).asByteArray());
-        } else {
-            return null;
-        }
+        byte[] key = getByteArray(Field.PUBLIC_ENCRYPTION_KEY);
+        return key == null ? null : new EncryptionPublicKey(key);
     }
 
     public SigningPublicKey getPublicSigningKey() {
-        if (certificateReader.getFields().contains(Field.PUBLIC_SIGNING_KEY)) {
-            return new SigningPublicKey(certificateReader.getFirst(Field.PUBLIC_SIGNING_KEY).asByteArray());
-        } else {
-            return null;
-        }
+        byte[] key = getByteArray(Field.PUBLIC_SIGNING_KEY);
+        return key == null ? null : new SigningPublicKey(key);
     }
 
     public UUID getSignerId() {
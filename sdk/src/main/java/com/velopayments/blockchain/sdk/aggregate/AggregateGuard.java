@@ -33,6 +33,6 @@ public abstract class AggregateGuard<T extends Aggregate> implements PreSubmitGu
     }
 
     protected boolean supportedByRepository(TransactionReader reader) {
-        return repository.getArtifactType().equals(reader.getArtifactType());
+        return reader.isOfArtifactType(repository.getArtifactType());
     }
 }
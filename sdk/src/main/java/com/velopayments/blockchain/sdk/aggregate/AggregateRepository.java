@@ -4,6 +4,8 @@ import com.velopayments.blockchain.sdk.BlockchainOperations;
 import com.velopayments.blockchain.sdk.TransactionReader;
 import com.velopayments.blockchain.sdk.vault.ExternalReference;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Stream;
@@ -21,16 +23,20 @@ public interface AggregateRepository<T extends Aggregate> {
         return blockchain.findFirstTransactionIdForArtifactById(artifactId)
             .map(initialTransaction -> {
                 T aggregate = supply(artifactId);
-                blockchain.findTransactionById(initialTransaction)
-                    .ifPresent(txn -> aggregate.apply(txn, blockchain.loadExternalReferences(txn)));
 
-                // restore state
-                Optional<UUID> transactionId = blockchain.findNextTransactionIdForTransactionById(initialTransaction);
+                // follow the chain of ids, then load the transactions together
+                List<UUID> transactionIds = new ArrayList<>();
+                Optional<UUID> transactionId = Optional.of(initialTransaction);
                 while (transactionId.isPresent()) {
-                    blockchain.findTransactionById(transactionId.get())
-                        .ifPresent(txn -> aggregate.apply(txn, blockchain.loadExternalReferences(txn)));
+                    transactionIds.add(transactionId.get());
                     transactionId = blockchain.findNextTransactionIdForTransactionById(transactionId.get());
                 }
+
+                // restore state
+                try (Stream<Optional<TransactionReader>> transactions = blockchain.findTransactionsByIds(transactionIds)) {
+                    transactions.forEach(transaction -> transaction
+                        .ifPresent(txn -> aggregate.apply(txn, blockchain.loadExternalReferences(txn))));
+                }
                 return aggregate;
             });
     }
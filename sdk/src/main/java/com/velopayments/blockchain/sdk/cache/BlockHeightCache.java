@@ -0,0 +1,178 @@
+package com.velopayments.blockchain.sdk.cache;
+
+import com.velopayments.blockchain.sdk.BlockReader;
+
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * The heights of blocks by block id, held as pairs of longs and a height in an open-addressed table, so that an entry
+ * costs three longs rather than a map entry, a {@code UUID} and a {@code Long}.
+ * <p>
+ * A block's height never changes, so entries are only ever added. A bounded cache is cleared once it is full, and is
+ * refilled from the blocks seen after that. Empty slots are marked by the nil UUID, whose height is kept separately.
+ */
+public class BlockHeightCache {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int maxEntries;
+
+    private long[] mostSignificant = new long[INITIAL_CAPACITY];
+    private long[] leastSignificant = new long[INITIAL_CAPACITY];
+    private long[] heights = new long[INITIAL_CAPACITY];
+    private long nilHeight = -1;
+    private int size;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Create a cache which holds the height of every block put in it
+     */
+    public BlockHeightCache() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Create a cache holding up to {@code maxEntries} heights
+     */
+    public BlockHeightCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Hold the height of a block, if it has one
+     *
+     * @return the block
+     */
+    public BlockReader put(BlockReader blockReader) {
+        Long blockHeight = blockReader.getBlockHeight();
+        if (blockHeight != null) {
+            put(blockReader.getBlockId(), blockHeight);
+        }
+        return blockReader;
+    }
+
+    public synchronized void put(UUID blockId, long blockHeight) {
+        if (blockHeight < 0) {
+            throw new IllegalArgumentException("Block height must not be negative: " + blockHeight);
+        }
+        long msb = blockId.getMostSignificantBits();
+        long lsb = blockId.getLeastSignificantBits();
+        if (msb == 0 && lsb == 0) {
+            if (nilHeight < 0) {
+                evictIfFull();
+                size++;
+            }
+            nilHeight = blockHeight;
+            return;
+        }
+        int slot = find(msb, lsb);
+        if (!isEmpty(slot)) {
+            heights[slot] = blockHeight;
+            return;
+        }
+        if (evictIfFull()) {
+            slot = find(msb, lsb);
+        } else if ((size + 1) * 2 > heights.length) {
+            resize(heights.length * 2);
+            slot = find(msb, lsb);
+        }
+        mostSignificant[slot] = msb;
+        leastSignificant[slot] = lsb;
+        heights[slot] = blockHeight;
+        size++;
+    }
+
+    /**
+     * @return the height of the block, or empty if it isn't held
+     */
+    public synchronized OptionalLong findHeight(UUID blockId) {
+        long msb = blockId.getMostSignificantBits();
+        long lsb = blockId.getLeastSignificantBits();
+        long height = (msb == 0 && lsb == 0) ? nilHeight : heightAt(find(msb, lsb));
+        if (height < 0) {
+            ++misses;
+            return OptionalLong.empty();
+        }
+        ++hits;
+        return OptionalLong.of(height);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        mostSignificant = new long[INITIAL_CAPACITY];
+        leastSignificant = new long[INITIAL_CAPACITY];
+        heights = new long[INITIAL_CAPACITY];
+        nilHeight = -1;
+        size = 0;
+    }
+
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, size, size);
+    }
+
+    /**
+     * Clear the cache if it holds as many entries as it may
+     *
+     * @return true if it was cleared
+     */
+    private boolean evictIfFull() {
+        if (size < maxEntries) {
+            return false;
+        }
+        evictions += size;
+        clear();
+        return true;
+    }
+
+    /**
+     * @return the slot holding the id, or else the empty slot where it belongs
+     */
+    private int find(long msb, long lsb) {
+        int mask = heights.length - 1;
+        int slot = slot(msb, lsb, mask);
+        while (!isEmpty(slot) && !(mostSignificant[slot] == msb && leastSignificant[slot] == lsb)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private long heightAt(int slot) {
+        return isEmpty(slot) ? -1 : heights[slot];
+    }
+
+    private void resize(int capacity) {
+        long[] oldMostSignificant = mostSignificant;
+        long[] oldLeastSignificant = leastSignificant;
+        long[] oldHeights = heights;
+        mostSignificant = new long[capacity];
+        leastSignificant = new long[capacity];
+        heights = new long[capacity];
+        for (int i = 0; i < oldHeights.length; i++) {
+            if (oldMostSignificant[i] != 0 || oldLeastSignificant[i] != 0) {
+                int slot = find(oldMostSignificant[i], oldLeastSignificant[i]);
+                mostSignificant[slot] = oldMostSignificant[i];
+                leastSignificant[slot] = oldLeastSignificant[i];
+                heights[slot] = oldHeights[i];
+            }
+        }
+    }
+
+    private boolean isEmpty(int slot) {
+        return mostSignificant[slot] == 0 && leastSignificant[slot] == 0;
+    }
+
+    private static int slot(long msb, long lsb, int mask) {
+        long hash = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+}
@@ -0,0 +1,32 @@
+package com.velopayments.blockchain.sdk.cache;
+
+import lombok.Data;
+
+/**
+ * A snapshot of the activity of one of the caches in a {@link CachingBlockchain}
+ */
+@Data
+public class CacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+
+    /**
+     * The number of entries held
+     */
+    private final int size;
+
+    /**
+     * The total weight of the entries held, which is the number of entries unless the cache is bounded by bytes
+     */
+    private final long weight;
+
+    /**
+     * @return the proportion of lookups served from the cache, or zero if there have been none
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,316 @@
+package com.velopayments.blockchain.sdk.cache;
+
+import com.velopayments.blockchain.cert.Certificate;
+import com.velopayments.blockchain.client.TransactionStatus;
+import com.velopayments.blockchain.sdk.BatchSubmission;
+import com.velopayments.blockchain.sdk.BlockReader;
+import com.velopayments.blockchain.sdk.BlockchainOperations;
+import com.velopayments.blockchain.sdk.CertificateReaderSupport;
+import com.velopayments.blockchain.sdk.TransactionReader;
+import com.velopayments.blockchain.sdk.guard.PreSubmitGuard;
+import com.velopayments.blockchain.sdk.vault.ExternalReference;
+import lombok.Builder;
+
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A {@code BlockchainOperations} decorator which caches the lookups whose results can never change.
+ * <p>
+ * Committed blocks and transactions are immutable, so blocks and transactions found by id, the block id of a
+ * transaction and the block id at a height are held in least recently used caches. Lookups which find nothing are not
+ * cached, as the block or transaction may yet be committed. Lookups of the latest block or of the first or last
+ * transaction for an artifact always go to the underlying blockchain.
+ * <p>
+ * The height of every block read through the decorator, and of every block id found by height, is also held in a
+ * {@link BlockHeightCache}, which can be shared with whatever needs to compare block heights.
+ */
+public class CachingBlockchain implements BlockchainOperations {
+
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final BlockchainOperations blockchain;
+    private final LruCache<UUID, TransactionReader> transactions;
+    private final LruCache<UUID, BlockReader> blocks;
+    private final LruCache<UUID, UUID> transactionBlockIds;
+    private final LruCache<Long, UUID> blockIdsByHeight;
+    private final BlockHeightCache blockHeights;
+
+    /**
+     * Create a cache holding up to {@code maxEntries} of each kind of lookup
+     */
+    public CachingBlockchain(BlockchainOperations blockchain, int maxEntries) {
+        this(blockchain, new LruCache<>(maxEntries), new LruCache<>(maxEntries), maxEntries);
+    }
+
+    private CachingBlockchain(BlockchainOperations blockchain, LruCache<UUID, TransactionReader> transactions,
+                              LruCache<UUID, BlockReader> blocks, int maxIdEntries) {
+        this.blockchain = Objects.requireNonNull(blockchain, "Blockchain is required");
+        this.transactions = transactions;
+        this.blocks = blocks;
+        this.transactionBlockIds = new LruCache<>(maxIdEntries);
+        this.blockIdsByHeight = new LruCache<>(maxIdEntries);
+        this.blockHeights = new BlockHeightCache(maxIdEntries);
+    }
+
+    /**
+     * CachingBlockchain builder factory method
+     * <p>
+     * Without {@code maxBytes} the block and transaction caches hold up to {@code maxEntries} each. With
+     * {@code maxBytes} they are instead bounded by the encoded size of the cached certificates, which suits blocks of
+     * very different sizes. The id caches always hold up to {@code maxEntries}.
+     */
+    @Builder
+    private static CachingBlockchain createCachingBlockchain(BlockchainOperations blockchain, Integer maxEntries, Long maxBytes) {
+        int entries = maxEntries == null ? DEFAULT_MAX_ENTRIES : maxEntries;
+        if (maxBytes == null) {
+            return new CachingBlockchain(blockchain, entries);
+        }
+        return new CachingBlockchain(blockchain,
+            new LruCache<>(maxBytes, CachingBlockchain::encodedSize),
+            new LruCache<>(maxBytes, CachingBlockchain::encodedSize),
+            entries);
+    }
+
+    private static long encodedSize(CertificateReaderSupport reader) {
+        return reader.getCertificate().toByteArray().length;
+    }
+
+    public CacheStats getTransactionCacheStats() {
+        return transactions.stats();
+    }
+
+    public CacheStats getBlockCacheStats() {
+        return blocks.stats();
+    }
+
+    public CacheStats getTransactionBlockIdCacheStats() {
+        return transactionBlockIds.stats();
+    }
+
+    public CacheStats getBlockIdByHeightCacheStats() {
+        return blockIdsByHeight.stats();
+    }
+
+    public CacheStats getBlockHeightCacheStats() {
+        return blockHeights.stats();
+    }
+
+    /**
+     * @return the heights of the blocks read through this blockchain
+     */
+    public BlockHeightCache getBlockHeightCache() {
+        return blockHeights;
+    }
+
+    /**
+     * Forget all cached lookups
+     */
+    public void clear() {
+        transactions.clear();
+        blocks.clear();
+        transactionBlockIds.clear();
+        blockIdsByHeight.clear();
+        blockHeights.clear();
+    }
+
+    @Override
+    public Optional<TransactionReader> findTransactionById(UUID transactionId) {
+        return find(transactionId, transactions, blockchain::findTransactionById);
+    }
+
+    @Override
+    public Stream<Optional<TransactionReader>> findTransactionsByIds(Collection<UUID> transactionIds) {
+        return findAll(transactionIds, transactions, blockchain::findTransactionsByIds);
+    }
+
+    @Override
+    public Optional<BlockReader> findBlockById(UUID blockId) {
+        return find(blockId, blocks, id -> blockchain.findBlockById(id).map(this::cacheHeight));
+    }
+
+    @Override
+    public Stream<Optional<BlockReader>> findBlocksByIds(Collection<UUID> blockIds) {
+        return findAll(blockIds, blocks, ids -> blockchain.findBlocksByIds(ids)
+            .map(block -> block.map(this::cacheHeight)));
+    }
+
+    @Override
+    public Optional<UUID> findTransactionBlockId(UUID transactionId) {
+        return find(transactionId, transactionBlockIds, blockchain::findTransactionBlockId);
+    }
+
+    @Override
+    public Optional<UUID> findBlockIdByBlockHeight(long blockHeight) {
+        Optional<UUID> blockId = find(blockHeight, blockIdsByHeight, blockchain::findBlockIdByBlockHeight);
+        blockId.ifPresent(id -> blockHeights.put(id, blockHeight));
+        return blockId;
+    }
+
+    @Override
+    public Stream<BlockReader> findAllBlocksAfter(UUID targetBlock) {
+        return blockchain.findAllBlocksAfter(targetBlock).map(this::cacheBlock);
+    }
+
+    @Override
+    public Stream<BlockReader> findBlocksByHeightRange(long fromHeight, long toHeight) {
+        return blockchain.findBlocksByHeightRange(fromHeight, toHeight).map(this::cacheBlock);
+    }
+
+    @Override
+    public Stream<BlockReader> findBlocksByHeightRange(long fromHeight, long toHeight, boolean ordered) {
+        return blockchain.findBlocksByHeightRange(fromHeight, toHeight, ordered).map(this::cacheBlock);
+    }
+
+    private BlockReader cacheBlock(BlockReader block) {
+        blocks.put(block.getBlockId(), block);
+        return cacheHeight(block);
+    }
+
+    private BlockReader cacheHeight(BlockReader block) {
+        Long blockHeight = block.getBlockHeight();
+        if (blockHeight != null) {
+            blockIdsByHeight.put(blockHeight, block.getBlockId());
+            blockHeights.put(block.getBlockId(), blockHeight);
+        }
+        return block;
+    }
+
+    private static <K, V> Optional<V> find(K key, LruCache<K, V> cache, Function<K, Optional<V>> lookup) {
+        V cached = cache.get(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<V> found = lookup.apply(key);
+        found.ifPresent(value -> cache.put(key, value));
+        return found;
+    }
+
+    /**
+     * Serve the cached ids and look up the rest together, giving the results in the order of the ids
+     */
+    private static <V> Stream<Optional<V>> findAll(Collection<UUID> ids, LruCache<UUID, V> cache,
+                                                   Function<Collection<UUID>, Stream<Optional<V>>> lookup) {
+        List<V> cached = new ArrayList<>(ids.size());
+        List<UUID> missing = new ArrayList<>();
+        for (UUID id : ids) {
+            V value = cache.get(id);
+            cached.add(value);
+            if (value == null) {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return cached.stream().map(Optional::of);
+        }
+
+        Stream<Optional<V>> found = lookup.apply(missing);
+        Iterator<Optional<V>> foundIterator = found.iterator();
+        Iterator<UUID> idIterator = ids.iterator();
+        return cached.stream()
+            .map(value -> {
+                UUID id = idIterator.next();
+                if (value != null) {
+                    return Optional.of(value);
+                }
+                Optional<V> result = foundIterator.next();
+                result.ifPresent(v -> cache.put(id, v));
+                return result;
+            })
+            .onClose(found::close);
+    }
+
+    @Override
+    public CompletableFuture<TransactionStatus> submit(Certificate transaction) {
+        return blockchain.submit(transaction);
+    }
+
+    @Override
+    public BatchSubmission submitAll(List<Certificate> transactions) {
+        return blockchain.submitAll(transactions);
+    }
+
+    @Override
+    public CompletableFuture<Certificate> addExternalReference(Certificate externalReference, InputStream inputStream) {
+        return blockchain.addExternalReference(externalReference, inputStream);
+    }
+
+    @Override
+    public boolean deleteExternalReference(Certificate externalReferenceCert) {
+        return blockchain.deleteExternalReference(externalReferenceCert);
+    }
+
+    @Override
+    public void deleteExternalReferencesByArtifactId(UUID artifactId) {
+        blockchain.deleteExternalReferencesByArtifactId(artifactId);
+    }
+
+    @Override
+    public Stream<ExternalReference> loadExternalReferences(TransactionReader reader) {
+        return blockchain.loadExternalReferences(reader);
+    }
+
+    @Override
+    public ExternalReference resolveExternalReference(Certificate externalReference) {
+        return blockchain.resolveExternalReference(externalReference);
+    }
+
+    @Override
+    public UUID getLatestBlockId() {
+        return blockchain.getLatestBlockId();
+    }
+
+    @Override
+    public Optional<UUID> findPrevBlockId(UUID blockId) {
+        return blockchain.findPrevBlockId(blockId);
+    }
+
+    @Override
+    public Optional<UUID> findNextBlockId(UUID blockId) {
+        return blockchain.findNextBlockId(blockId);
+    }
+
+    @Override
+    public Optional<UUID> findNextTransactionIdForTransactionById(UUID transactionId) {
+        return blockchain.findNextTransactionIdForTransactionById(transactionId);
+    }
+
+    @Override
+    public Optional<UUID> findPreviousTransactionIdForTransactionById(UUID transactionId) {
+        return blockchain.findPreviousTransactionIdForTransactionById(transactionId);
+    }
+
+    @Override
+    public Optional<UUID> findFirstTransactionIdForArtifactById(UUID artifactId) {
+        return blockchain.findFirstTransactionIdForArtifactById(artifactId);
+    }
+
+    @Override
+    public Optional<UUID> findLastTransactionIdForArtifactById(UUID artifactId) {
+        return blockchain.findLastTransactionIdForArtifactById(artifactId);
+    }
+
+    @Override
+    public Optional<UUID> findLastBlockIdForArtifactById(UUID artifactId) {
+        return blockchain.findLastBlockIdForArtifactById(artifactId);
+    }
+
+    @Override
+    public void register(PreSubmitGuard guard) {
+        blockchain.register(guard);
+    }
+
+    @Override
+    public void unregister(PreSubmitGuard guard) {
+        blockchain.unregister(guard);
+    }
+
+    @Override
+    public void close() {
+        clear();
+        blockchain.close();
+    }
+}
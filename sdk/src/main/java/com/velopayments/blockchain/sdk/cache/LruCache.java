@@ -0,0 +1,78 @@
+package com.velopayments.blockchain.sdk.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * A least recently used cache bounded by the total weight of its entries
+ */
+class LruCache<K, V> {
+
+    private final Map<K, V> entries = new LinkedHashMap<>(16, 0.75f, true); // access order
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxWeight the maximum total weight of the entries
+     * @param weigher gives the weight of a value, which must not change while it is cached
+     */
+    LruCache(long maxWeight, ToLongFunction<V> weigher) {
+        if (maxWeight < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1: " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * A cache bounded by the number of entries
+     */
+    LruCache(int maxEntries) {
+        this(maxEntries, value -> 1);
+    }
+
+    synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value == null) {
+            ++misses;
+        } else {
+            ++hits;
+        }
+        return value;
+    }
+
+    synchronized void put(K key, V value) {
+        long valueWeight = weigher.applyAsLong(value);
+        if (valueWeight > maxWeight) {
+            return; // would evict everything else and still not fit
+        }
+        V previous = entries.put(key, value);
+        if (previous != null) {
+            weight -= weigher.applyAsLong(previous);
+        }
+        weight += valueWeight;
+
+        Iterator<V> eldest = entries.values().iterator();
+        while (weight > maxWeight) {
+            weight -= weigher.applyAsLong(eldest.next());
+            eldest.remove();
+            ++evictions;
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, entries.size(), weight);
+    }
+}
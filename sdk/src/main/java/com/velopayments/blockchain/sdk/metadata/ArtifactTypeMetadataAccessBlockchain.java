@@ -11,6 +11,7 @@ import org.slf4j.Logger;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import static com.velopayments.blockchain.sdk.metadata.ArtifactTypeHistory.*;
 import static com.velopayments.blockchain.sdk.metadata.CoreMetadata.CORE_METADATA_TYPE_ID;
@@ -113,36 +114,60 @@ public class ArtifactTypeMetadataAccessBlockchain implements ArtifactTypeMetadat
      */
      public CompletableFuture<TransactionStatus> ensureCoreMetadataIsUpToDate(Signer signer) {
         //ensure that the core types and the type type are persisted in the blockchain
-         final UUID prevArtHistoryTransactionId = findPreviousMetadataTransactionId(ARTIFACT_TYPE_HISTORY_ARTIFACT_ID);
-         final UUID coreHistoryTransactionId = UUID.randomUUID();
-         final UUID artHistoryTransactionId = UUID.randomUUID();
-         final UUID artTypeHistoryTransactionId = UUID.randomUUID();
-         final UUID entityTypeHistoryTransActionId = UUID.randomUUID();
-         return ensureUpToDate(CoreMetadata.create(), coreHistoryTransactionId, prevArtHistoryTransactionId, signer)
-             .thenCompose(result -> {
-                 if (result == TransactionStatus.SUCCEEDED) {
-                     return ensureUpToDate(ArtifactTypeHistory.create(), artHistoryTransactionId, coreHistoryTransactionId, signer);
-                 } else {
-                     return CompletableFuture.completedFuture(result);
-                 }
-             })
-             .thenCompose(result -> {
-                 if (result == TransactionStatus.SUCCEEDED) {
-                     return ensureUpToDate(ArtifactTypeType.create(), artTypeHistoryTransactionId, artHistoryTransactionId, signer);
-                 } else {
-                     return CompletableFuture.completedFuture(result);
-                 }
-             })
-             .thenCompose(result -> {
-                 if (result == TransactionStatus.SUCCEEDED) {
-                     return ensureUpToDate(EntityMetadata.create(), entityTypeHistoryTransActionId, artTypeHistoryTransactionId, signer);
-                 } else {
-                     return CompletableFuture.completedFuture(result);
-                 }
-             });
+         List<Supplier<ArtifactTypeMetadataBuilder>> coreTypes = List.of(
+             CoreMetadata::create, ArtifactTypeHistory::create, ArtifactTypeType::create, EntityMetadata::create);
+
+         //the history transactions of the stale types are written in a single batch, chained in order
+         List<Certificate> histories = new ArrayList<>();
+         List<Certificate> metadata = new ArrayList<>();
+         UUID prevArtHistoryTransactionId = findPreviousMetadataTransactionId(ARTIFACT_TYPE_HISTORY_ARTIFACT_ID);
+         for (Supplier<ArtifactTypeMetadataBuilder> coreType : coreTypes) {
+             UUID artHistoryTransactionId = UUID.randomUUID();
+             if (addIfNotUpToDate(coreType.get(), artHistoryTransactionId, prevArtHistoryTransactionId, signer, histories, metadata)) {
+                 prevArtHistoryTransactionId = artHistoryTransactionId;
+             }
+         }
+         return submitAll(histories, metadata);
      }
 
     private CompletableFuture<TransactionStatus> ensureUpToDate(ArtifactTypeMetadataBuilder builder, UUID artHistoryTransactionId, UUID prevArtHistoryTransactionId, Signer signer) {
+        List<Certificate> histories = new ArrayList<>();
+        List<Certificate> metadata = new ArrayList<>();
+        addIfNotUpToDate(builder, artHistoryTransactionId, prevArtHistoryTransactionId, signer, histories, metadata);
+        return submitAll(histories, metadata);
+    }
+
+    /**
+     * Submit the history transactions, then the metadata transaction of each type whose history transaction
+     * succeeded, so that no metadata is committed for a type whose history was rejected. The metadata of the types
+     * after the first rejected history transaction is not submitted, as their history transactions are chained to it.
+     *
+     * @return {@code SUCCEEDED} if every transaction succeeded, or else the first status which is not
+     */
+    private CompletableFuture<TransactionStatus> submitAll(List<Certificate> histories, List<Certificate> metadata) {
+        if (histories.isEmpty()) {
+            return CompletableFuture.completedFuture(TransactionStatus.SUCCEEDED);
+        }
+        return blockchain.submitAll(histories).all().thenCompose(historyStatuses -> {
+            int accepted = 0;
+            while (accepted < historyStatuses.size() && historyStatuses.get(accepted) == TransactionStatus.SUCCEEDED) {
+                ++accepted;
+            }
+            TransactionStatus historyStatus = accepted < historyStatuses.size() ? historyStatuses.get(accepted) : TransactionStatus.SUCCEEDED;
+            if (accepted == 0) {
+                return CompletableFuture.completedFuture(historyStatus);
+            }
+            return blockchain.submitAll(metadata.subList(0, accepted)).overallStatus()
+                .thenApply(metadataStatus -> historyStatus == TransactionStatus.SUCCEEDED ? metadataStatus : historyStatus);
+        });
+    }
+
+    /**
+     * Add the history and metadata transactions needed to bring the stored metadata up to date
+     * @return true if transactions were added, false if the stored metadata is already up to date
+     */
+    private boolean addIfNotUpToDate(ArtifactTypeMetadataBuilder builder, UUID artHistoryTransactionId, UUID prevArtHistoryTransactionId, Signer signer,
+                                     List<Certificate> histories, List<Certificate> metadataTransactions) {
         String typeName = builder.getMetadata().getArtifactTypeName();
 
         //if there is no super-type then link it to the core types.  Kindof like how everything in Java inherits from java.lang.Object
@@ -169,7 +194,7 @@ public class ArtifactTypeMetadataAccessBlockchain implements ArtifactTypeMetadat
 
             if (generatedJson.equals(storedJson)) {
                 log.trace("[{}] metadata is already up to date", typeName);
-                return CompletableFuture.completedFuture(TransactionStatus.SUCCEEDED);
+                return false;
             }
         }
 
@@ -185,14 +210,9 @@ public class ArtifactTypeMetadataAccessBlockchain implements ArtifactTypeMetadat
 
         writeToCache(artifactTypeId, metadata); // FIXME: write to cache after canonization
 
-        return blockchain.submit(artifactTypeHistoryCert)
-            .thenCompose(result -> {
-                if (result == TransactionStatus.SUCCEEDED) {
-                    return blockchain.submit(artifactMetadataCert);
-                } else {
-                    return CompletableFuture.completedFuture(result);
-                }
-            });
+        histories.add(artifactTypeHistoryCert);
+        metadataTransactions.add(artifactMetadataCert);
+        return true;
     }
 
     private UUID findPreviousMetadataTransactionId(UUID artifactId) {
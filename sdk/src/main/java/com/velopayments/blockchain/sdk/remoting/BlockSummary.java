@@ -26,8 +26,8 @@ public class BlockSummary {
     private List<TransactionSummary> transactions = new ArrayList<>();
 
     public static BlockSummary fromBlockCertificateReader(BlockReader blockReader) {
-        List<TransactionSummary> transactions = blockReader.getTransactions().stream()
-            .map(TransactionSummary::transformTransaction)
+        List<TransactionSummary> transactions = blockReader.getTransactionHeaders().stream()
+            .map(TransactionSummary::fromHeader)
             .collect(toList());
         Long height = Objects.requireNonNull(blockReader.getBlockHeight(), "BLOCK_HEIGHT field is absent");
         return BlockSummary.builder()
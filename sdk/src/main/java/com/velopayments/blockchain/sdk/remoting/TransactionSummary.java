@@ -1,5 +1,6 @@
 package com.velopayments.blockchain.sdk.remoting;
 
+import com.velopayments.blockchain.sdk.TransactionHeader;
 import com.velopayments.blockchain.sdk.TransactionReader;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -27,4 +28,13 @@ public class TransactionSummary {
             .artifactType(txReader.getArtifactType())
             .build();
     }
+
+    public static TransactionSummary fromHeader(TransactionHeader header) {
+        return TransactionSummary.builder()
+            .transactionId(header.getTransactionId())
+            .transactionType(header.getTransactionType())
+            .artifactId(header.getArtifactId())
+            .artifactType(header.getArtifactType())
+            .build();
+    }
 }
@@ -4,9 +4,14 @@ import com.velopayments.blockchain.sdk.BlockReader;
 import com.velopayments.blockchain.sdk.BlockchainException;
 import com.velopayments.blockchain.sdk.BlockchainOperations;
 import com.velopayments.blockchain.sdk.TransactionReader;
+import com.velopayments.blockchain.sdk.cache.BlockHeightCache;
+import com.velopayments.blockchain.sdk.cache.CachingBlockchain;
+import com.velopayments.blockchain.sdk.store.ArtifactTransactionIndex;
+import com.velopayments.blockchain.sdk.store.LocalBlockStoreBlockchain;
 import lombok.RequiredArgsConstructor;
 
 import java.util.*;
+import java.util.stream.Stream;
 
 import static com.velopayments.blockchain.cert.CertificateType.ROOT_BLOCK;
 import static com.velopayments.blockchain.sdk.BlockchainUtils.INITIAL_TRANSACTION_UUID;
@@ -17,8 +22,26 @@ import static com.velopayments.blockchain.sdk.BlockchainUtils.INITIAL_TRANSACTIO
 @RequiredArgsConstructor
 public class BlockchainSentinelHelper {
 
+    public static final int DEFAULT_MAX_BLOCK_HEIGHTS = 100_000;
+
     private final BlockchainOperations blockchain;
 
+    // the transactions of each artifact, or null to walk each artifact's transactions on the blockchain
+    private final ArtifactTransactionIndex artifactIndex;
+
+    // the heights of the blocks seen, so that comparing heights doesn't need each block to be found and read
+    private final BlockHeightCache blockHeights;
+
+    /**
+     * Uses the artifact index of a {@link LocalBlockStoreBlockchain} and the block heights of a
+     * {@link CachingBlockchain}, if that is what the blockchain is
+     */
+    public BlockchainSentinelHelper(BlockchainOperations blockchain) {
+        this(blockchain,
+            blockchain instanceof LocalBlockStoreBlockchain ? ((LocalBlockStoreBlockchain) blockchain).getArtifactIndex() : null,
+            blockchain instanceof CachingBlockchain ? ((CachingBlockchain) blockchain).getBlockHeightCache() : new BlockHeightCache(DEFAULT_MAX_BLOCK_HEIGHTS));
+    }
+
     public QueryResult<List<TransactionReader>> findTransactionsForArtifact(UUID artifactId) {
         return findTransactionsForArtifact(artifactId, null);
     }
@@ -34,18 +57,33 @@ public class BlockchainSentinelHelper {
         UUID latestBlockId = untilBlockId == null ? blockchain.getLatestBlockId() : untilBlockId;
         long maxBlockHeightForQuery = getBlockHeight(latestBlockId);
 
+        Optional<List<UUID>> indexed = artifactIndex == null ? Optional.empty()
+            : artifactIndex.findTransactionIds(artifactId, maxBlockHeightForQuery);
+        if (indexed.isPresent()) {
+            return QueryResult.<List<TransactionReader>>builder()
+                .result(findTransactions(indexed.get()))
+                .latestBlockId(latestBlockId)
+                .build();
+        }
+
         List<TransactionReader> transactions = new ArrayList<>();
 
         Optional<UUID> lastTransactionId = blockchain.findLastTransactionIdForArtifactById(artifactId);
         if (lastTransactionId.isPresent()) {
             UUID transactionId = lastTransactionId.get();
+            // a transaction is never in an earlier block than its previous transaction, so once one transaction is
+            // within the query all the preceding transactions are too
+            boolean withinQuery = false;
             while (true) {
-                long blockHeight = blockchain.findTransactionBlockId(transactionId)
-                    .map(this::getBlockHeight)
-                    .orElseThrow(() ->  new BlockchainException("Block for transaction id: " + lastTransactionId.get() + " not found"));
+                if (!withinQuery) {
+                    long blockHeight = blockchain.findTransactionBlockId(transactionId)
+                        .map(this::getBlockHeight)
+                        .orElseThrow(() ->  new BlockchainException("Block for transaction id: " + lastTransactionId.get() + " not found"));
+                    withinQuery = blockHeight <= maxBlockHeightForQuery;
+                }
 
                 final UUID previousTxId;
-                if (blockHeight > maxBlockHeightForQuery) {
+                if (!withinQuery) {
                     //ignore this transaction - it is too recent
                     Optional<UUID> prev = blockchain.findPreviousTransactionIdForTransactionById(transactionId);
                     if (prev.isPresent()) {
@@ -78,12 +116,35 @@ public class BlockchainSentinelHelper {
             .build();
     }
 
+    /**
+     * Find transactions together, in the order of their ids
+     */
+    private List<TransactionReader> findTransactions(List<UUID> transactionIds) {
+        if (transactionIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<TransactionReader> transactions = new ArrayList<>(transactionIds.size());
+        Iterator<UUID> ids = transactionIds.iterator();
+        try (Stream<Optional<TransactionReader>> found = blockchain.findTransactionsByIds(transactionIds)) {
+            found.forEach(transaction -> {
+                UUID transactionId = ids.next();
+                transactions.add(transaction.orElseThrow(() -> new BlockchainException("Transaction for id: " + transactionId + " not found")));
+            });
+        }
+        return transactions;
+    }
+
     private long getBlockHeight(UUID blockId) {
         if (blockId.equals(ROOT_BLOCK)) {
             return 0;
         }
-        //TODO source this from the cache
+        OptionalLong cached = blockHeights.findHeight(blockId);
+        if (cached.isPresent()) {
+            return cached.getAsLong();
+        }
         BlockReader blockReader = blockchain.findBlockById(blockId).orElseThrow(() -> new BlockchainException("Couldn't find block " + blockId));
-        return blockReader.getBlockHeight();
+        long blockHeight = blockReader.getBlockHeightAsLong();
+        blockHeights.put(blockId, blockHeight);
+        return blockHeight;
     }
 }
@@ -0,0 +1,88 @@
+package com.velopayments.blockchain.sdk.sentinel;
+
+import com.velopayments.blockchain.sdk.BlockReader;
+import com.velopayments.blockchain.sdk.TransactionHeader;
+import com.velopayments.blockchain.sdk.sentinel.criteria.CriteriaMatcher;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * An index of registrations by the ids their criteria select on, so that a block's transactions are looked up once
+ * rather than every registration scanning the block.
+ * <p>
+ * The index only narrows the registrations down to those which may be triggered by a block. The registration's
+ * criteria are still evaluated in full before its sentinel is notified.
+ */
+class CriteriaIndex {
+
+    private final Map<UUID, Set<RegistrationHandleImpl>> byArtifactId = new HashMap<>();
+    private final Map<UUID, Set<RegistrationHandleImpl>> byArtifactType = new HashMap<>();
+    private final Map<UUID, Set<RegistrationHandleImpl>> byTransactionType = new HashMap<>();
+    private final Set<RegistrationHandleImpl> everyBlock = new HashSet<>();
+    private final Map<RegistrationHandleImpl, CriteriaMatcher> indexed = new HashMap<>();
+
+    synchronized void put(RegistrationHandleImpl handle, CriteriaMatcher matcher) {
+        remove(handle);
+        indexed.put(handle, matcher);
+        if (matcher.matchesEveryBlock()) {
+            everyBlock.add(handle);
+        } else {
+            matcher.forEachKey((selector, key) -> index(selector).computeIfAbsent(key, k -> new HashSet<>()).add(handle));
+        }
+    }
+
+    synchronized void remove(RegistrationHandleImpl handle) {
+        CriteriaMatcher matcher = indexed.remove(handle);
+        if (matcher == null) {
+            return;
+        }
+        if (matcher.matchesEveryBlock()) {
+            everyBlock.remove(handle);
+        } else {
+            matcher.forEachKey((selector, key) -> remove(index(selector), key, handle));
+        }
+    }
+
+    private Map<UUID, Set<RegistrationHandleImpl>> index(CriteriaMatcher.Selector selector) {
+        switch (selector) {
+            case ARTIFACT_ID:
+                return byArtifactId;
+            case ARTIFACT_TYPE:
+                return byArtifactType;
+            default:
+                return byTransactionType;
+        }
+    }
+
+    /**
+     * @return the registrations which may be triggered by the block
+     */
+    synchronized Set<RegistrationHandleImpl> candidates(BlockReader blockReader) {
+        Set<RegistrationHandleImpl> candidates = new HashSet<>(everyBlock);
+        for (TransactionHeader tx : blockReader.getTransactionHeaders()) {
+            candidates.addAll(lookup(byArtifactId, tx.getArtifactId()));
+            candidates.addAll(lookup(byArtifactType, tx.getArtifactType()));
+            candidates.addAll(lookup(byTransactionType, tx.getTransactionType()));
+        }
+        return candidates;
+    }
+
+    private static void remove(Map<UUID, Set<RegistrationHandleImpl>> index, UUID key, RegistrationHandleImpl handle) {
+        Set<RegistrationHandleImpl> handles = index.get(key);
+        if (handles != null && handles.remove(handle) && handles.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static Set<RegistrationHandleImpl> lookup(Map<UUID, Set<RegistrationHandleImpl>> index, UUID key) {
+        if (key == null) {
+            return Collections.emptySet();
+        }
+        return index.getOrDefault(key, Collections.emptySet());
+    }
+}
@@ -0,0 +1,23 @@
+package com.velopayments.blockchain.sdk.sentinel;
+
+/**
+ * What to do with a block when a sentinel's mailbox is full
+ */
+public enum MailboxOverflowPolicy {
+
+    /**
+     * Wait for the sentinel to make room, holding up the dispatch of further blocks to every sentinel
+     */
+    BLOCK,
+
+    /**
+     * Skip the block for this sentinel only
+     */
+    DROP,
+
+    /**
+     * Skip the block and every later one for this sentinel until it is resumed with {@link RegistrationHandleImpl#resume()},
+     * which replays the blocks skipped
+     */
+    PAUSE
+}
@@ -0,0 +1,47 @@
+package com.velopayments.blockchain.sdk.sentinel;
+
+import lombok.Data;
+
+/**
+ * A snapshot of the blocks queued for a sentinel and how far behind it is
+ */
+@Data
+public class MailboxStats {
+
+    /**
+     * The number of blocks waiting to be handled
+     */
+    private final int size;
+    private final int capacity;
+
+    /**
+     * The number of blocks the sentinel has handled
+     */
+    private final long delivered;
+
+    /**
+     * The number of blocks skipped because the mailbox was full or paused
+     */
+    private final long dropped;
+    private final boolean paused;
+
+    /**
+     * The height of the latest block dispatched to the sentinel, or -1 if there has been none
+     */
+    private final long dispatchedHeight;
+
+    /**
+     * The height of the latest block the sentinel has handled, or -1 if there has been none
+     */
+    private final long handledHeight;
+
+    /**
+     * The number of blocks the sentinel is behind the dispatcher, counting from the oldest block it has yet to finish
+     */
+    private final long lag;
+
+    /**
+     * How long the oldest block the sentinel has yet to finish has been queued, or zero if there is none
+     */
+    private final long oldestQueuedMillis;
+}
@@ -2,13 +2,12 @@ package com.velopayments.blockchain.sdk.sentinel;
 
 import com.velopayments.blockchain.sdk.BlockReader;
 import com.velopayments.blockchain.sdk.BlockchainOperations;
-import com.velopayments.blockchain.sdk.TransactionReader;
 import com.velopayments.blockchain.sdk.sentinel.criteria.Criteria;
+import com.velopayments.blockchain.sdk.sentinel.criteria.CriteriaMatcher;
 import lombok.Getter;
 
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 
 import static com.velopayments.blockchain.cert.CertificateType.ROOT_BLOCK;
 
@@ -33,6 +32,14 @@ public class RegistrationHandleImpl implements RegistrationHandle {
 
     private Criteria criteria;
 
+    // the criteria compiled for evaluation, null until first needed
+    private CriteriaMatcher matcher;
+
+    private SentinelMailbox mailbox;
+
+    // true while the sentinel is being replayed apart from the others, so it is left out of the live blocks
+    private volatile boolean replaying;
+
     public RegistrationHandleImpl(String name,
                                   Sentinel sentinel,
                                   SentinelRegistry sentinelNotificationRegistry,
@@ -56,7 +63,7 @@ public class RegistrationHandleImpl implements RegistrationHandle {
     }
 
     @Override
-    public synchronized void cancel() {
+    public void cancel() {
         this.sentinelNotificationRegistry.remove(this.name);
     }
 
@@ -70,6 +77,8 @@ public class RegistrationHandleImpl implements RegistrationHandle {
 
     public synchronized void setCriteria(Criteria criteria) {
         this.criteria = criteria;
+        this.matcher = null;
+        this.sentinelNotificationRegistry.criteriaChanged(this, getMatcher());
     }
 
     public synchronized RegistrationStatus getRegistrationStatus() {
@@ -80,44 +89,55 @@ public class RegistrationHandleImpl implements RegistrationHandle {
         this.status = status;
     }
 
-    public boolean isTriggeredBy(BlockReader blockReader) {
-        //check for changes to a particular artifact
-        if (this.criteria.getArtifactId() != null) {
-            for (TransactionReader tx : blockReader.getTransactions()) {
-                return this.criteria.getArtifactId().equals(tx.getArtifactId());
-            }
-        }
+    synchronized SentinelMailbox getMailbox() {
+        return this.mailbox;
+    }
 
-        //check for changes based on artifact type id
-        if (this.criteria.getArtifactTypeId() != null) {
-            for (TransactionReader tx : blockReader.getTransactions()) {
-                return this.criteria.getArtifactTypeId().equals(tx.getArtifactType());
-            }
-        }
+    synchronized void setMailbox(SentinelMailbox mailbox) {
+        this.mailbox = mailbox;
+    }
 
-        //check for changes based on a transaction type
-        if (this.criteria.getTransactionType() != null) {
-            for (TransactionReader tx : blockReader.getTransactions()) {
-                return this.criteria.getTransactionType().equals(tx.getTransactionType());
-            }
-        }
+    boolean isReplaying() {
+        return this.replaying;
+    }
 
-        if (this.criteria.getArtifactIdAndState() != null) {
-            //get the latest transaction for the artifact and compare the state to the criteria state
-            for (TransactionReader tx : blockReader.getTransactions()) {
-                if (this.criteria.getArtifactIdAndState().getArtifactId().equals(tx.getArtifactId())) {
-                    //if the transaction contains a different tate for this artifact, let's trigger.
-                    return this.blockchain.findTransactionById(tx.getTransactionId())
-                        .flatMap(r -> Optional.ofNullable(r.getNewArtifactState()))
-                        .filter(s -> !s.equals(this.criteria.getArtifactIdAndState().getState()))
-                        .isPresent();
-                }
-            }
-            return false;   //didn't find a match or state change
-        }
+    void setReplaying(boolean replaying) {
+        this.replaying = replaying;
+    }
 
-        //because latestBlockId is mandatory in the criteria and the offset log protects us from duplicate notifications, we must return true here
-        return true;
+    public MailboxStats getMailboxStats() {
+        return getMailbox().stats();
+    }
+
+    /**
+     * Stop queueing blocks for the sentinel. Blocks dispatched while paused are skipped.
+     */
+    public void pause() {
+        getMailbox().pause();
+    }
+
+    /**
+     * Queue blocks for the sentinel again, after pausing it or after the mailbox overflowed with the
+     * {@link MailboxOverflowPolicy#PAUSE} policy. The blocks skipped while paused are replayed to the sentinel if the
+     * registry is fed by a {@link SentinelPollerTask} which can replay sentinels, otherwise they are lost.
+     */
+    public void resume() {
+        this.sentinelNotificationRegistry.resume(this);
+    }
+
+    public boolean isPaused() {
+        return getMailbox().isPaused();
+    }
+
+    public boolean isTriggeredBy(BlockReader blockReader) {
+        return getMatcher().isTriggeredBy(blockReader);
+    }
+
+    synchronized CriteriaMatcher getMatcher() {
+        if (this.matcher == null) {
+            this.matcher = CriteriaMatcher.compile(this.criteria);
+        }
+        return this.matcher;
     }
 
     public static class RegistrationHandleImplBuilder {
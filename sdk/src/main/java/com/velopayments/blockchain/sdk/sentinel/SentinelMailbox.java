@@ -0,0 +1,231 @@
+package com.velopayments.blockchain.sdk.sentinel;
+
+import com.velopayments.blockchain.sdk.BlockReader;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A bounded queue of blocks for one sentinel, handled in order by a thread of its own
+ */
+@Slf4j
+class SentinelMailbox {
+
+    private static final CompletableFuture<Void> SKIPPED = CompletableFuture.completedFuture(null);
+    private static final Delivery CLOSED = new Delivery(null, -1); // wakes the thread waiting for a block on close
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private final String name;
+    private final BlockingQueue<Delivery> queue;
+    private final int capacity;
+    private final MailboxOverflowPolicy overflowPolicy;
+    private final Consumer<BlockReader> handler;
+    private final Consumer<BlockReader> pausedAt;
+    private final Thread thread;
+
+    private final AtomicInteger outstanding = new AtomicInteger(); // queued or being handled
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long dispatchedHeight = -1;
+    private volatile long handledHeight = -1;
+    private volatile Delivery handling;
+    private volatile boolean paused;
+    private volatile long pausedHeight = -1; // the height of the block before the first one skipped while paused
+    private volatile boolean closed;
+
+    /**
+     * @param handler notifies the sentinel of a block
+     * @param pausedAt given the first block skipped after the mailbox is paused
+     */
+    SentinelMailbox(String name, int capacity, MailboxOverflowPolicy overflowPolicy, ThreadFactory threadFactory,
+                    Consumer<BlockReader> handler, Consumer<BlockReader> pausedAt) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Mailbox capacity must be at least 1: " + capacity);
+        }
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.handler = handler;
+        this.pausedAt = pausedAt;
+        this.thread = threadFactory.newThread(this::run);
+        this.thread.setName("sentinel-" + name);
+        this.thread.start();
+    }
+
+    /**
+     * Queue a block, applying the overflow policy if the mailbox is full
+     *
+     * @return completes once the sentinel has handled the block, or at once if the block is skipped
+     */
+    CompletableFuture<Void> offer(BlockReader blockReader) {
+        Delivery delivery = new Delivery(blockReader, blockReader.getBlockHeightAsLong());
+        dispatchedHeight = delivery.height;
+        if (closed) {
+            return SKIPPED;
+        }
+        if (paused) {
+            return skipPaused(delivery);
+        }
+        outstanding.incrementAndGet();
+        if (!queue.offer(delivery)) {
+            switch (overflowPolicy) {
+                case BLOCK:
+                    try {
+                        queue.put(delivery);
+                    } catch (InterruptedException e) {
+                        outstanding.decrementAndGet();
+                        Thread.currentThread().interrupt();
+                        throw new SentinelException("Interrupted queueing block " + delivery.height + " for sentinel " + name, e);
+                    }
+                    break;
+                case PAUSE:
+                    log.warn("Mailbox of sentinel {} is full at block {}, pausing it", name, delivery.height);
+                    paused = true;
+                    outstanding.decrementAndGet();
+                    return skipPaused(delivery);
+                default:
+                    log.warn("Mailbox of sentinel {} is full, dropping block {}", name, delivery.height);
+                    outstanding.decrementAndGet();
+                    return skip(delivery);
+            }
+        }
+        if (closed) {
+            acknowledgeQueued(); // lost the race with close
+        }
+        return delivery.acknowledged;
+    }
+
+    void pause() {
+        paused = true;
+    }
+
+    void resume() {
+        paused = false;
+        pausedHeight = -1;
+    }
+
+    boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * @return the height of the last block given to the sentinel before it was paused, or -1 if no block has been
+     * skipped since
+     */
+    long getPausedHeight() {
+        return pausedHeight;
+    }
+
+    /**
+     * @return true if blocks are queued or being handled, so the sentinel's criteria may yet change
+     */
+    boolean isBusy() {
+        return outstanding.get() > 0;
+    }
+
+    MailboxStats stats() {
+        Delivery oldest = handling;
+        if (oldest == null) {
+            oldest = queue.peek();
+        }
+        long lag = oldest == null ? 0 : dispatchedHeight - oldest.height + 1;
+        long oldestQueuedMillis = oldest == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest.queuedAt);
+        return new MailboxStats(queue.size(), capacity, delivered.get(), dropped.get(), paused,
+            dispatchedHeight, handledHeight, lag, oldestQueuedMillis);
+    }
+
+    /**
+     * Stop handling blocks. Blocks still queued are acknowledged without being handled, while a block being handled is
+     * waited for, and only interrupted if the sentinel takes longer than the timeout.
+     */
+    void close() {
+        closed = true;
+        acknowledgeQueued();
+        if (Thread.currentThread() == thread) {
+            return;
+        }
+        if (!queue.offer(CLOSED)) {
+            thread.interrupt();
+        }
+        try {
+            thread.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            log.warn("Sentinel {} didn't finish handling block {} in time, interrupting it", name, handledHeight + 1);
+            thread.interrupt();
+        }
+    }
+
+    private CompletableFuture<Void> skip(Delivery delivery) {
+        dropped.incrementAndGet();
+        return SKIPPED;
+    }
+
+    private CompletableFuture<Void> skipPaused(Delivery delivery) {
+        if (pausedHeight < 0) {
+            pausedHeight = delivery.height - 1;
+            pausedAt.accept(delivery.blockReader);
+        }
+        return skip(delivery);
+    }
+
+    private void run() {
+        while (!closed) {
+            Delivery delivery;
+            try {
+                delivery = queue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (delivery == CLOSED) {
+                break;
+            }
+            handling = delivery;
+            try {
+                handler.accept(delivery.blockReader);
+            } catch (RuntimeException e) {
+                log.error("Error notifying sentinel " + name + " of block " + delivery.height, e);
+            } finally {
+                handledHeight = delivery.height;
+                handling = null;
+                delivered.incrementAndGet();
+                outstanding.decrementAndGet();
+                delivery.acknowledged.complete(null);
+            }
+        }
+        acknowledgeQueued();
+    }
+
+    private void acknowledgeQueued() {
+        Delivery delivery;
+        while ((delivery = queue.poll()) != null) {
+            if (delivery == CLOSED) {
+                continue;
+            }
+            outstanding.decrementAndGet();
+            delivery.acknowledged.complete(null);
+        }
+    }
+
+    private static class Delivery {
+        private final BlockReader blockReader;
+        private final long height;
+        private final long queuedAt = System.nanoTime();
+        private final CompletableFuture<Void> acknowledged = new CompletableFuture<>();
+
+        Delivery(BlockReader blockReader, long height) {
+            this.blockReader = blockReader;
+            this.height = height;
+        }
+    }
+}
@@ -4,61 +4,461 @@ import com.velopayments.blockchain.cert.CertificateType;
 import com.velopayments.blockchain.sdk.BlockReader;
 import com.velopayments.blockchain.sdk.BlockchainException;
 import com.velopayments.blockchain.sdk.BlockchainOperations;
+import com.velopayments.blockchain.sdk.sentinel.offsetstore.BlockOffset;
 import com.velopayments.blockchain.sdk.sentinel.offsetstore.OffsetStore;
+import com.velopayments.blockchain.sdk.sentinel.offsetstore.SentinelOffsetStore;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Feeds new blocks to the {@link SentinelRegistry} through a pipeline of stages.
+ * <ol>
+ *     <li>the blocks after the high water mark are fetched with read-ahead by the blockchain</li>
+ *     <li>each block's transaction headers are decoded on the decode executor, several blocks at a time</li>
+ *     <li>the decoded blocks are dispatched in height order to the registry, which queues them for each sentinel</li>
+ *     <li>a block's offset is recorded once every sentinel has handled it, and only after the blocks before it</li>
+ * </ol>
+ * At most {@code maxBlocksInFlight} blocks are being decoded, and at most as many are awaiting the sentinels.
+ * <p>
+ * A sentinel behind the others, because it was {@link #replay(String, long) replayed} or because its offset was left
+ * behind when the container stopped, catches up on the replay executor with blocks fetched apart from the live tail.
+ * The sentinels being replayed share one fetch of the blocks from the lowest of their offsets, each taking the blocks
+ * after its own. Once a sentinel has been given the block at the live tail it rejoins the others, and its offset is
+ * forgotten once it has handled the blocks replayed to it. Replays need a {@link SentinelOffsetStore}, which keeps the
+ * offsets of the sentinels being replayed.
+ * <p>
+ * With a {@link SentinelOffsetStore}, a paused sentinel's offset is kept at the block before the first one it skipped,
+ * and the blocks it skipped are replayed to it once it is resumed.
+ * <p>
+ * Unless a replay executor is given, the task runs the replays on a thread of its own, which {@link #stop()} ends.
+ */
 @Slf4j
 public class SentinelPollerTask {
 
+    public static final int DEFAULT_MAX_BLOCKS_IN_FLIGHT = 32;
+
     private final BlockchainOperations blockchain;
     private final OffsetStore offsetStore;
+    private final SentinelOffsetStore sentinelOffsetStore; // the offset store, or null if it can't keep sentinels' offsets
     private final SentinelRegistry sentinelRegistry;
+    private final Executor decodeExecutor;
+    private final int maxBlocksInFlight;
+    private final Executor replayExecutor;
+    private final ExecutorService ownReplayExecutor; // created by this task, or null if the replay executor was given
+
+    private final Object liveTail = new Object(); // held while dispatching live blocks or rejoining replayed sentinels
+    private final Map<String, Replay> replays = new ConcurrentHashMap<>();
+    private final Set<String> knownRegistrations = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean replayScheduled = new AtomicBoolean();
 
-    private UUID highWaterMark;
+    private volatile boolean stopped;
+    private volatile UUID highWaterMark;
+    private volatile long liveHeight; // the height of the latest block dispatched to the live tail
 
     public SentinelPollerTask(BlockchainOperations blockchain, OffsetStore offsetStore, SentinelRegistry sentinelRegistry) {
+        this(blockchain, offsetStore, sentinelRegistry, ForkJoinPool.commonPool(), DEFAULT_MAX_BLOCKS_IN_FLIGHT);
+    }
+
+    public SentinelPollerTask(BlockchainOperations blockchain, OffsetStore offsetStore, SentinelRegistry sentinelRegistry,
+                              Executor decodeExecutor, int maxBlocksInFlight) {
+        this(blockchain, offsetStore, sentinelRegistry, decodeExecutor, maxBlocksInFlight,
+            Executors.newSingleThreadExecutor(SentinelPollerTask::replayThread), true);
+    }
+
+    /**
+     * @param replayExecutor runs the replays of sentinels behind the others
+     */
+    public SentinelPollerTask(BlockchainOperations blockchain, OffsetStore offsetStore, SentinelRegistry sentinelRegistry,
+                              Executor decodeExecutor, int maxBlocksInFlight, Executor replayExecutor) {
+        this(blockchain, offsetStore, sentinelRegistry, decodeExecutor, maxBlocksInFlight, replayExecutor, false);
+    }
+
+    private SentinelPollerTask(BlockchainOperations blockchain, OffsetStore offsetStore, SentinelRegistry sentinelRegistry,
+                               Executor decodeExecutor, int maxBlocksInFlight, Executor replayExecutor, boolean ownReplayExecutor) {
+        if (maxBlocksInFlight < 1) {
+            throw new IllegalArgumentException("maxBlocksInFlight must be at least 1: " + maxBlocksInFlight);
+        }
         this.blockchain = requireNonNull(blockchain);
         this.offsetStore =  requireNonNull(offsetStore);
+        this.sentinelOffsetStore = offsetStore instanceof SentinelOffsetStore ? (SentinelOffsetStore) offsetStore : null;
         this.sentinelRegistry =  requireNonNull(sentinelRegistry);
+        this.decodeExecutor = requireNonNull(decodeExecutor);
+        this.maxBlocksInFlight = maxBlocksInFlight;
+        this.replayExecutor = requireNonNull(replayExecutor);
+        this.ownReplayExecutor = ownReplayExecutor ? (ExecutorService) replayExecutor : null;
+        if (sentinelOffsetStore != null) {
+            sentinelRegistry.setPauseHandler(new SentinelRegistry.PauseHandler() {
+                @Override
+                public void paused(String name, BlockReader firstSkipped) {
+                    recordPaused(name, firstSkipped);
+                }
+
+                @Override
+                public void resume(String name, long fromHeight, Runnable resumeMailbox) {
+                    resumePaused(name, fromHeight, resumeMailbox);
+                }
+            });
+        }
 
         // process the last block recorded.  Any transactions that have already been processed will not be reprocessed.
         UUID lastBlockId = offsetStore.initialize().getBlockId();
         if (!CertificateType.ROOT_BLOCK.equals(lastBlockId)) {
             BlockReader blockReader = blockchain.findBlockById(lastBlockId)
                 .orElseThrow(() -> new BlockchainException("Couldn't find block: " + lastBlockId));
-            processBlock(blockReader);
+            commit(dispatch(decode(blockReader)));
         }
         else {
             highWaterMark = CertificateType.ROOT_BLOCK;
         }
     }
 
-    UUID currentHighWaterMark(){
+    private static Thread replayThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "sentinel-replay");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Stop replaying sentinels, waiting for a replay in progress to finish. The offsets of blocks replayed but not yet
+     * handled are no longer recorded, so those blocks are replayed again after a restart. A replay executor given to
+     * the task is left running.
+     */
+    public void stop() {
+        stopped = true;
+        if (ownReplayExecutor == null) {
+            return;
+        }
+        ownReplayExecutor.shutdown();
+        try {
+            if (!ownReplayExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.warn("Replay of sentinels {} didn't stop in time, interrupting it", replays.keySet());
+                ownReplayExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            ownReplayExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the id of the latest block processed
+     */
+    public UUID currentHighWaterMark(){
         return highWaterMark;
     }
 
-    public void processLatestBlocks() {
-        blockchain.findAllBlocksAfter(highWaterMark).forEach(this::processBlock);
+    /**
+     * Process the blocks after the high water mark
+     *
+     * @return the number of blocks found
+     */
+    public int processLatestBlocks() {
+        findLaggingSentinels();
+        int found = 0;
+        Deque<CompletableFuture<BlockReader>> decoding = new ArrayDeque<>();
+        Deque<DispatchedBlock> dispatched = new ArrayDeque<>();
+        try (Stream<BlockReader> blocks = blockchain.findAllBlocksAfter(highWaterMark)) {
+            Iterator<BlockReader> fetched = blocks.iterator();
+            while (fetched.hasNext() || !decoding.isEmpty()) {
+                while (fetched.hasNext() && decoding.size() < maxBlocksInFlight) {
+                    BlockReader blockReader = fetched.next();
+                    found++;
+                    decoding.add(CompletableFuture.supplyAsync(() -> decode(blockReader), decodeExecutor));
+                }
+                dispatched.add(dispatch(decoding.remove().join()));
+                commitAcknowledged(dispatched);
+            }
+        } finally {
+            decoding.forEach(block -> block.cancel(false));
+            while (!dispatched.isEmpty()) {
+                commit(dispatched.remove());
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Decode everything the sentinels' criteria are evaluated against, so it is done off the dispatching thread
+     */
+    private static BlockReader decode(BlockReader blockReader) {
+        blockReader.getBlockId();
+        blockReader.getBlockHeightAsLong();
+        blockReader.getTransactionHeaders();
+        return blockReader;
     }
 
-    private void processBlock(BlockReader blockReader) {
+    private DispatchedBlock dispatch(BlockReader blockReader) {
         UUID blockId = blockReader.getBlockId();
-        long blockHeight = blockReader.getBlockHeight();
+        long blockHeight = blockReader.getBlockHeightAsLong();
 
         //let the SentinelRegistry know about the new block
-        if (!offsetStore.isBlockProcessed(blockHeight)) {
+        synchronized (liveTail) {
+            liveHeight = blockHeight;
+            if (offsetStore.isBlockProcessed(blockHeight)) {
+                return new DispatchedBlock(blockId, blockHeight, null);
+            }
             log.info("notifying block height {} - {}", blockId, blockHeight);
+            CompletableFuture<Void> acknowledged;
             try {
-                sentinelRegistry.notifyBlock(blockReader);
-            } catch (RuntimeException e) { // retry logic is out of scope for now
-                log.error("Error notifying sentinels of new blocks", e);
+                acknowledged = sentinelRegistry.dispatchBlock(blockReader);
+            } catch (RuntimeException e) {
+                acknowledged = CompletableFuture.failedFuture(e);
             }
-            offsetStore.recordBlock(blockId, blockHeight);
+            return new DispatchedBlock(blockId, blockHeight, acknowledged);
+        }
+    }
+
+    /**
+     * Record the offsets of the blocks every sentinel has handled, stopping at the first still being handled. Once the
+     * window of blocks awaiting the sentinels is full, wait for the oldest.
+     */
+    private void commitAcknowledged(Deque<DispatchedBlock> dispatched) {
+        while (!dispatched.isEmpty() && (dispatched.peek().isAcknowledged() || dispatched.size() > maxBlocksInFlight)) {
+            commit(dispatched.remove());
+        }
+    }
+
+    private void commit(DispatchedBlock block) {
+        if (block.acknowledged != null) {
+            try {
+                block.acknowledged.join();
+            } catch (CompletionException e) { // retry logic is out of scope for now
+                log.error("Error notifying sentinels of new blocks", e.getCause());
+            }
+            offsetStore.recordBlock(block.blockId, block.blockHeight);
+        }
+        highWaterMark = block.blockId;
+    }
+
+    /**
+     * Replay blocks to one sentinel apart from the others, from the given height up to the live tail, after which it
+     * rejoins the others. The sentinel's offset is recorded as the replay goes, so a replay carries on after a restart.
+     *
+     * @param name the registration name of the sentinel
+     * @param fromHeight the height of the first block to replay
+     * @throws SentinelException if the offset store can't keep the offsets of sentinels being replayed
+     */
+    public void replay(String name, long fromHeight) {
+        if (sentinelOffsetStore == null) {
+            throw new SentinelException("Sentinels can't be replayed, as " + offsetStore.getClass().getSimpleName()
+                + " doesn't keep offsets per sentinel");
+        }
+        if (sentinelRegistry.getRegistration(name) == null) {
+            throw new SentinelException("No sentinel is registered as " + name);
+        }
+        if (fromHeight < 1) {
+            throw new IllegalArgumentException("fromHeight must be at least 1: " + fromHeight);
+        }
+        long offset = fromHeight - 1;
+        UUID blockId = offset == 0 ? CertificateType.ROOT_BLOCK : blockchain.findBlockIdByBlockHeight(offset)
+            .orElseThrow(() -> new BlockchainException("Couldn't find block at height " + offset));
+        sentinelOffsetStore.recordBlock(name, blockId, offset);
+        knownRegistrations.add(name);
+        startReplay(name, offset);
+        scheduleReplay();
+    }
+
+    private void recordPaused(String name, BlockReader firstSkipped) {
+        long offset = firstSkipped.getBlockHeightAsLong() - 1;
+        log.info("Sentinel {} paused after block height {}", name, offset);
+        sentinelOffsetStore.recordBlock(name, firstSkipped.getPreviousBlockId(), offset);
+    }
+
+    /**
+     * Replay the blocks a paused sentinel skipped, leaving it out of the live blocks before its mailbox is resumed so
+     * it is given none ahead of them
+     */
+    private void resumePaused(String name, long fromHeight, Runnable resumeMailbox) {
+        knownRegistrations.add(name);
+        synchronized (liveTail) {
+            startReplay(name, fromHeight - 1);
+            resumeMailbox.run();
+        }
+        scheduleReplay();
+    }
+
+    /**
+     * Start replaying the sentinels registered since the last poll whose offsets were left behind the live tail
+     */
+    private void findLaggingSentinels() {
+        if (sentinelOffsetStore == null) {
+            return;
+        }
+        Map<String, BlockOffset> offsets = null;
+        for (String name : sentinelRegistry.getRegistrationNames()) {
+            if (knownRegistrations.add(name)) {
+                if (offsets == null) {
+                    offsets = sentinelOffsetStore.getSentinelOffsets();
+                }
+                BlockOffset offset = offsets.get(name);
+                if (offset != null && offset.getBlockHeight() < liveHeight) {
+                    startReplay(name, offset.getBlockHeight());
+                } else if (offset != null) {
+                    sentinelOffsetStore.removeSentinelOffset(name);
+                }
+            }
+        }
+        if (!replays.isEmpty()) {
+            scheduleReplay();
+        }
+    }
+
+    private void startReplay(String name, long offset) {
+        log.info("Replaying sentinel {} from block height {}", name, offset + 1);
+        synchronized (liveTail) {
+            RegistrationHandleImpl handle = sentinelRegistry.getRegistration(name);
+            if (handle != null) {
+                handle.setReplaying(true);
+                replays.put(name, new Replay(offset));
+            }
+        }
+    }
+
+    private void scheduleReplay() {
+        if (!stopped && replayScheduled.compareAndSet(false, true)) {
+            try {
+                replayExecutor.execute(this::runReplays);
+            } catch (RejectedExecutionException e) {
+                replayScheduled.set(false);
+                log.warn("Couldn't schedule the replay of sentinels {}", replays.keySet(), e);
+            }
+        }
+    }
+
+    private void runReplays() {
+        try {
+            boolean progressed = true;
+            while (progressed && !stopped && !replays.isEmpty()) {
+                progressed = replayPass();
+            }
+        } catch (RuntimeException e) { // the replay is retried after the next poll
+            log.error("Error replaying blocks to sentinels " + replays.keySet(), e);
+        } finally {
+            replayScheduled.set(false);
+        }
+    }
+
+    /**
+     * Fetch the blocks from the lowest replay offset up to the live tail, giving each to the sentinels it is next for
+     *
+     * @return true if any sentinel was given a block or rejoined the live tail
+     */
+    private boolean replayPass() {
+        long from = replays.values().stream().mapToLong(replay -> replay.delivered).min().orElse(Long.MAX_VALUE - 1) + 1;
+        long to = liveHeight;
+        boolean progressed = false;
+        if (from <= to) {
+            try (Stream<BlockReader> blocks = blockchain.findBlocksByHeightRange(from, to, true)) {
+                Iterator<BlockReader> fetched = blocks.iterator();
+                while (!stopped && fetched.hasNext()) {
+                    progressed |= replayBlock(decode(fetched.next()));
+                }
+            }
+        }
+        return rejoinLiveTail() || progressed;
+    }
+
+    private boolean replayBlock(BlockReader blockReader) {
+        UUID blockId = blockReader.getBlockId();
+        long blockHeight = blockReader.getBlockHeightAsLong();
+        boolean replayed = false;
+        for (Map.Entry<String, Replay> entry : replays.entrySet()) {
+            Replay replay = entry.getValue();
+            if (replay.delivered == blockHeight - 1) {
+                String name = entry.getKey();
+                replay.handled = sentinelRegistry.replayBlock(name, blockReader)
+                    .thenRun(() -> recordReplayed(name, blockId, blockHeight));
+                replay.delivered = blockHeight;
+                replayed = true;
+            }
+        }
+        return replayed;
+    }
+
+    private void recordReplayed(String name, UUID blockId, long blockHeight) {
+        // once stopped, the registry acknowledges the blocks still queued without handling them, and a paused sentinel's
+        // offset is kept where it paused
+        if (!stopped && !isPaused(name)) {
+            sentinelOffsetStore.recordBlock(name, blockId, blockHeight);
+        }
+    }
+
+    /**
+     * Return the sentinels which have been given the block at the live tail to the live tail. Blocks after it are
+     * dispatched to them with the others, as live blocks are dispatched holding the same lock.
+     */
+    private boolean rejoinLiveTail() {
+        boolean rejoined = false;
+        synchronized (liveTail) {
+            for (Iterator<Map.Entry<String, Replay>> it = replays.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, Replay> entry = it.next();
+                String name = entry.getKey();
+                Replay replay = entry.getValue();
+                RegistrationHandleImpl handle = sentinelRegistry.getRegistration(name);
+                if (handle == null) {
+                    it.remove(); // cancelled while being replayed
+                } else if (replay.delivered >= liveHeight) {
+                    it.remove();
+                    handle.setReplaying(false);
+                    rejoined = true;
+                    log.info("Sentinel {} caught up at block height {}", name, replay.delivered);
+                    replay.handled.whenComplete((ignored, e) -> {
+                        if (!stopped && !replays.containsKey(name) && !isPaused(name)) {
+                            sentinelOffsetStore.removeSentinelOffset(name);
+                        }
+                    });
+                }
+            }
+        }
+        return rejoined;
+    }
+
+    private boolean isPaused(String name) {
+        RegistrationHandleImpl handle = sentinelRegistry.getRegistration(name);
+        return handle != null && handle.isPaused();
+    }
+
+    private static class Replay {
+        private volatile long delivered; // the height of the latest block given to the sentinel
+        private volatile CompletableFuture<Void> handled = CompletableFuture.completedFuture(null);
+
+        Replay(long delivered) {
+            this.delivered = delivered;
+        }
+    }
+
+    private static class DispatchedBlock {
+        private final UUID blockId;
+        private final long blockHeight;
+        private final CompletableFuture<Void> acknowledged; // null if the block had already been processed
+
+        DispatchedBlock(UUID blockId, long blockHeight, CompletableFuture<Void> acknowledged) {
+            this.blockId = blockId;
+            this.blockHeight = blockHeight;
+            this.acknowledged = acknowledged;
+        }
+
+        boolean isAcknowledged() {
+            return acknowledged == null || acknowledged.isDone();
         }
-        highWaterMark = blockId;
     }
 }
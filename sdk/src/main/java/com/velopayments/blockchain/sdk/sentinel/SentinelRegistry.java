@@ -3,13 +3,22 @@ package com.velopayments.blockchain.sdk.sentinel;
 import com.velopayments.blockchain.sdk.BlockReader;
 import com.velopayments.blockchain.sdk.BlockchainOperations;
 import com.velopayments.blockchain.sdk.sentinel.criteria.Criteria;
+import com.velopayments.blockchain.sdk.sentinel.criteria.CriteriaMatcher;
 import com.velopayments.blockchain.sdk.sentinel.criteria.InvalidCriteriaException;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 import static com.velopayments.blockchain.sdk.metadata.ArtifactTypeMetadataBuilder.assertNotNull;
 import static com.velopayments.blockchain.sdk.sentinel.RegistrationStatus.Active;
@@ -17,10 +26,41 @@ import static com.velopayments.blockchain.sdk.sentinel.RegistrationStatus.Active
 @Slf4j
 public class SentinelRegistry {
 
-    private final Map<String, RegistrationHandleImpl> registrations = new HashMap<>();
+    public static final int DEFAULT_MAILBOX_CAPACITY = 64;
+
+    private final Map<String, RegistrationHandleImpl> registrations = new ConcurrentHashMap<>();
+    private final CriteriaIndex criteriaIndex = new CriteriaIndex();
     private final AtomicBoolean active = new AtomicBoolean(false);
+    private final int mailboxCapacity;
+    private final MailboxOverflowPolicy overflowPolicy;
+    private final ThreadFactory threadFactory;
+    private volatile PauseHandler pauseHandler;
 
     public SentinelRegistry() {
+        this(DEFAULT_MAILBOX_CAPACITY, MailboxOverflowPolicy.BLOCK, SentinelRegistry::daemonThread);
+    }
+
+    /**
+     * Each registered sentinel gets a mailbox of blocks, handled one at a time and in order on a thread of its own, so
+     * a slow sentinel does not hold up the others.
+     *
+     * @param mailboxCapacity the number of blocks which may be queued for a sentinel
+     * @param overflowPolicy what to do with a block when a sentinel's mailbox is full
+     * @param threadFactory creates the thread for each sentinel, such as a virtual thread factory on newer JDKs
+     */
+    public SentinelRegistry(int mailboxCapacity, MailboxOverflowPolicy overflowPolicy, ThreadFactory threadFactory) {
+        if (mailboxCapacity < 1) {
+            throw new IllegalArgumentException("Mailbox capacity must be at least 1: " + mailboxCapacity);
+        }
+        this.mailboxCapacity = mailboxCapacity;
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy, "Overflow policy is required");
+        this.threadFactory = Objects.requireNonNull(threadFactory, "Thread factory is required");
+    }
+
+    private static Thread daemonThread(Runnable runnable) {
+        Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        return thread;
     }
 
     /**
@@ -50,7 +90,10 @@ public class SentinelRegistry {
         if (registrations.containsKey(name)) {
             throw new SentinelRegistryException("Sentinel already registered with " + name);
         }
+        handler.setMailbox(new SentinelMailbox(name, mailboxCapacity, overflowPolicy, threadFactory, block -> notify(handler, block),
+            skipped -> paused(handler, skipped)));
         registrations.put(name, handler);
+        criteriaIndex.put(handler, handler.getMatcher());
 
         return handler;
     }
@@ -77,34 +120,151 @@ public class SentinelRegistry {
     }
 
     public void remove(String registration) {
-        registrations.remove(registration);
+        RegistrationHandleImpl handle = registrations.remove(registration);
+        if (handle != null) {
+            criteriaIndex.remove(handle);
+            handle.getMailbox().close();
+        }
+    }
+
+    /**
+     * Set by the poller feeding the registry, which keeps the offsets of paused sentinels and replays the blocks they
+     * skipped once they are resumed
+     */
+    void setPauseHandler(PauseHandler pauseHandler) {
+        this.pauseHandler = pauseHandler;
+    }
+
+    private void paused(RegistrationHandleImpl handle, BlockReader firstSkipped) {
+        PauseHandler handler = pauseHandler;
+        if (handler != null) {
+            handler.paused(handle.getName(), firstSkipped);
+        }
+    }
+
+    void resume(RegistrationHandleImpl handle) {
+        SentinelMailbox mailbox = handle.getMailbox();
+        long pausedHeight = mailbox.getPausedHeight();
+        PauseHandler handler = pauseHandler;
+        if (pausedHeight < 0 || handler == null) {
+            mailbox.resume();
+        } else {
+            handler.resume(handle.getName(), pausedHeight + 1, mailbox::resume);
+        }
+    }
+
+    void criteriaChanged(RegistrationHandleImpl handle, CriteriaMatcher matcher) {
+        if (registrations.get(handle.getName()) == handle) {
+            criteriaIndex.put(handle, matcher);
+        }
     }
 
+    /**
+     * @return the mailbox of each registered sentinel, by name
+     */
+    public Map<String, MailboxStats> getMailboxStats() {
+        return registrations.values().stream()
+            .collect(Collectors.toMap(RegistrationHandleImpl::getName, RegistrationHandleImpl::getMailboxStats));
+    }
+
+    /**
+     * Notify the sentinels of a block, waiting until they have all handled it
+     */
     public void notifyBlock(BlockReader blockReader) {
-        log.trace("notifyBlock: {} - {}   {} registrations", blockReader.getBlockHeight(), blockReader.getBlockId(), registrations.size());
-        registrations.values().forEach(h -> {
-            // TODO: avoid the cast
-            if (h.isActive() && h.isTriggeredBy(blockReader)) {
-                try {
-                    Sentinel sentinel = h.getSentinel();
-                    log.trace("  notifying: {}", sentinel);
-                    Optional<Criteria> newCriteria = assertNotNull(sentinel.notify(blockReader.getBlockId(), h.getCriteria()));
-
-                    if (newCriteria.isPresent()) {
-                        validateCriteria(newCriteria.get());
-                        h.setCriteria(newCriteria.get());
-                    } else {
-                        h.cancel();
-                    }
-                }
-                catch (RuntimeException e) { // retry logic is out of scope for now
-                    log.error("Error notifying sentinel " + h + " of new blocks", e);
+        dispatchBlock(blockReader).join();
+    }
+
+    /**
+     * Queue a block in the mailbox of each sentinel it may trigger, applying the overflow policy to any which are full.
+     * <p>
+     * The block's transactions are looked up in an index of the registrations' criteria. A sentinel which is still
+     * handling earlier blocks is given the block regardless, as its criteria may change before it gets to it. A sentinel
+     * being replayed apart from the others is left out.
+     * <p>
+     * Which sentinels are busy is read before the index is searched. A sentinel can only change its criteria while it is
+     * busy, so one which finishes in between is found by its new criteria, and one which was busy gets the block anyway.
+     *
+     * @return completes once every sentinel given the block has handled or skipped it
+     */
+    public CompletableFuture<Void> dispatchBlock(BlockReader blockReader) {
+        Set<RegistrationHandleImpl> busy = new HashSet<>();
+        for (RegistrationHandleImpl h : registrations.values()) {
+            if (h.getMailbox().isBusy()) {
+                busy.add(h);
+            }
+        }
+        Set<RegistrationHandleImpl> candidates = criteriaIndex.candidates(blockReader);
+        log.trace("dispatchBlock: {} - {}   {} registrations, {} candidates, {} busy", blockReader.getBlockHeight(), blockReader.getBlockId(), registrations.size(), candidates.size(), busy.size());
+        List<CompletableFuture<Void>> acknowledgements = new ArrayList<>(candidates.size() + busy.size());
+        for (RegistrationHandleImpl h : registrations.values()) {
+            if (!h.isReplaying() && (candidates.contains(h) || busy.contains(h))) {
+                acknowledgements.add(h.getMailbox().offer(blockReader));
+            }
+        }
+        return CompletableFuture.allOf(acknowledgements.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Queue a block being replayed in the mailbox of one sentinel
+     *
+     * @return completes once the sentinel has handled or skipped the block, or at once if it is no longer registered
+     */
+    CompletableFuture<Void> replayBlock(String name, BlockReader blockReader) {
+        RegistrationHandleImpl h = registrations.get(name);
+        if (h == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return h.getMailbox().offer(blockReader);
+    }
+
+    RegistrationHandleImpl getRegistration(String name) {
+        return registrations.get(name);
+    }
+
+    Set<String> getRegistrationNames() {
+        return registrations.keySet();
+    }
+
+    private void notify(RegistrationHandleImpl h, BlockReader blockReader) {
+        // the registration may have been cancelled while the block was queued
+        if (registrations.get(h.getName()) != h) {
+            return;
+        }
+        if (h.isActive() && h.isTriggeredBy(blockReader)) {
+            try {
+                Sentinel sentinel = h.getSentinel();
+                log.trace("  notifying: {}", sentinel);
+                Optional<Criteria> newCriteria = assertNotNull(sentinel.notify(blockReader.getBlockId(), h.getCriteria()));
+
+                if (newCriteria.isPresent()) {
+                    validateCriteria(newCriteria.get());
+                    h.setCriteria(newCriteria.get());
+                } else {
+                    h.cancel();
                 }
             }
-        });
+            catch (RuntimeException e) { // retry logic is out of scope for now
+                log.error("Error notifying sentinel " + h + " of new blocks", e);
+            }
+        }
     }
 
 
+    interface PauseHandler {
+
+        /**
+         * Keep the sentinel's offset at the block before the first one it skipped
+         */
+        void paused(String name, BlockReader firstSkipped);
+
+        /**
+         * Replay the blocks the sentinel skipped, resuming its mailbox before the first is given to it
+         *
+         * @param fromHeight the height of the first block skipped
+         */
+        void resume(String name, long fromHeight, Runnable resumeMailbox);
+    }
+
     static Criteria validateCriteria(Criteria criteria) throws InvalidCriteriaException {
         if (criteria == null) {
             throw new InvalidCriteriaException("Criteria may not be null");
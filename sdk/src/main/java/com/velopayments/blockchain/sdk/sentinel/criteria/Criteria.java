@@ -3,7 +3,11 @@ package com.velopayments.blockchain.sdk.sentinel.criteria;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Data
@@ -18,7 +22,7 @@ public class Criteria {
     @NonNull
     private UUID latestBlockId;
 
-    //Provide exactly zero or one of the following
+    //Provide zero or more of the following, with an operator to combine more than one
     //If you only provide latestBlockId then you'll be notified as soon as there is a new block
 
     /**
@@ -26,21 +30,58 @@ public class Criteria {
      */
     private ArtifactIdAndState artifactIdAndState;
 
+    /**
+     * Listen for state changes on any of several artifacts
+     */
+    private List<ArtifactIdAndState> artifactIdsAndStates;
+
     /**
      * Listen for any new transactions on an artifact
      */
     private UUID artifactId;
 
+    /**
+     * Listen for any new transactions on any of several artifacts
+     */
+    private Set<UUID> artifactIds;
+
     /**
      * Listen for new transactions on an any artifact of this type
      */
     private UUID artifactTypeId;
 
+    /**
+     * Listen for new transactions on any artifact of any of several types
+     */
+    private Set<UUID> artifactTypeIds;
+
     /**
      * Listen for transactions of this type
      */
     private UUID transactionType;
 
+    /**
+     * Listen for transactions of any of several types
+     */
+    private Set<UUID> transactionTypes;
+
+    /**
+     * How to combine more than one of the above. With {@link Operator#AND} a single transaction must match every
+     * selector, e.g. a transaction type on an artifact type, and state changes can't be combined.
+     */
+    private Operator operator;
+
+    public enum Operator {
+        /**
+         * Any selector matching any transaction in the block triggers the sentinel
+         */
+        OR,
+        /**
+         * A transaction in the block matching every selector triggers the sentinel
+         */
+        AND
+    }
+
     public static Criteria withLatestBlockId(UUID blockId) {
         return Criteria.builder().latestBlockId(blockId).build();
     }
@@ -55,23 +96,51 @@ public class Criteria {
         if (getArtifactIdAndState() != null) {
             numberOfAdditionalArgs ++;
         }
+        if (getArtifactIdsAndStates() != null) {
+            checkElements("artifactIdsAndStates", getArtifactIdsAndStates());
+            numberOfAdditionalArgs ++;
+        }
         if (getArtifactId() != null) {
             numberOfAdditionalArgs ++;
         }
+        if (getArtifactIds() != null) {
+            checkElements("artifactIds", getArtifactIds());
+            numberOfAdditionalArgs ++;
+        }
         if (getArtifactTypeId() != null) {
             numberOfAdditionalArgs ++;
         }
+        if (getArtifactTypeIds() != null) {
+            checkElements("artifactTypeIds", getArtifactTypeIds());
+            numberOfAdditionalArgs ++;
+        }
         if (getTransactionType() != null) {
             numberOfAdditionalArgs ++;
         }
+        if (getTransactionTypes() != null) {
+            checkElements("transactionTypes", getTransactionTypes());
+            numberOfAdditionalArgs ++;
+        }
 
-        if (numberOfAdditionalArgs > 1) {
-            throw new InvalidCriteriaException("You may only pass latestBlockId plus a maximum of one additional argument");
+        if (numberOfAdditionalArgs > 1 && getOperator() == null) {
+            throw new InvalidCriteriaException("You may only pass latestBlockId plus a maximum of one additional argument unless you pass an operator to combine them");
+        }
+        if (getOperator() == Operator.AND && (getArtifactIdAndState() != null || getArtifactIdsAndStates() != null)) {
+            throw new InvalidCriteriaException("State changes can only be combined with the OR operator");
         }
 
         return this;
     }
 
+    private static void checkElements(String name, Collection<?> elements) throws InvalidCriteriaException {
+        if (elements.isEmpty()) {
+            throw new InvalidCriteriaException(name + " may not be empty");
+        }
+        if (elements.stream().anyMatch(Objects::isNull)) {
+            throw new InvalidCriteriaException(name + " may not contain null");
+        }
+    }
+
     /**
      * Copies the criteria but uses the blockId from the argument
      * @param blockId the id of the block
@@ -0,0 +1,162 @@
+package com.velopayments.blockchain.sdk.sentinel.criteria;
+
+import com.velopayments.blockchain.sdk.BlockReader;
+import com.velopayments.blockchain.sdk.TransactionHeader;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link Criteria} compiled for evaluation against blocks. The single and multi-valued selectors of each kind are
+ * merged into one {@link UuidSet}, so each transaction header costs at most one membership test per kind of selector.
+ */
+public class CriteriaMatcher {
+
+    /**
+     * The kinds of id a transaction can be selected on
+     */
+    public enum Selector {
+        ARTIFACT_ID, ARTIFACT_TYPE, TRANSACTION_TYPE
+    }
+
+    private final boolean and;
+    private final UuidSet artifactIds;      // null if not selected on
+    private final UuidSet artifactTypes;    // null if not selected on
+    private final UuidSet transactionTypes; // null if not selected on
+    private final Map<UUID, Integer> watchedStates;
+
+    private CriteriaMatcher(Criteria criteria) {
+        this.and = criteria.getOperator() == Criteria.Operator.AND;
+        this.artifactIds = merge(criteria.getArtifactId(), criteria.getArtifactIds());
+        this.artifactTypes = merge(criteria.getArtifactTypeId(), criteria.getArtifactTypeIds());
+        this.transactionTypes = merge(criteria.getTransactionType(), criteria.getTransactionTypes());
+
+        Map<UUID, Integer> watched = new HashMap<>();
+        if (criteria.getArtifactIdAndState() != null) {
+            watched.put(criteria.getArtifactIdAndState().getArtifactId(), criteria.getArtifactIdAndState().getState());
+        }
+        if (criteria.getArtifactIdsAndStates() != null) {
+            criteria.getArtifactIdsAndStates().forEach(s -> watched.put(s.getArtifactId(), s.getState()));
+        }
+        this.watchedStates = watched;
+    }
+
+    public static CriteriaMatcher compile(Criteria criteria) {
+        return new CriteriaMatcher(criteria);
+    }
+
+    /**
+     * @return true if the criteria select on nothing but the latest block, so every new block triggers them
+     */
+    public boolean matchesEveryBlock() {
+        return artifactIds == null && artifactTypes == null && transactionTypes == null && watchedStates.isEmpty();
+    }
+
+    /**
+     * Pass the ids a block's transactions must have at least one of to trigger the criteria. With the AND operator
+     * only the smallest selector is given, as every matching transaction has one of its ids.
+     *
+     * @param action given each kind of selector and id
+     */
+    public void forEachKey(BiConsumer<Selector, UUID> action) {
+        if (and) {
+            Selector smallest = null;
+            UuidSet smallestIds = null;
+            for (Selector selector : Selector.values()) {
+                UuidSet ids = ids(selector);
+                if (ids != null && (smallestIds == null || ids.size() < smallestIds.size())) {
+                    smallest = selector;
+                    smallestIds = ids;
+                }
+            }
+            if (smallestIds != null) {
+                Selector selector = smallest;
+                smallestIds.forEach(id -> action.accept(selector, id));
+            }
+            return;
+        }
+        for (Selector selector : Selector.values()) {
+            UuidSet ids = ids(selector);
+            if (ids != null) {
+                ids.forEach(id -> action.accept(selector, id));
+            }
+        }
+        watchedStates.keySet().forEach(id -> action.accept(Selector.ARTIFACT_ID, id));
+    }
+
+    public boolean isTriggeredBy(BlockReader blockReader) {
+        if (matchesEveryBlock()) {
+            //because latestBlockId is mandatory in the criteria and the offset log protects us from duplicate notifications, we must return true here
+            return true;
+        }
+        List<TransactionHeader> headers = blockReader.getTransactionHeaders();
+        if (artifactIds != null || artifactTypes != null || transactionTypes != null) {
+            for (TransactionHeader tx : headers) {
+                if (and ? matchesAll(tx) : matchesAny(tx)) {
+                    return true;
+                }
+            }
+        }
+        return !watchedStates.isEmpty() && stateChanged(blockReader, headers);
+    }
+
+    private boolean matchesAll(TransactionHeader tx) {
+        return (artifactIds == null || artifactIds.contains(tx.getArtifactId()))
+            && (artifactTypes == null || artifactTypes.contains(tx.getArtifactType()))
+            && (transactionTypes == null || transactionTypes.contains(tx.getTransactionType()));
+    }
+
+    private boolean matchesAny(TransactionHeader tx) {
+        return (artifactIds != null && artifactIds.contains(tx.getArtifactId()))
+            || (artifactTypes != null && artifactTypes.contains(tx.getArtifactType()))
+            || (transactionTypes != null && transactionTypes.contains(tx.getTransactionType()));
+    }
+
+    /**
+     * Get the latest transaction in the block for each watched artifact and compare its state to the watched state
+     */
+    private boolean stateChanged(BlockReader blockReader, List<TransactionHeader> headers) {
+        Set<UUID> seen = new HashSet<>();
+        for (int i = headers.size() - 1; i >= 0; i--) {
+            UUID artifactId = headers.get(i).getArtifactId();
+            Integer watchedState = watchedStates.get(artifactId);
+            if (watchedState != null && seen.add(artifactId)) {
+                //if the transaction contains a different state for this artifact, let's trigger.
+                Integer newState = blockReader.getTransaction(i).getNewArtifactState();
+                if (newState != null && !newState.equals(watchedState)) {
+                    return true;
+                }
+            }
+        }
+        return false;   //didn't find a match or state change
+    }
+
+    private UuidSet ids(Selector selector) {
+        switch (selector) {
+            case ARTIFACT_ID:
+                return artifactIds;
+            case ARTIFACT_TYPE:
+                return artifactTypes;
+            default:
+                return transactionTypes;
+        }
+    }
+
+    private static UuidSet merge(UUID id, Collection<UUID> ids) {
+        if (id == null && ids == null) {
+            return null;
+        }
+        Set<UUID> merged = new HashSet<>(ids == null ? Collections.emptySet() : ids);
+        if (id != null) {
+            merged.add(id);
+        }
+        return UuidSet.of(merged);
+    }
+}
@@ -0,0 +1,102 @@
+package com.velopayments.blockchain.sdk.sentinel.criteria;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * An immutable set of ids held as pairs of longs in an open-addressed table, so that testing a transaction's ids for
+ * membership neither allocates nor follows references.
+ * <p>
+ * Empty slots are marked by the nil UUID, whose membership is kept separately.
+ */
+public final class UuidSet {
+
+    private final long[] mostSignificant;
+    private final long[] leastSignificant;
+    private final int mask;
+    private final int size;
+    private final boolean containsNil;
+
+    private UuidSet(Collection<UUID> ids) {
+        int capacity = Integer.highestOneBit(Math.max(2, ids.size() * 2 - 1)) << 1; // at most half full
+        this.mostSignificant = new long[capacity];
+        this.leastSignificant = new long[capacity];
+        this.mask = capacity - 1;
+        int count = 0;
+        boolean nil = false;
+        for (UUID id : ids) {
+            long msb = id.getMostSignificantBits();
+            long lsb = id.getLeastSignificantBits();
+            if (msb == 0 && lsb == 0) {
+                count += nil ? 0 : 1;
+                nil = true;
+                continue;
+            }
+            int slot = slot(msb, lsb);
+            while (!isEmpty(slot) && !matches(slot, msb, lsb)) {
+                slot = (slot + 1) & mask;
+            }
+            if (isEmpty(slot)) {
+                mostSignificant[slot] = msb;
+                leastSignificant[slot] = lsb;
+                count++;
+            }
+        }
+        this.size = count;
+        this.containsNil = nil;
+    }
+
+    /**
+     * @param ids the ids, none of which may be null
+     * @return a set of the ids
+     */
+    public static UuidSet of(Collection<UUID> ids) {
+        return new UuidSet(ids);
+    }
+
+    public boolean contains(UUID id) {
+        if (id == null) {
+            return false;
+        }
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        if (msb == 0 && lsb == 0) {
+            return containsNil;
+        }
+        for (int slot = slot(msb, lsb); !isEmpty(slot); slot = (slot + 1) & mask) {
+            if (matches(slot, msb, lsb)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(Consumer<UUID> action) {
+        if (containsNil) {
+            action.accept(new UUID(0, 0));
+        }
+        for (int slot = 0; slot < mostSignificant.length; slot++) {
+            if (!isEmpty(slot)) {
+                action.accept(new UUID(mostSignificant[slot], leastSignificant[slot]));
+            }
+        }
+    }
+
+    private int slot(long msb, long lsb) {
+        long hash = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+
+    private boolean isEmpty(int slot) {
+        return mostSignificant[slot] == 0 && leastSignificant[slot] == 0;
+    }
+
+    private boolean matches(int slot, long msb, long lsb) {
+        return mostSignificant[slot] == msb && leastSignificant[slot] == lsb;
+    }
+}
@@ -0,0 +1,411 @@
+package com.velopayments.blockchain.sdk.sentinel.offsetstore;
+
+import com.velopayments.blockchain.cert.CertificateType;
+import com.velopayments.blockchain.sdk.sentinel.SentinelException;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * An OffsetStore which keeps the offsets in memory and appends each recorded block to a log of checksummed records.
+ * A record holds the registration name of a sentinel being replayed separately, or no name for the shared offset.
+ * <p>
+ * Every record is written as it is recorded, so it survives the process crashing, but the log is only forced to the
+ * storage device once {@code commitBatchSize} records are pending or {@code maxCommitDelay} has passed since the first
+ * of them was written, whether or not more are recorded. Losing the records since then to a power failure only means
+ * those blocks are processed again. A torn or corrupt record at the end of the log is discarded when the store is
+ * initialized.
+ * <p>
+ * Once the log holds {@code compactAfterRecords} records it is replaced, by an atomic rename, with a log holding only
+ * the latest record of each offset. The directory is forced after the rename, so the rename itself is durable.
+ * @see SentinelOffsetStore
+ */
+@Slf4j
+public class AppendOnlyOffsetStore implements SentinelOffsetStore {
+
+    public static final int DEFAULT_COMMIT_BATCH_SIZE = 64;
+    public static final Duration DEFAULT_MAX_COMMIT_DELAY = Duration.ofSeconds(1);
+    public static final int DEFAULT_COMPACT_AFTER_RECORDS = 16_384;
+
+    // name length, name, block height, block id and a CRC32 of them all. This is the size of a record with no name.
+    static final int RECORD_SIZE = Short.BYTES + Long.BYTES + 2 * Long.BYTES + Integer.BYTES;
+    private static final int MAX_NAME_LENGTH = 0xffff;
+    private static final long REMOVED = -1; // the height of a record removing a sentinel's offset
+
+    private final Path offsetLog;
+    private final int commitBatchSize;
+    private final long maxCommitDelayNanos;
+    private final int compactAfterRecords;
+    private final CRC32 crc = new CRC32();
+
+    private volatile UUID blockId = CertificateType.ROOT_BLOCK;
+    private volatile long blockHeight;
+
+    // guarded by this
+    private final Map<String, BlockOffset> sentinelOffsets = new HashMap<>();
+    private FileChannel channel;
+    private ScheduledExecutorService flusher;
+    private ScheduledFuture<?> scheduledFlush;
+    private long records;
+    private int pending;
+    private long lastCommitNanos;
+
+    public AppendOnlyOffsetStore(Path offsetLog) {
+        this(offsetLog, DEFAULT_COMMIT_BATCH_SIZE, DEFAULT_MAX_COMMIT_DELAY, DEFAULT_COMPACT_AFTER_RECORDS);
+    }
+
+    /**
+     * @param commitBatchSize the number of records written before the log is forced to the storage device
+     * @param maxCommitDelay the longest time records may be written without forcing the log
+     * @param compactAfterRecords the number of records the log may hold before it is compacted
+     */
+    public AppendOnlyOffsetStore(Path offsetLog, int commitBatchSize, Duration maxCommitDelay, int compactAfterRecords) {
+        if (commitBatchSize < 1) {
+            throw new IllegalArgumentException("commitBatchSize must be at least 1: " + commitBatchSize);
+        }
+        if (compactAfterRecords < 1) {
+            throw new IllegalArgumentException("compactAfterRecords must be at least 1: " + compactAfterRecords);
+        }
+        this.offsetLog = Objects.requireNonNull(offsetLog);
+        this.commitBatchSize = commitBatchSize;
+        this.maxCommitDelayNanos = Objects.requireNonNull(maxCommitDelay).toNanos();
+        this.compactAfterRecords = compactAfterRecords;
+    }
+
+    /**
+     * AppendOnlyOffsetStore builder factory method, using the defaults for any setting not given
+     */
+    @Builder
+    private static AppendOnlyOffsetStore createAppendOnlyOffsetStore(Path offsetLog, Integer commitBatchSize,
+                                                                     Duration maxCommitDelay, Integer compactAfterRecords) {
+        return new AppendOnlyOffsetStore(offsetLog,
+            commitBatchSize == null ? DEFAULT_COMMIT_BATCH_SIZE : commitBatchSize,
+            maxCommitDelay == null ? DEFAULT_MAX_COMMIT_DELAY : maxCommitDelay,
+            compactAfterRecords == null ? DEFAULT_COMPACT_AFTER_RECORDS : compactAfterRecords);
+    }
+
+    /**
+     * @see OffsetStore#initialize()
+     */
+    @Override
+    public synchronized BlockOffset initialize() {
+        close();
+        blockId = CertificateType.ROOT_BLOCK;
+        blockHeight = 0;
+        sentinelOffsets.clear();
+        try {
+            channel = FileChannel.open(offsetLog, CREATE, READ, WRITE);
+            long size = channel.size();
+            long valid = 0;
+            long count = 0;
+            for (int recordSize; (recordSize = readRecord(valid, size)) > 0; valid += recordSize) {
+                count++;
+            }
+            if (valid < size) {
+                log.warn("{} has {} invalid bytes after {} records, discarding them", offsetLog, size - valid, count);
+                channel.truncate(valid);
+                channel.force(false);
+            }
+            channel.position(valid);
+            records = count;
+            pending = 0;
+            lastCommitNanos = System.nanoTime();
+            flusher = Executors.newSingleThreadScheduledExecutor(AppendOnlyOffsetStore::flusherThread);
+        } catch (IOException e) {
+            throw new SentinelException("Error initializing block offset log", e);
+        }
+        return currentOffset();
+    }
+
+    /**
+     * @see OffsetStore#recordBlock(UUID, long)
+     */
+    @Override
+    public synchronized void recordBlock(UUID blockId, long blockHeight) {
+        append("", blockId, blockHeight);
+        this.blockId = blockId;
+        this.blockHeight = blockHeight;
+        commitOrCompact();
+    }
+
+    /**
+     * @see SentinelOffsetStore#getSentinelOffsets()
+     */
+    @Override
+    public synchronized Map<String, BlockOffset> getSentinelOffsets() {
+        Map<String, BlockOffset> offsets = new HashMap<>();
+        sentinelOffsets.forEach((name, offset) -> offsets.put(name, offset(offset.getBlockId(), offset.getBlockHeight())));
+        return offsets;
+    }
+
+    /**
+     * @see SentinelOffsetStore#recordBlock(String, UUID, long)
+     */
+    @Override
+    public synchronized void recordBlock(String name, UUID blockId, long blockHeight) {
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("A sentinel's name may not be empty");
+        }
+        append(name, blockId, blockHeight);
+        sentinelOffsets.put(name, offset(blockId, blockHeight));
+        commitOrCompact();
+    }
+
+    /**
+     * @see SentinelOffsetStore#removeSentinelOffset(String)
+     */
+    @Override
+    public synchronized void removeSentinelOffset(String name) {
+        if (sentinelOffsets.containsKey(name)) {
+            append(name, CertificateType.ROOT_BLOCK, REMOVED);
+            sentinelOffsets.remove(name);
+            commitOrCompact();
+        }
+    }
+
+    private void append(String name, UUID blockId, long blockHeight) {
+        if (channel == null) {
+            throw new SentinelException("Block offset log is not initialized");
+        }
+        try {
+            write(channel, encode(name, blockId, blockHeight));
+            records++;
+            pending++;
+        } catch (IOException e) {
+            throw new SentinelException("Error logging block offset", e);
+        }
+    }
+
+    private void commitOrCompact() {
+        try {
+            if (records >= compactAfterRecords + sentinelOffsets.size()) {
+                compact();
+            } else if (pending >= commitBatchSize || System.nanoTime() - lastCommitNanos >= maxCommitDelayNanos) {
+                commit();
+            } else if (scheduledFlush == null) {
+                // commit the records by the deadline even if no more are recorded
+                scheduledFlush = flusher.schedule(this::scheduledFlush, maxCommitDelayNanos, TimeUnit.NANOSECONDS);
+            }
+        } catch (IOException e) {
+            throw new SentinelException("Error committing block offset log", e);
+        }
+    }
+
+    /**
+     * @see OffsetStore#isBlockProcessed(long)
+     */
+    @Override
+    public boolean isBlockProcessed(long blockHeight) {
+        return this.blockHeight >= blockHeight;
+    }
+
+    /**
+     * Force the records written since the last commit to the storage device
+     */
+    public synchronized void flush() {
+        if (channel != null && pending > 0) {
+            try {
+                commit();
+            } catch (IOException e) {
+                throw new SentinelException("Error committing block offset log", e);
+            }
+        }
+    }
+
+    private void scheduledFlush() {
+        try {
+            flush();
+        } catch (SentinelException e) {
+            log.error("Error committing {}", offsetLog, e);
+        }
+    }
+
+    /**
+     * Commit the pending records and close the log. The store may be initialized again.
+     */
+    @Override
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            if (flusher != null) {
+                flusher.shutdownNow();
+                flusher = null;
+            }
+            scheduledFlush = null;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Error closing {}", offsetLog, e);
+            }
+            channel = null;
+        }
+    }
+
+    private BlockOffset currentOffset() {
+        return offset(blockId, blockHeight);
+    }
+
+    private static BlockOffset offset(UUID blockId, long blockHeight) {
+        BlockOffset offset = new BlockOffset();
+        offset.setBlockId(blockId);
+        offset.setBlockHeight(blockHeight);
+        return offset;
+    }
+
+    /**
+     * @return the number of records written but not yet forced to the storage device
+     */
+    synchronized int getPending() {
+        return pending;
+    }
+
+    private void commit() throws IOException {
+        channel.force(false);
+        committed();
+    }
+
+    private void committed() {
+        pending = 0;
+        lastCommitNanos = System.nanoTime();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+    }
+
+    /**
+     * Write the latest record of each offset to a new log and rename it over the old one
+     */
+    private void compact() throws IOException {
+        Path compacted = offsetLog.resolveSibling(offsetLog.getFileName() + ".compact");
+        try (FileChannel out = FileChannel.open(compacted, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            write(out, encode("", blockId, blockHeight));
+            for (Map.Entry<String, BlockOffset> sentinel : sentinelOffsets.entrySet()) {
+                write(out, encode(sentinel.getKey(), sentinel.getValue().getBlockId(), sentinel.getValue().getBlockHeight()));
+            }
+            out.force(true);
+        }
+        channel.close();
+        Files.move(compacted, offsetLog, ATOMIC_MOVE, REPLACE_EXISTING);
+        forceDirectory();
+        channel = FileChannel.open(offsetLog, READ, WRITE);
+        channel.position(channel.size());
+        records = 1 + sentinelOffsets.size();
+        committed();
+    }
+
+    /**
+     * Force the directory holding the log, so the rename of the compacted log survives a power failure
+     */
+    private void forceDirectory() {
+        Path directory = offsetLog.toAbsolutePath().getParent();
+        try (FileChannel dir = FileChannel.open(directory, READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // not every platform can open a directory
+            log.debug("Could not force directory {}", directory, e);
+        }
+    }
+
+    private static Thread flusherThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "offset-log-flush");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private ByteBuffer encode(String name, UUID blockId, long blockHeight) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Sentinel name is too long: " + name);
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE + nameBytes.length);
+        record.putShort((short) nameBytes.length)
+            .put(nameBytes)
+            .putLong(blockHeight)
+            .putLong(blockId.getMostSignificantBits())
+            .putLong(blockId.getLeastSignificantBits());
+        crc.reset();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue());
+        return record.flip();
+    }
+
+    /**
+     * Read the record at the position and apply it to the offsets
+     *
+     * @return the size of the record, or 0 if it is torn or corrupt
+     */
+    private int readRecord(long position, long size) throws IOException {
+        if (position + Short.BYTES > size) {
+            return 0;
+        }
+        ByteBuffer nameLength = ByteBuffer.allocate(Short.BYTES);
+        read(nameLength, position);
+        int recordSize = RECORD_SIZE + (nameLength.getShort(0) & 0xffff);
+        if (position + recordSize > size) {
+            return 0;
+        }
+        ByteBuffer record = ByteBuffer.allocate(recordSize);
+        read(record, position);
+        crc.reset();
+        crc.update(record.array(), 0, recordSize - Integer.BYTES);
+        if (record.getInt(recordSize - Integer.BYTES) != (int) crc.getValue()) {
+            return 0;
+        }
+
+        String name = new String(record.array(), Short.BYTES, recordSize - RECORD_SIZE, StandardCharsets.UTF_8);
+        record.position(Short.BYTES + recordSize - RECORD_SIZE);
+        long height = record.getLong();
+        UUID id = new UUID(record.getLong(), record.getLong());
+        if (name.isEmpty()) {
+            blockHeight = height;
+            blockId = id;
+        } else if (height == REMOVED) {
+            sentinelOffsets.remove(name);
+        } else {
+            sentinelOffsets.put(name, offset(id, height));
+        }
+        return recordSize;
+    }
+
+    private void read(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new SentinelException(offsetLog + " was truncated while being read");
+            }
+        }
+    }
+}
@@ -5,11 +5,18 @@ import java.util.UUID;
 /**
  * Interface for keeping track of whether Blocks have been processed
  */
-public interface OffsetStore {
+public interface OffsetStore extends AutoCloseable {
 
     BlockOffset initialize();
 
     boolean isBlockProcessed(long blockHeight);
 
     void recordBlock(UUID blockId, long blockHeight);
+
+    /**
+     * Make the recorded offsets durable and release the store's resources
+     */
+    @Override
+    default void close() {
+    }
 }
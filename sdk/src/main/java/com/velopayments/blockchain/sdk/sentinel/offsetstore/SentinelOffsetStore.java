@@ -0,0 +1,26 @@
+package com.velopayments.blockchain.sdk.sentinel.offsetstore;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * An OffsetStore which also keeps the offsets of the sentinels being replayed apart from the others
+ */
+public interface SentinelOffsetStore extends OffsetStore {
+
+    /**
+     * @return the offsets of the sentinels being replayed apart from the others, by registration name. The other
+     * sentinels are at the shared offset.
+     */
+    Map<String, BlockOffset> getSentinelOffsets();
+
+    /**
+     * Record the latest block handled by a sentinel being replayed apart from the others
+     */
+    void recordBlock(String name, UUID blockId, long blockHeight);
+
+    /**
+     * Forget the offset of a sentinel which has caught up with the others
+     */
+    void removeSentinelOffset(String name);
+}
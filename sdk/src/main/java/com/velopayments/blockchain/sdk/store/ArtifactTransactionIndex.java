@@ -0,0 +1,131 @@
+package com.velopayments.blockchain.sdk.store;
+
+import com.velopayments.blockchain.cert.Field;
+import com.velopayments.blockchain.sdk.BlockReader;
+import com.velopayments.blockchain.sdk.TransactionHeader;
+import com.velopayments.blockchain.sdk.TransactionReader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static com.velopayments.blockchain.sdk.BlockchainUtils.INITIAL_TRANSACTION_UUID;
+
+/**
+ * An index of each artifact's transactions, as ids and block heights in chain order, built from consecutive blocks.
+ * <p>
+ * The transactions of an artifact up to a block height can only be found from the index once it holds every block up
+ * to that height since the artifact's first transaction, as its earlier transactions could otherwise be missing. The
+ * index need not start at the first block: an artifact whose first transaction has been indexed is covered from then on.
+ */
+public class ArtifactTransactionIndex {
+
+    private final Map<UUID, Chain> chains = new HashMap<>();
+    private long firstHeight = -1;
+    private long lastHeight = -1;
+
+    /**
+     * Index the transactions of a block, which must follow the last block indexed
+     *
+     * @return false if the block was not indexed, as it doesn't follow the last block indexed
+     */
+    public synchronized boolean index(BlockReader blockReader) {
+        long height = blockReader.getBlockHeightAsLong();
+        if (lastHeight >= 0 && height != lastHeight + 1) {
+            return false;
+        }
+        List<TransactionHeader> headers = blockReader.getTransactionHeaders();
+        for (int i = 0; i < headers.size(); i++) {
+            TransactionHeader tx = headers.get(i);
+            if (tx.getArtifactId() != null && tx.getTransactionId() != null) {
+                Chain chain = chains.get(tx.getArtifactId());
+                if (chain == null) {
+                    chain = new Chain(isFirstOfArtifact(blockReader.getTransaction(i)));
+                    chains.put(tx.getArtifactId(), chain);
+                }
+                chain.add(tx.getTransactionId(), height);
+            }
+        }
+        if (firstHeight < 0) {
+            firstHeight = height;
+        }
+        lastHeight = height;
+        return true;
+    }
+
+    /**
+     * @return true if every block from the first up to the height has been indexed
+     */
+    public synchronized boolean covers(long blockHeight) {
+        return firstHeight == 1 && blockHeight <= lastHeight;
+    }
+
+    /**
+     * Find the ids of an artifact's transactions in blocks up to a height
+     *
+     * @return the transaction ids in chain order, or empty if the index doesn't cover the artifact up to the height
+     */
+    public synchronized Optional<List<UUID>> findTransactionIds(UUID artifactId, long maxBlockHeight) {
+        if (maxBlockHeight < 1) {
+            return Optional.of(List.of());
+        }
+        Chain chain = chains.get(artifactId);
+        boolean fromFirstTransaction = firstHeight == 1 || (chain != null && chain.fromFirstTransaction);
+        if (!fromFirstTransaction || maxBlockHeight > lastHeight) {
+            return Optional.empty();
+        }
+        return Optional.of(chain == null ? List.of() : chain.idsUpTo(maxBlockHeight));
+    }
+
+    private static boolean isFirstOfArtifact(TransactionReader transaction) {
+        return transaction.hasField(Field.PREVIOUS_CERTIFICATE_ID)
+            && INITIAL_TRANSACTION_UUID.equals(transaction.getPreviousTransactionId());
+    }
+
+    private static class Chain {
+        private final boolean fromFirstTransaction; // the artifact's first transaction was indexed
+        private long[] mostSignificant = new long[4];
+        private long[] leastSignificant = new long[4];
+        private long[] heights = new long[4];
+        private int size;
+
+        Chain(boolean fromFirstTransaction) {
+            this.fromFirstTransaction = fromFirstTransaction;
+        }
+
+        void add(UUID transactionId, long height) {
+            if (size == heights.length) {
+                mostSignificant = Arrays.copyOf(mostSignificant, size * 2);
+                leastSignificant = Arrays.copyOf(leastSignificant, size * 2);
+                heights = Arrays.copyOf(heights, size * 2);
+            }
+            mostSignificant[size] = transactionId.getMostSignificantBits();
+            leastSignificant[size] = transactionId.getLeastSignificantBits();
+            heights[size] = height;
+            size++;
+        }
+
+        List<UUID> idsUpTo(long maxBlockHeight) {
+            // the number of transactions in blocks up to the height, found by a search for the first one after it
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (heights[mid] <= maxBlockHeight) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            List<UUID> ids = new ArrayList<>(low);
+            for (int i = 0; i < low; i++) {
+                ids.add(new UUID(mostSignificant[i], leastSignificant[i]));
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.velopayments.blockchain.sdk.store;
+
+import com.velopayments.blockchain.cert.Certificate;
+import com.velopayments.blockchain.sdk.BlockReader;
+import com.velopayments.blockchain.sdk.BlockchainIOException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A local, append-only store of consecutive blocks, held as raw certificate bytes in memory-mapped segment files.
+ * <p>
+ * Each record is the certificate length, the block height, the certificate and a CRC32 of the height and certificate. A
+ * segment is mapped in full when it is created, and a new segment is started once a block doesn't fit. The index of
+ * record locations and block ids by height is held in memory, with an open-addressed table of heights by block id which
+ * holds an int per slot and grows with the store. It is rebuilt by scanning the segments when the store is opened.
+ * Scanning stops at the first torn or corrupt record, which is overwritten by the next block.
+ * <p>
+ * Reading a block copies its certificate out of the mapping once, as a {@link Certificate} is backed by an array.
+ */
+@Slf4j
+public class BlockSegmentStore implements Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final String SEGMENT_SUFFIX = ".segment";
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    private static final int RECORD_OVERHEAD = RECORD_HEADER_SIZE + Integer.BYTES;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final List<Segment> segments = new ArrayList<>();
+    private final CRC32 crc = new CRC32();
+
+    // by height after the first, the location of the record (segment << 32 | position) and the block id
+    private long[] locations = new long[1024];
+    private long[] blockIdMostSignificant = new long[1024];
+    private long[] blockIdLeastSignificant = new long[1024];
+    // by a hash of the block id, the index above plus one of the block, or 0 for an empty slot
+    private int[] byBlockId = new int[2048];
+    private long firstHeight = -1;
+    private int count;
+
+    private BlockSegmentStore(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    public static BlockSegmentStore open(Path directory) {
+        return open(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Open the store in the directory, creating it if need be
+     *
+     * @param segmentSize the size of each segment file, which also bounds the size of a block that can be stored
+     */
+    public static BlockSegmentStore open(Path directory, int segmentSize) {
+        if (segmentSize <= RECORD_OVERHEAD) {
+            throw new IllegalArgumentException("Segment size is too small: " + segmentSize);
+        }
+        BlockSegmentStore store = new BlockSegmentStore(directory, segmentSize);
+        try {
+            Files.createDirectories(directory);
+            store.load();
+        } catch (IOException e) {
+            store.close();
+            throw new BlockchainIOException("Error opening block store " + directory, e);
+        } catch (RuntimeException e) { // such as a missing segment, after others have been mapped
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    /**
+     * @return the height of the first block stored, or empty if the store is empty
+     */
+    public synchronized OptionalLong getFirstHeight() {
+        return count == 0 ? OptionalLong.empty() : OptionalLong.of(firstHeight);
+    }
+
+    /**
+     * @return the height of the last block stored, or empty if the store is empty
+     */
+    public synchronized OptionalLong getLastHeight() {
+        return count == 0 ? OptionalLong.empty() : OptionalLong.of(firstHeight + count - 1);
+    }
+
+    public synchronized boolean contains(long blockHeight) {
+        return count > 0 && blockHeight >= firstHeight && blockHeight < firstHeight + count;
+    }
+
+    /**
+     * Append a block, which must follow the last block stored
+     *
+     * @return false if the block was not stored, as it doesn't follow the last block stored
+     */
+    public synchronized boolean append(BlockReader blockReader) {
+        long height = blockReader.getBlockHeightAsLong();
+        if (count > 0 && height != firstHeight + count) {
+            return false;
+        }
+        byte[] certificate = blockReader.getCertificate().toByteArray();
+        int recordSize = RECORD_OVERHEAD + certificate.length;
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("Block " + height + " of " + certificate.length + " bytes exceeds the segment size");
+        }
+        try {
+            Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (segment == null || segment.remaining() < recordSize) {
+                segment = createSegment(segments.size());
+            }
+            int position = segment.position;
+            ByteBuffer buffer = segment.buffer.duplicate();
+            buffer.position(position);
+            buffer.putInt(certificate.length).putLong(height).put(certificate).putInt(checksum(height, certificate));
+            if (buffer.remaining() >= Integer.BYTES) {
+                buffer.putInt(buffer.position(), 0); // no record follows, whatever was there before a crash
+            }
+            segment.position = buffer.position();
+            index(height, blockReader.getBlockId(), segments.size() - 1, position);
+        } catch (IOException e) {
+            throw new BlockchainIOException("Error appending block " + height + " to block store " + directory, e);
+        }
+        return true;
+    }
+
+    public synchronized Optional<BlockReader> findByHeight(long blockHeight) {
+        if (!contains(blockHeight)) {
+            return Optional.empty();
+        }
+        long location = locations[(int) (blockHeight - firstHeight)];
+        ByteBuffer buffer = segments.get((int) (location >>> 32)).buffer.duplicate();
+        buffer.position((int) location);
+        byte[] certificate = new byte[buffer.getInt()];
+        buffer.getLong();
+        buffer.get(certificate);
+        return Optional.of(new BlockReader(Certificate.fromByteArray(certificate)));
+    }
+
+    public synchronized Optional<BlockReader> findById(UUID blockId) {
+        OptionalLong height = findHeight(blockId);
+        return height.isPresent() ? findByHeight(height.getAsLong()) : Optional.empty();
+    }
+
+    public synchronized OptionalLong findHeight(UUID blockId) {
+        int entry = byBlockId[find(blockId.getMostSignificantBits(), blockId.getLeastSignificantBits())];
+        return entry == 0 ? OptionalLong.empty() : OptionalLong.of(firstHeight + entry - 1);
+    }
+
+    public synchronized Optional<UUID> findBlockId(long blockHeight) {
+        if (!contains(blockHeight)) {
+            return Optional.empty();
+        }
+        int index = (int) (blockHeight - firstHeight);
+        return Optional.of(new UUID(blockIdMostSignificant[index], blockIdLeastSignificant[index]));
+    }
+
+    /**
+     * @return the stored blocks in the range, in ascending height order
+     */
+    public Stream<BlockReader> findByHeightRange(long fromHeight, long toHeight) {
+        return Stream.iterate(fromHeight, height -> height <= toHeight, height -> height + 1)
+            .map(this::findByHeight)
+            .takeWhile(Optional::isPresent)
+            .map(Optional::get);
+    }
+
+    /**
+     * Force the stored blocks to the storage device
+     */
+    public synchronized void flush() {
+        segments.forEach(segment -> segment.buffer.force());
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Segment segment : segments) {
+            try {
+                segment.channel.close();
+            } catch (IOException e) {
+                log.warn("Error closing block store segment {}", segment.path, e);
+            }
+        }
+        segments.clear();
+    }
+
+    private void load() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+        for (int i = 0; i < paths.size(); i++) {
+            if (!segmentPath(i).equals(paths.get(i))) {
+                throw new BlockchainIOException("Block store " + directory + " is missing segment " + segmentPath(i));
+            }
+            Segment segment = openSegment(paths.get(i), Math.max(segmentSize, Files.size(paths.get(i))));
+            segments.add(segment);
+            if (!scan(segment, i)) {
+                // a torn record, so any later segments were written after it and are discarded
+                for (Path discarded : paths.subList(i + 1, paths.size())) {
+                    log.warn("Discarding block store segment {} after a torn record in {}", discarded, segment.path);
+                    Files.delete(discarded);
+                }
+                break;
+            }
+        }
+        log.info("Opened block store {} with {} blocks", directory, count);
+    }
+
+    /**
+     * Index the records in a segment
+     *
+     * @return false if the segment ends in a torn or corrupt record
+     */
+    private boolean scan(Segment segment, int segmentIndex) {
+        ByteBuffer buffer = segment.buffer.duplicate();
+        while (buffer.remaining() >= Integer.BYTES) {
+            int position = buffer.position();
+            int length = buffer.getInt();
+            if (length == 0) {
+                segment.position = position;
+                return true;
+            }
+            if (length < 0 || length > buffer.remaining() - Long.BYTES - Integer.BYTES) {
+                segment.position = position;
+                return false;
+            }
+            long height = buffer.getLong();
+            byte[] certificate = new byte[length];
+            buffer.get(certificate);
+            if (buffer.getInt() != checksum(height, certificate) || (count > 0 && height != firstHeight + count)) {
+                segment.position = position;
+                return false;
+            }
+            index(height, new BlockReader(Certificate.fromByteArray(certificate)).getBlockId(), segmentIndex, position);
+        }
+        segment.position = buffer.position();
+        return true;
+    }
+
+    private void index(long height, UUID blockId, int segmentIndex, int position) {
+        if (count == 0) {
+            firstHeight = height;
+        }
+        if (count == locations.length) {
+            int capacity = count * 2;
+            locations = Arrays.copyOf(locations, capacity);
+            blockIdMostSignificant = Arrays.copyOf(blockIdMostSignificant, capacity);
+            blockIdLeastSignificant = Arrays.copyOf(blockIdLeastSignificant, capacity);
+        }
+        locations[count] = ((long) segmentIndex << 32) | position;
+        blockIdMostSignificant[count] = blockId.getMostSignificantBits();
+        blockIdLeastSignificant[count] = blockId.getLeastSignificantBits();
+        if ((count + 1) * 2 > byBlockId.length) {
+            byBlockId = new int[byBlockId.length * 2];
+            for (int i = 0; i < count; i++) {
+                byBlockId[find(blockIdMostSignificant[i], blockIdLeastSignificant[i])] = i + 1;
+            }
+        }
+        byBlockId[find(blockIdMostSignificant[count], blockIdLeastSignificant[count])] = count + 1;
+        count++;
+    }
+
+    /**
+     * @return the slot of the table of heights by block id holding the id, or else the empty slot where it belongs
+     */
+    private int find(long msb, long lsb) {
+        int mask = byBlockId.length - 1;
+        long hash = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash >>> 32) & mask;
+        for (int entry; (entry = byBlockId[slot]) != 0; slot = (slot + 1) & mask) {
+            if (blockIdMostSignificant[entry - 1] == msb && blockIdLeastSignificant[entry - 1] == lsb) {
+                break;
+            }
+        }
+        return slot;
+    }
+
+    private int checksum(long height, byte[] certificate) {
+        crc.reset();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, height));
+        crc.update(certificate);
+        return (int) crc.getValue();
+    }
+
+    private Segment createSegment(int index) throws IOException {
+        Segment segment = openSegment(segmentPath(index), segmentSize);
+        segments.add(segment);
+        return segment;
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("blocks-%06d%s", index, SEGMENT_SUFFIX));
+    }
+
+    private static Segment openSegment(Path path, long size) throws IOException {
+        FileChannel channel = FileChannel.open(path, CREATE, READ, WRITE);
+        try {
+            return new Segment(path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int position; // where the next record is written
+
+        Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        int remaining() {
+            return buffer.capacity() - position;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.velopayments.blockchain.sdk.store;
+
+import com.velopayments.blockchain.cert.Certificate;
+import com.velopayments.blockchain.client.TransactionStatus;
+import com.velopayments.blockchain.sdk.BatchSubmission;
+import com.velopayments.blockchain.sdk.BlockReader;
+import com.velopayments.blockchain.sdk.BlockchainOperations;
+import com.velopayments.blockchain.sdk.TransactionReader;
+import com.velopayments.blockchain.sdk.guard.PreSubmitGuard;
+import com.velopayments.blockchain.sdk.vault.ExternalReference;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static com.velopayments.blockchain.cert.CertificateType.ROOT_BLOCK;
+
+/**
+ * A {@code BlockchainOperations} decorator which keeps the blocks it reads in a local {@link BlockSegmentStore}.
+ * <p>
+ * The store is filled with the consecutive blocks read by {@link #findAllBlocksAfter(UUID)}, as the sentinel poller
+ * does, and by height ranges which follow the last block stored. Blocks found by id or height, the blocks after a
+ * stored block and height ranges are then read from the store where it holds them, so that replays, restarts and
+ * historical queries only go to the underlying blockchain for the blocks after the store. Everything else goes to the
+ * underlying blockchain.
+ * <p>
+ * The stored blocks are also indexed by artifact in an {@link ArtifactTransactionIndex}, which is built from the store
+ * when the decorator is created. The store need not start at the first block, as the index covers each artifact from its
+ * first transaction.
+ */
+@Slf4j
+public class LocalBlockStoreBlockchain implements BlockchainOperations {
+
+    private final BlockchainOperations blockchain;
+    private final BlockSegmentStore store;
+    private final ArtifactTransactionIndex artifactIndex = new ArtifactTransactionIndex();
+
+    public LocalBlockStoreBlockchain(BlockchainOperations blockchain, BlockSegmentStore store) {
+        this.blockchain = Objects.requireNonNull(blockchain, "Blockchain is required");
+        this.store = Objects.requireNonNull(store, "Block store is required");
+        store.getFirstHeight().ifPresent(first -> {
+            try (Stream<BlockReader> stored = store.findByHeightRange(first, store.getLastHeight().getAsLong())) {
+                stored.forEach(artifactIndex::index);
+            }
+        });
+    }
+
+    public BlockSegmentStore getStore() {
+        return store;
+    }
+
+    public ArtifactTransactionIndex getArtifactIndex() {
+        return artifactIndex;
+    }
+
+    @Override
+    public Optional<BlockReader> findBlockById(UUID blockId) {
+        Optional<BlockReader> stored = store.findById(blockId);
+        return stored.isPresent() ? stored : blockchain.findBlockById(blockId);
+    }
+
+    @Override
+    public Stream<Optional<BlockReader>> findBlocksByIds(Collection<UUID> blockIds) {
+        List<UUID> missing = new ArrayList<>();
+        List<Optional<BlockReader>> stored = new ArrayList<>(blockIds.size());
+        for (UUID blockId : blockIds) {
+            Optional<BlockReader> block = store.findById(blockId);
+            stored.add(block);
+            if (block.isEmpty()) {
+                missing.add(blockId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return stored.stream();
+        }
+        Stream<Optional<BlockReader>> found = blockchain.findBlocksByIds(missing);
+        Iterator<Optional<BlockReader>> foundIterator = found.iterator();
+        return stored.stream()
+            .map(block -> block.isPresent() ? block : foundIterator.next())
+            .onClose(found::close);
+    }
+
+    @Override
+    public Optional<UUID> findBlockIdByBlockHeight(long blockHeight) {
+        Optional<UUID> stored = store.findBlockId(blockHeight);
+        return stored.isPresent() ? stored : blockchain.findBlockIdByBlockHeight(blockHeight);
+    }
+
+    @Override
+    public Optional<UUID> findPrevBlockId(UUID blockId) {
+        OptionalLong height = store.findHeight(blockId);
+        if (height.isPresent() && store.contains(height.getAsLong() - 1)) {
+            return store.findBlockId(height.getAsLong() - 1);
+        }
+        return blockchain.findPrevBlockId(blockId);
+    }
+
+    @Override
+    public Optional<UUID> findNextBlockId(UUID blockId) {
+        OptionalLong height = store.findHeight(blockId);
+        if (height.isPresent() && store.contains(height.getAsLong() + 1)) {
+            return store.findBlockId(height.getAsLong() + 1);
+        }
+        return blockchain.findNextBlockId(blockId);
+    }
+
+    /**
+     * Read the stored blocks after the target block, then the blocks after the store from the underlying blockchain,
+     * storing them as they are read
+     */
+    @Override
+    public Stream<BlockReader> findAllBlocksAfter(UUID targetBlock) {
+        OptionalLong targetHeight = ROOT_BLOCK.equals(targetBlock) ? OptionalLong.of(0) : store.findHeight(targetBlock);
+        OptionalLong lastHeight = store.getLastHeight();
+        if (targetHeight.isEmpty() || lastHeight.isEmpty() || !store.contains(targetHeight.getAsLong() + 1)) {
+            return blockchain.findAllBlocksAfter(targetBlock).map(this::storeFollowing);
+        }
+        long last = lastHeight.getAsLong();
+        UUID lastBlockId = store.findBlockId(last).orElseThrow();
+        return concat(
+            () -> store.findByHeightRange(targetHeight.getAsLong() + 1, last),
+            () -> blockchain.findAllBlocksAfter(lastBlockId).map(this::storeFollowing));
+    }
+
+    /**
+     * Read the part of the range held by the store from the store, and the rest from the underlying blockchain
+     */
+    @Override
+    public Stream<BlockReader> findBlocksByHeightRange(long fromHeight, long toHeight, boolean ordered) {
+        OptionalLong firstHeight = store.getFirstHeight();
+        OptionalLong lastHeight = store.getLastHeight();
+        if (firstHeight.isEmpty() || toHeight < firstHeight.getAsLong() || fromHeight > lastHeight.getAsLong()) {
+            return blockchain.findBlocksByHeightRange(fromHeight, toHeight, ordered).map(this::storeFollowing);
+        }
+        long first = firstHeight.getAsLong();
+        long last = lastHeight.getAsLong();
+        return concat(
+            () -> fromHeight < first ? blockchain.findBlocksByHeightRange(fromHeight, first - 1, ordered) : Stream.empty(),
+            () -> store.findByHeightRange(Math.max(fromHeight, first), Math.min(toHeight, last)),
+            () -> toHeight > last ? blockchain.findBlocksByHeightRange(last + 1, toHeight, ordered).map(this::storeFollowing) : Stream.empty());
+    }
+
+    /**
+     * Store a block read from the underlying blockchain if it follows the last block stored. If there are blocks
+     * missing between them, as the store fell behind, they are fetched and stored first.
+     */
+    private BlockReader storeFollowing(BlockReader block) {
+        OptionalLong lastHeight = store.getLastHeight();
+        long height = block.getBlockHeightAsLong();
+        if (lastHeight.isPresent() && height > lastHeight.getAsLong() + 1) {
+            log.info("Filling block store from height {} to {}", lastHeight.getAsLong() + 1, height - 1);
+            try (Stream<BlockReader> missing = blockchain.findBlocksByHeightRange(lastHeight.getAsLong() + 1, height - 1, true)) {
+                missing.forEach(this::append);
+            }
+        }
+        append(block);
+        return block;
+    }
+
+    /**
+     * Store and index a block, holding the lock so that concurrent readers store and index the blocks in the same order
+     */
+    private synchronized void append(BlockReader block) {
+        if (store.append(block)) {
+            artifactIndex.index(block);
+        }
+    }
+
+    /**
+     * Concatenate streams, each opened once the previous one has been read
+     */
+    @SafeVarargs
+    private static Stream<BlockReader> concat(Supplier<Stream<BlockReader>>... streams) {
+        return Stream.of(streams).flatMap(Supplier::get);
+    }
+
+    @Override
+    public Optional<TransactionReader> findTransactionById(UUID transactionId) {
+        return blockchain.findTransactionById(transactionId);
+    }
+
+    @Override
+    public Stream<Optional<TransactionReader>> findTransactionsByIds(Collection<UUID> transactionIds) {
+        return blockchain.findTransactionsByIds(transactionIds);
+    }
+
+    @Override
+    public Optional<UUID> findTransactionBlockId(UUID transactionId) {
+        return blockchain.findTransactionBlockId(transactionId);
+    }
+
+    @Override
+    public CompletableFuture<TransactionStatus> submit(Certificate transaction) {
+        return blockchain.submit(transaction);
+    }
+
+    @Override
+    public BatchSubmission submitAll(List<Certificate> transactions) {
+        return blockchain.submitAll(transactions);
+    }
+
+    @Override
+    public CompletableFuture<Certificate> addExternalReference(Certificate externalReference, InputStream inputStream) {
+        return blockchain.addExternalReference(externalReference, inputStream);
+    }
+
+    @Override
+    public boolean deleteExternalReference(Certificate externalReferenceCert) {
+        return blockchain.deleteExternalReference(externalReferenceCert);
+    }
+
+    @Override
+    public void deleteExternalReferencesByArtifactId(UUID artifactId) {
+        blockchain.deleteExternalReferencesByArtifactId(artifactId);
+    }
+
+    @Override
+    public Stream<ExternalReference> loadExternalReferences(TransactionReader reader) {
+        return blockchain.loadExternalReferences(reader);
+    }
+
+    @Override
+    public ExternalReference resolveExternalReference(Certificate externalReference) {
+        return blockchain.resolveExternalReference(externalReference);
+    }
+
+    @Override
+    public UUID getLatestBlockId() {
+        return blockchain.getLatestBlockId();
+    }
+
+    @Override
+    public Optional<UUID> findNextTransactionIdForTransactionById(UUID transactionId) {
+        return blockchain.findNextTransactionIdForTransactionById(transactionId);
+    }
+
+    @Override
+    public Optional<UUID> findPreviousTransactionIdForTransactionById(UUID transactionId) {
+        return blockchain.findPreviousTransactionIdForTransactionById(transactionId);
+    }
+
+    @Override
+    public Optional<UUID> findFirstTransactionIdForArtifactById(UUID artifactId) {
+        return blockchain.findFirstTransactionIdForArtifactById(artifactId);
+    }
+
+    @Override
+    public Optional<UUID> findLastTransactionIdForArtifactById(UUID artifactId) {
+        return blockchain.findLastTransactionIdForArtifactById(artifactId);
+    }
+
+    @Override
+    public Optional<UUID> findLastBlockIdForArtifactById(UUID artifactId) {
+        return blockchain.findLastBlockIdForArtifactById(artifactId);
+    }
+
+    @Override
+    public void register(PreSubmitGuard guard) {
+        blockchain.register(guard);
+    }
+
+    @Override
+    public void unregister(PreSubmitGuard guard) {
+        blockchain.unregister(guard);
+    }
+
+    @Override
+    public void close() {
+        store.close();
+        blockchain.close();
+    }
+}
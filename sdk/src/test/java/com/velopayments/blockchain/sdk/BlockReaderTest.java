@@ -0,0 +1,85 @@
+package com.velopayments.blockchain.sdk;
+
+import com.velopayments.blockchain.cert.Certificate;
+import com.velopayments.blockchain.cert.CertificateBuilder;
+import com.velopayments.blockchain.cert.CertificateType;
+import com.velopayments.blockchain.cert.Field;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class BlockReaderTest {
+
+    @Test
+    public void transactionsAreReadLazilyAndOnce() {
+        UUID tx1Id = randomUUID();
+        UUID tx2Id = randomUUID();
+        BlockReader block = block(transaction(tx1Id), transaction(tx2Id));
+
+        assertThat(block.transactionCount()).isEqualTo(2);
+        TransactionReader tx2 = block.getTransaction(1);
+        assertThat(tx2.getTransactionId()).isEqualTo(tx2Id);
+        assertThat(block.getTransaction(1)).isSameAs(tx2);
+
+        List<TransactionReader> transactions = block.getTransactions();
+        assertThat(transactions).hasSize(2);
+        assertThat(transactions.get(1)).isSameAs(tx2);
+        transactions.remove(0); // a copy, which callers may modify
+        assertThat(block.getTransactions()).hasSize(2);
+        assertThat(block.getTransactionStream().map(TransactionReader::getTransactionId).collect(toList()))
+            .containsExactly(tx1Id, tx2Id);
+    }
+
+    @Test
+    public void emptyBlockHasNoTransactions() {
+        BlockReader block = block();
+
+        assertThat(block.transactionCount()).isZero();
+        assertThat(block.getTransactions()).isEmpty();
+        assertThat(block.getTransactionStream()).isEmpty();
+    }
+
+    @Test
+    public void blockHeightIsReadWithoutBoxing() {
+        BlockReader block = block();
+
+        assertThat(block.getBlockHeightAsLong()).isEqualTo(1L);
+        assertThat(block.getBlockHeight()).isEqualTo(1L);
+    }
+
+    @Test
+    public void missingBlockHeightIsAnError() {
+        BlockReader block = new BlockReader(CertificateBuilder.createCertificateBuilder(CertificateType.BLOCK)
+            .addUUID(Field.BLOCK_UUID, randomUUID())
+            .emit());
+
+        assertThat(block.getBlockHeight()).isNull();
+        assertThat(catchThrowable(block::getBlockHeightAsLong)).isInstanceOf(BlockchainException.class);
+    }
+
+    private static BlockReader block(Certificate... transactions) {
+        CertificateBuilder builder = CertificateBuilder.createCertificateBuilder(CertificateType.BLOCK)
+            .addUUID(Field.BLOCK_UUID, randomUUID())
+            .addLong(Field.BLOCK_HEIGHT, 1L);
+        for (Certificate transaction : transactions) {
+            builder.addByteArray(Field.WRAPPED_TRANSACTION_TUPLE, transaction.toByteArray());
+        }
+        return new BlockReader(builder.emit());
+    }
+
+    private static Certificate transaction(UUID transactionId) {
+        return BlockchainUtils.transactionCertificateBuilder()
+            .transactionId(transactionId)
+            .transactionType(randomUUID())
+            .artifactId(randomUUID())
+            .artifactType(randomUUID())
+            .withFields()
+            .emit();
+    }
+}
@@ -0,0 +1,31 @@
+package com.velopayments.blockchain.sdk;
+
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class PollBackoffTest {
+
+    @Test
+    public void idleDelayDoublesUpToTheMaximum() {
+        PollBackoff backoff = new PollBackoff(Duration.ofMillis(100), Duration.ofMillis(350));
+
+        assertThat(backoff.idle()).isEqualTo(100);
+        assertThat(backoff.idle()).isEqualTo(200);
+        assertThat(backoff.idle()).isEqualTo(350);
+        assertThat(backoff.idle()).isEqualTo(350);
+
+        backoff.reset();
+        assertThat(backoff.idle()).isEqualTo(100);
+    }
+
+    @Test
+    public void maximumMayNotBeLessThanMinimum() {
+        Throwable thrown = catchThrowable(() -> new PollBackoff(Duration.ofSeconds(2), Duration.ofSeconds(1)));
+
+        assertThat(thrown).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,280 @@
+package com.velopayments.blockchain.sdk;
+
+import com.velopayments.blockchain.client.RemoteAgentConfiguration;
+import com.velopayments.blockchain.client.RemoteAgentConnection;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.*;
+
+public class RemoteAgentConnectionPoolTest {
+
+    private final RemoteAgentConfiguration agentConfig = new RemoteAgentConfiguration("localhost", RemoteBlockchain.DEFAULT_AGENTD_PORT, UUID.randomUUID(), null);
+    private final List<RemoteAgentConnection> opened = new ArrayList<>();
+
+    private RemoteBlockchain.RemoteAgentConnectionPool pool;
+
+    @After
+    public void tearDown() throws Exception {
+        if (pool != null) pool.clear();
+    }
+
+    @Test
+    public void fixedPoolOpensAllConnectionsOnInitialize() throws Exception {
+        pool = createPool(4, 4, null);
+        pool.initialize();
+
+        assertThat(pool.openConnections()).isEqualTo(4);
+        assertThat(pool.idleConnections()).isEqualTo(4);
+    }
+
+    @Test
+    public void elasticPoolGrowsOnDemandUpToMaximum() throws Exception {
+        pool = createPool(1, 3, null);
+        pool.initialize();
+        assertThat(pool.openConnections()).isEqualTo(1);
+
+        RemoteAgentConnection c1 = pool.borrowConnection();
+        RemoteAgentConnection c2 = pool.borrowConnection();
+        RemoteAgentConnection c3 = pool.borrowConnection();
+        assertThat(pool.openConnections()).isEqualTo(3);
+        assertThat(opened).containsExactlyInAnyOrder(c1, c2, c3);
+
+        try {
+            pool.borrowConnection();
+            fail("Borrowing beyond the maximum should fail");
+        } catch (BlockchainIOException e) {
+            assertThat(e).hasMessage("Connection pool depleted");
+        }
+
+        pool.returnConnection(c2);
+        assertThat(pool.borrowConnection()).isSameAs(c2);
+        assertThat(pool.openConnections()).isEqualTo(3);
+    }
+
+    @Test
+    public void elasticPoolEvictsIdleConnectionsDownToMinimum() throws Exception {
+        pool = createPool(1, 3, Duration.ZERO);
+        pool.initialize();
+
+        List<RemoteAgentConnection> borrowed = List.of(pool.borrowConnection(), pool.borrowConnection(), pool.borrowConnection());
+        borrowed.forEach(pool::returnConnection);
+        assertThat(pool.idleConnections()).isEqualTo(3);
+
+        pool.checkCapacity();
+        assertThat(pool.openConnections()).isEqualTo(1);
+        assertThat(pool.idleConnections()).isEqualTo(1);
+    }
+
+    @Test
+    public void connectionsInUseDoNotCountTowardsMinimumIdle() throws Exception {
+        pool = createPool(1, 3, Duration.ZERO);
+        pool.initialize();
+
+        RemoteAgentConnection busy = pool.borrowConnection();
+        RemoteAgentConnection idle = pool.borrowConnection();
+        pool.returnConnection(idle);
+        assertThat(pool.openConnections()).isEqualTo(2);
+
+        pool.checkCapacity();
+        assertThat(pool.openConnections()).isEqualTo(2);
+        assertThat(pool.idleConnections()).isEqualTo(1);
+        pool.returnConnection(busy);
+    }
+
+    @Test
+    public void elasticPoolHasADefaultIdleTimeout() throws Exception {
+        pool = createPool(1, 3, null);
+        pool.initialize();
+
+        List<RemoteAgentConnection> borrowed = List.of(pool.borrowConnection(), pool.borrowConnection());
+        borrowed.forEach(pool::returnConnection);
+
+        // not idle for long enough to be evicted, but eventually would be
+        pool.checkCapacity();
+        assertThat(pool.openConnections()).isEqualTo(2);
+        assertThat(pool.getIdleTimeout()).isEqualTo(RemoteBlockchain.RemoteAgentConnectionPool.DEFAULT_IDLE_TIMEOUT);
+    }
+
+    @Test
+    public void failedConnectionsAreReplacedByWatchdog() throws Exception {
+        pool = createPool(2, 2, null);
+        pool.initialize();
+
+        RemoteAgentConnection conn = pool.borrowConnection();
+        when(conn.getConnectionStatus()).thenReturn(CompletableFuture.completedFuture(-1));
+        pool.returnConnection(conn, true);
+        await().until(() -> pool.openConnections() == 1);
+
+        pool.checkCapacity();
+        assertThat(pool.openConnections()).isEqualTo(2);
+        assertThat(pool.idleConnections()).isEqualTo(2);
+    }
+
+    @Test
+    public void connectionsAreNotCheckedOnReturnByDefault() throws Exception {
+        pool = createPool(1, 1, null);
+        pool.initialize();
+
+        RemoteAgentConnection conn = pool.borrowConnection();
+        pool.returnConnection(conn);
+
+        verify(conn, never()).getConnectionStatus();
+        assertThat(pool.borrowConnection()).isSameAs(conn);
+    }
+
+    @Test
+    public void connectionsAreCheckedOnReturnWhenConfigured() throws Exception {
+        pool = createPool(1, 1, null, AgentConnectionValidation.ON_RETURN, Duration.ofSeconds(30));
+        pool.initialize();
+
+        RemoteAgentConnection conn = pool.borrowConnection();
+        pool.returnConnection(conn);
+
+        verify(conn, timeout(1000).times(1)).getConnectionStatus();
+    }
+
+    @Test
+    public void idleConnectionsAreCheckedOnBorrow() throws Exception {
+        pool = createPool(1, 1, null, AgentConnectionValidation.ON_BORROW_AFTER_IDLE, Duration.ZERO);
+        pool.initialize();
+
+        RemoteAgentConnection stale = opened.get(0);
+        when(stale.getConnectionStatus()).thenReturn(CompletableFuture.completedFuture(-1));
+
+        RemoteAgentConnection conn = pool.borrowConnection();
+        assertThat(conn).isNotSameAs(stale);
+        verify(stale).close();
+        assertThat(pool.openConnections()).isEqualTo(1);
+    }
+
+    @Test
+    public void idleConnectionsAreCheckedInBackground() throws Exception {
+        pool = createPool(2, 2, null, AgentConnectionValidation.BACKGROUND, Duration.ZERO);
+        pool.initialize();
+
+        RemoteAgentConnection stale = opened.get(0);
+        when(stale.getConnectionStatus()).thenReturn(CompletableFuture.completedFuture(-1));
+
+        pool.checkCapacity();
+        verify(stale).close();
+        verify(opened.get(1), times(1)).getConnectionStatus();
+        assertThat(pool.openConnections()).isEqualTo(2);
+    }
+
+    @Test
+    public void multiplexedPoolSharesConnectionsUpToRequestLimit() throws Exception {
+        pool = createMultiplexedPool(1, 2, 3);
+        pool.initialize();
+
+        List<RemoteAgentConnection> borrowed = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            borrowed.add(pool.borrowConnection());
+        }
+        assertThat(pool.openConnections()).isEqualTo(1);
+        assertThat(borrowed).containsOnly(opened.get(0));
+        assertThat(pool.idleConnections()).isEqualTo(0);
+
+        // the first connection is fully loaded, so the pool grows
+        borrowed.add(pool.borrowConnection());
+        assertThat(pool.openConnections()).isEqualTo(2);
+        assertThat(borrowed.get(3)).isSameAs(opened.get(1));
+
+        // borrowers are given the least loaded connection
+        borrowed.add(pool.borrowConnection());
+        assertThat(borrowed.get(4)).isSameAs(opened.get(1));
+
+        borrowed.add(pool.borrowConnection());
+        try {
+            pool.borrowConnection();
+            fail("Borrowing beyond the request limit should fail");
+        } catch (BlockchainIOException e) {
+            assertThat(e).hasMessage("Connection pool depleted");
+        }
+
+        borrowed.forEach(pool::returnConnection);
+        assertThat(pool.idleConnections()).isEqualTo(2);
+        assertThat(pool.openConnections()).isEqualTo(2);
+    }
+
+    @Test
+    public void failedMultiplexedConnectionIsRetiredOnce() throws Exception {
+        pool = createMultiplexedPool(1, 1, 2);
+        pool.initialize();
+
+        RemoteAgentConnection c1 = pool.borrowConnection();
+        RemoteAgentConnection c2 = pool.borrowConnection();
+        assertThat(c1).isSameAs(c2);
+        when(c1.getConnectionStatus()).thenReturn(CompletableFuture.completedFuture(-1));
+
+        pool.returnConnection(c1, true);
+        pool.returnConnection(c2, true);
+        await().until(() -> pool.openConnections() == 0);
+        verify(c1, timeout(1000).times(1)).close();
+
+        // all permits are back, so the pool can be topped up and lent to its limit again
+        pool.checkCapacity();
+        RemoteAgentConnection replacement = pool.borrowConnection();
+        assertThat(replacement).isNotSameAs(c1);
+        assertThat(pool.borrowConnection()).isSameAs(replacement);
+    }
+
+    @Test
+    public void borrowerIsWokenOnceTheConnectionBeingOpenedIsAdded() throws Exception {
+        CountDownLatch opening = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        pool = new RemoteBlockchain.RemoteAgentConnectionPool(agentConfig, () -> {
+            opening.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return openConnection();
+        }, 0, 1, 2, Duration.ofSeconds(5), null, AgentConnectionValidation.ON_ERROR, Duration.ofSeconds(30));
+        pool.initialize();
+
+        // the first borrower opens the only connection the pool may have, which the second waits for
+        CompletableFuture<RemoteAgentConnection> first = CompletableFuture.supplyAsync(pool::borrowConnection);
+        opening.await(1, TimeUnit.SECONDS);
+        CompletableFuture<RemoteAgentConnection> second = pool.borrowAsync();
+        assertThat(second).isNotDone();
+
+        release.countDown();
+        RemoteAgentConnection conn = first.get(1, TimeUnit.SECONDS);
+        assertThat(second.get(1, TimeUnit.SECONDS)).isSameAs(conn);
+        assertThat(pool.openConnections()).isEqualTo(1);
+    }
+
+    private RemoteBlockchain.RemoteAgentConnectionPool createPool(int minIdle, int max, Duration idleTimeout) {
+        return createPool(minIdle, max, idleTimeout, AgentConnectionValidation.ON_ERROR, Duration.ofSeconds(30));
+    }
+
+    private RemoteBlockchain.RemoteAgentConnectionPool createPool(int minIdle, int max, Duration idleTimeout, AgentConnectionValidation validation, Duration validationInterval) {
+        return new RemoteBlockchain.RemoteAgentConnectionPool(agentConfig, this::openConnection, minIdle, max, 1, Duration.ofMillis(100), idleTimeout, validation, validationInterval);
+    }
+
+    private RemoteBlockchain.RemoteAgentConnectionPool createMultiplexedPool(int minIdle, int max, int requestsPerConnection) {
+        return new RemoteBlockchain.RemoteAgentConnectionPool(agentConfig, this::openConnection, minIdle, max, requestsPerConnection, Duration.ofMillis(100), null,
+            AgentConnectionValidation.ON_ERROR, Duration.ofSeconds(30));
+    }
+
+    private RemoteAgentConnection openConnection() throws IOException {
+        RemoteAgentConnection connection = mock(RemoteAgentConnection.class);
+        when(connection.getConnectionStatus()).thenReturn(CompletableFuture.completedFuture(0));
+        opened.add(connection);
+        return connection;
+    }
+}
@@ -0,0 +1,280 @@
+package com.velopayments.blockchain.sdk;
+
+import com.velopayments.blockchain.cert.Certificate;
+import com.velopayments.blockchain.cert.CertificateBuilder;
+import com.velopayments.blockchain.cert.CertificateType;
+import com.velopayments.blockchain.cert.Field;
+import com.velopayments.blockchain.client.RemoteAgentConfiguration;
+import com.velopayments.blockchain.client.RemoteAgentConnection;
+import com.velopayments.blockchain.sdk.guard.GuardRegistry;
+import com.velopayments.blockchain.sdk.vault.RemoteVault;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class RemoteBlockchainAsyncTest {
+
+    private RemoteAgentConnection connection;
+    private RemoteBlockchain.RemoteAgentConnectionPool pool;
+    private RemoteBlockchain blockchain;
+
+    @Before
+    public void setUp() throws Exception {
+        connection = mock(RemoteAgentConnection.class);
+        when(connection.getConnectionStatus()).thenReturn(CompletableFuture.completedFuture(0));
+        pool = new RemoteBlockchain.RemoteAgentConnectionPool(
+            new RemoteAgentConfiguration("localhost", RemoteBlockchain.DEFAULT_AGENTD_PORT, randomUUID(), null),
+            () -> connection, 1, 1, 1, Duration.ofMillis(100), null, AgentConnectionValidation.ON_ERROR, Duration.ofSeconds(30));
+        blockchain = new RemoteBlockchain(pool, new RemoteVault(URI.create("http://localhost:11001")), new GuardRegistry());
+        blockchain.start();
+    }
+
+    @After
+    public void tearDown() {
+        blockchain.close();
+    }
+
+    @Test
+    public void connectionIsHeldUntilResponse() throws Exception {
+        UUID blockId = randomUUID();
+        CompletableFuture<Optional<UUID>> response = new CompletableFuture<>();
+        when(connection.getNextBlockId(blockId)).thenReturn(response);
+
+        CompletableFuture<Optional<UUID>> result = blockchain.findNextBlockIdAsync(blockId);
+        assertThat(result).isNotDone();
+        assertThat(pool.idleConnections()).isEqualTo(0);
+
+        UUID nextBlockId = randomUUID();
+        response.complete(Optional.of(nextBlockId));
+        assertThat(result.join()).hasValue(nextBlockId);
+        assertThat(pool.idleConnections()).isEqualTo(1);
+    }
+
+    @Test
+    public void requestsWaitForAConnectionWithoutBlocking() throws Exception {
+        UUID blockId1 = randomUUID();
+        UUID blockId2 = randomUUID();
+        CompletableFuture<Optional<UUID>> response1 = new CompletableFuture<>();
+        when(connection.getNextBlockId(blockId1)).thenReturn(response1);
+        UUID nextBlockId = randomUUID();
+        when(connection.getNextBlockId(blockId2)).thenReturn(CompletableFuture.completedFuture(Optional.of(nextBlockId)));
+
+        CompletableFuture<Optional<UUID>> result1 = blockchain.findNextBlockIdAsync(blockId1);
+        // the pool's only connection is held, so the second request waits for it without holding up this thread
+        CompletableFuture<Optional<UUID>> result2 = blockchain.findNextBlockIdAsync(blockId2);
+        assertThat(result2).isNotDone();
+        verify(connection, never()).getNextBlockId(blockId2);
+
+        response1.complete(Optional.empty());
+        assertThat(result1.join()).isEmpty();
+        assertThat(result2.get(1, TimeUnit.SECONDS)).hasValue(nextBlockId);
+        await().until(() -> pool.idleConnections() == 1);
+    }
+
+    @Test
+    public void requestsWaitingForAConnectionTimeOut() throws Exception {
+        UUID blockId = randomUUID();
+        when(connection.getNextBlockId(blockId)).thenReturn(new CompletableFuture<>());
+        blockchain.findNextBlockIdAsync(blockId);
+
+        CompletableFuture<Optional<UUID>> waiting = blockchain.findPrevBlockIdAsync(blockId);
+        assertThat(waiting).isNotDone();
+
+        Throwable thrown = catchThrowable(() -> waiting.get(1, TimeUnit.SECONDS));
+        assertThat(thrown).hasCauseInstanceOf(BlockchainIOException.class);
+        assertThat(thrown.getCause()).hasMessage("Connection pool depleted");
+        verify(connection, never()).getPrevBlockId(blockId);
+    }
+
+    @Test
+    public void certificatesAreWrappedInReaders() throws Exception {
+        UUID transactionId = randomUUID();
+        Certificate transaction = BlockchainUtils.transactionCertificateBuilder()
+            .transactionId(transactionId)
+            .transactionType(randomUUID())
+            .artifactId(randomUUID())
+            .artifactType(randomUUID())
+            .withFields()
+            .emit();
+        when(connection.getTransactionById(transactionId)).thenReturn(CompletableFuture.completedFuture(Optional.of(transaction)));
+
+        assertThat(blockchain.findTransactionByIdAsync(transactionId).join())
+            .hasValueSatisfying(reader -> assertThat(reader.getTransactionId()).isEqualTo(transactionId));
+    }
+
+    @Test
+    public void requestFailuresCompleteExceptionally() throws Exception {
+        UUID blockId = randomUUID();
+        when(connection.getBlockById(blockId)).thenThrow(new IOException("pow"));
+
+        Throwable thrown = catchThrowable(() -> blockchain.findBlockByIdAsync(blockId).join());
+        assertThat(thrown).isInstanceOf(CompletionException.class)
+            .hasCauseInstanceOf(BlockchainIOException.class);
+
+        thrown = catchThrowable(() -> blockchain.findBlockById(blockId));
+        assertThat(thrown).isInstanceOf(BlockchainIOException.class)
+            .hasMessage("Could not read block id " + blockId);
+    }
+
+    @Test
+    public void bulkLookupsAreOrderedAndReportMisses() throws Exception {
+        UUID found1 = randomUUID();
+        UUID missing = randomUUID();
+        UUID found2 = randomUUID();
+        when(connection.getTransactionById(found1)).thenReturn(CompletableFuture.completedFuture(Optional.of(transaction(found1))));
+        when(connection.getTransactionById(missing)).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+        when(connection.getTransactionById(found2)).thenReturn(CompletableFuture.completedFuture(Optional.of(transaction(found2))));
+
+        List<Optional<UUID>> results = blockchain.findTransactionsByIds(List.of(found1, missing, found2))
+            .map(result -> result.map(TransactionReader::getTransactionId))
+            .collect(Collectors.toList());
+        assertThat(results).containsExactly(Optional.of(found1), Optional.empty(), Optional.of(found2));
+    }
+
+    @Test
+    public void bulkLookupsAreLimitedToPoolCapacity() throws Exception {
+        UUID blockId1 = randomUUID();
+        UUID blockId2 = randomUUID();
+        CompletableFuture<Optional<Certificate>> response1 = new CompletableFuture<>();
+        when(connection.getBlockById(blockId1)).thenReturn(response1);
+        when(connection.getBlockById(blockId2)).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+        CompletableFuture<List<Optional<BlockReader>>> results = CompletableFuture.supplyAsync(() ->
+            blockchain.findBlocksByIds(List.of(blockId1, blockId2)).collect(Collectors.toList()));
+
+        // the pool has a single connection, so the second lookup waits for the first
+        verify(connection, timeout(1000)).getBlockById(blockId1);
+        verify(connection, never()).getBlockById(blockId2);
+
+        response1.complete(Optional.empty());
+        assertThat(results.get(1, TimeUnit.SECONDS)).containsExactly(Optional.empty(), Optional.empty());
+    }
+
+    @Test
+    public void blocksAfterAreReadInHeightOrderWithoutRecursion() throws Exception {
+        int blockCount = 10_000;
+        UUID afterBlockId = new UUID(0, 1);
+        stubBlocksUpToHeight(blockCount);
+
+        List<Long> heights = blockchain.findAllBlocksAfter(afterBlockId)
+            .map(BlockReader::getBlockHeight)
+            .collect(Collectors.toList());
+
+        assertThat(heights).hasSize(blockCount - 1);
+        assertThat(heights.get(0)).isEqualTo(2L);
+        assertThat(heights.get(heights.size() - 1)).isEqualTo((long) blockCount);
+        assertThat(heights).isSorted();
+    }
+
+    @Test
+    public void noBlocksAfterUnknownBlock() throws Exception {
+        UUID blockId = randomUUID();
+        when(connection.getNextBlockId(blockId)).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+        assertThat(blockchain.findAllBlocksAfter(blockId)).isEmpty();
+        verify(connection, never()).getBlockIdByBlockHeight(anyLong());
+    }
+
+    @Test
+    public void idleTailCostsOneRequest() throws Exception {
+        stubBlocksUpToHeight(5);
+
+        assertThat(blockchain.findAllBlocksAfter(new UUID(0, 5))).isEmpty();
+        verify(connection, times(1)).getNextBlockId(new UUID(0, 5));
+        verify(connection, never()).getBlockById(any(UUID.class));
+        verify(connection, never()).getBlockIdByBlockHeight(anyLong());
+
+        // a single new block is followed by a single lookup past it
+        assertThat(blockchain.findAllBlocksAfter(new UUID(0, 4)).map(BlockReader::getBlockHeight)).containsExactly(5L);
+        verify(connection, times(1)).getBlockById(any(UUID.class));
+        verify(connection, times(1)).getBlockIdByBlockHeight(anyLong());
+    }
+
+    @Test
+    public void heightRangeIsClippedToLatestBlock() throws Exception {
+        stubBlocksUpToHeight(10);
+
+        assertThat(blockchain.findBlocksByHeightRange(3, 100).map(BlockReader::getBlockHeight))
+            .containsExactly(3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+        assertThat(blockchain.findBlocksByHeightRange(11, 100)).isEmpty();
+        assertThat(blockchain.findBlocksByHeightRange(5, 4)).isEmpty();
+    }
+
+    @Test
+    public void unorderedHeightRangeGivesBlocksAsTheyArrive() throws Exception {
+        stubBlocksUpToHeight(10);
+        UUID slowBlockId = new UUID(0, 2);
+        CompletableFuture<Optional<Certificate>> slowBlock = new CompletableFuture<>();
+        when(connection.getBlockById(slowBlockId)).thenReturn(slowBlock);
+
+        RemoteBlockchain.RemoteAgentConnectionPool multiplexed = new RemoteBlockchain.RemoteAgentConnectionPool(
+            new RemoteAgentConfiguration("localhost", RemoteBlockchain.DEFAULT_AGENTD_PORT, randomUUID(), null),
+            () -> connection, 1, 1, 4, Duration.ofMillis(100), null, AgentConnectionValidation.ON_ERROR, Duration.ofSeconds(30));
+        RemoteBlockchain multiplexedBlockchain = new RemoteBlockchain(multiplexed, new RemoteVault(URI.create("http://localhost:11001")), new GuardRegistry());
+        multiplexedBlockchain.start();
+        try {
+            Iterator<BlockReader> blocks = multiplexedBlockchain.findBlocksByHeightRange(1, 3, false).iterator();
+            assertThat(blocks.next().getBlockHeight()).isEqualTo(1L);
+            assertThat(blocks.next().getBlockHeight()).isEqualTo(3L);
+
+            slowBlock.complete(Optional.of(block(slowBlockId, 2)));
+            assertThat(blocks.next().getBlockHeight()).isEqualTo(2L);
+            assertThat(blocks.hasNext()).isFalse();
+        } finally {
+            multiplexedBlockchain.close();
+        }
+    }
+
+    private void stubBlocksUpToHeight(long latestHeight) throws IOException {
+        when(connection.getLatestBlockId()).thenReturn(CompletableFuture.completedFuture(new UUID(0, latestHeight)));
+        when(connection.getNextBlockId(any(UUID.class))).thenAnswer(invocation -> {
+            long height = ((UUID) invocation.getArguments()[0]).getLeastSignificantBits();
+            return CompletableFuture.completedFuture(height < latestHeight ? Optional.of(new UUID(0, height + 1)) : Optional.empty());
+        });
+        when(connection.getBlockIdByBlockHeight(anyLong())).thenAnswer(invocation -> {
+            long height = (Long) invocation.getArguments()[0];
+            return CompletableFuture.completedFuture(height <= latestHeight ? Optional.of(new UUID(0, height)) : Optional.empty());
+        });
+        when(connection.getBlockById(any(UUID.class))).thenAnswer(invocation -> {
+            UUID blockId = (UUID) invocation.getArguments()[0];
+            return CompletableFuture.completedFuture(Optional.of(block(blockId, blockId.getLeastSignificantBits())));
+        });
+    }
+
+    private Certificate block(UUID blockId, long blockHeight) {
+        return CertificateBuilder.createCertificateBuilder(CertificateType.BLOCK)
+            .addUUID(Field.BLOCK_UUID, blockId)
+            .addLong(Field.BLOCK_HEIGHT, blockHeight)
+            .emit();
+    }
+
+    private Certificate transaction(UUID transactionId) {
+        return BlockchainUtils.transactionCertificateBuilder()
+            .transactionId(transactionId)
+            .transactionType(randomUUID())
+            .artifactId(randomUUID())
+            .artifactType(randomUUID())
+            .withFields()
+            .emit();
+    }
+}
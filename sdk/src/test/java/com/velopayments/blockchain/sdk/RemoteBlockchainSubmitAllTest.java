@@ -0,0 +1,150 @@
+package com.velopayments.blockchain.sdk;
+
+import com.velopayments.blockchain.cert.Certificate;
+import com.velopayments.blockchain.client.RemoteAgentConfiguration;
+import com.velopayments.blockchain.client.RemoteAgentConnection;
+import com.velopayments.blockchain.client.TransactionStatus;
+import com.velopayments.blockchain.sdk.aggregate.GuardedTransactionException;
+import com.velopayments.blockchain.sdk.guard.GuardRegistry;
+import com.velopayments.blockchain.sdk.vault.RemoteVault;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.velopayments.blockchain.sdk.BlockchainUtils.INITIAL_TRANSACTION_UUID;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class RemoteBlockchainSubmitAllTest {
+
+    private final List<RemoteAgentConnection> opened = new ArrayList<>();
+    private final Map<UUID, CompletableFuture<TransactionStatus>> pending = new ConcurrentHashMap<>();
+    private final Map<UUID, RemoteAgentConnection> submittedOn = new ConcurrentHashMap<>();
+    private final GuardRegistry guardRegistry = new GuardRegistry();
+    private RemoteBlockchain blockchain;
+
+    @Before
+    public void setUp() throws Exception {
+        RemoteBlockchain.RemoteAgentConnectionPool pool = new RemoteBlockchain.RemoteAgentConnectionPool(
+            new RemoteAgentConfiguration("localhost", RemoteBlockchain.DEFAULT_AGENTD_PORT, randomUUID(), null),
+            this::openConnection, 2, 2, 1, Duration.ofMillis(100), null, AgentConnectionValidation.ON_ERROR, Duration.ofSeconds(30));
+        blockchain = new RemoteBlockchain(pool, new RemoteVault(URI.create("http://localhost:11001")), guardRegistry, 2, RemoteBlockchain.DEFAULT_BLOCK_READ_AHEAD);
+        blockchain.start();
+    }
+
+    @After
+    public void tearDown() {
+        blockchain.close();
+    }
+
+    @Test
+    public void statusesAreGivenInSubmissionOrder() throws Exception {
+        List<Certificate> transactions = List.of(transaction(randomUUID()), transaction(randomUUID()));
+
+        BatchSubmission submission = blockchain.submitAll(transactions);
+        assertThat(submission.size()).isEqualTo(2);
+        assertThat(submission.all()).isNotDone();
+
+        complete(transactions.get(1), TransactionStatus.FAILED);
+        complete(transactions.get(0), TransactionStatus.SUCCEEDED);
+        assertThat(submission.getStatus(0).get(1, TimeUnit.SECONDS)).isEqualTo(TransactionStatus.SUCCEEDED);
+        assertThat(submission.all().get(1, TimeUnit.SECONDS)).containsExactly(TransactionStatus.SUCCEEDED, TransactionStatus.FAILED);
+        assertThat(submission.overallStatus().get(1, TimeUnit.SECONDS)).isEqualTo(TransactionStatus.FAILED);
+    }
+
+    @Test
+    public void guardRejectionSubmitsNothing() throws Exception {
+        UUID rejectedArtifactId = randomUUID();
+        guardRegistry.register((transaction, blockchain) -> {
+            if (rejectedArtifactId.equals(transaction.getArtifactId())) {
+                throw new GuardedTransactionException("Rejected");
+            }
+        });
+
+        Throwable thrown = catchThrowable(() -> blockchain.submitAll(List.of(transaction(randomUUID()), transaction(rejectedArtifactId))));
+        assertThat(thrown).isInstanceOf(GuardedTransactionException.class);
+        for (RemoteAgentConnection connection : opened) {
+            verify(connection, never()).submit(any(Certificate.class));
+        }
+    }
+
+    @Test
+    public void transactionsForAnArtifactShareAConnection() throws Exception {
+        UUID artifactId = randomUUID();
+        List<Certificate> transactions = List.of(transaction(artifactId), transaction(artifactId));
+
+        blockchain.submitAll(transactions);
+
+        RemoteAgentConnection used = submittedOn.get(transactionId(transactions.get(0)));
+        assertThat(submittedOn.get(transactionId(transactions.get(1)))).isSameAs(used);
+        InOrder inOrder = inOrder(used);
+        inOrder.verify(used).submit(transactions.get(0));
+        inOrder.verify(used).submit(transactions.get(1));
+    }
+
+    @Test
+    public void submissionIsHeldBackWhileTooManyTransactionsAreInFlight() throws Exception {
+        List<Certificate> transactions = List.of(transaction(randomUUID()), transaction(randomUUID()), transaction(randomUUID()));
+
+        CompletableFuture<BatchSubmission> submission = CompletableFuture.supplyAsync(() -> blockchain.submitAll(transactions));
+        await().until(() -> pending.size() == 2);
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertThat(pending).hasSize(2);
+        assertThat(submission).isNotDone();
+
+        complete(transactions.get(0), TransactionStatus.SUCCEEDED);
+        await().until(() -> pending.size() == 3);
+        complete(transactions.get(1), TransactionStatus.SUCCEEDED);
+        complete(transactions.get(2), TransactionStatus.SUCCEEDED);
+        assertThat(submission.get(1, TimeUnit.SECONDS).overallStatus().get(1, TimeUnit.SECONDS)).isEqualTo(TransactionStatus.SUCCEEDED);
+    }
+
+    private void complete(Certificate transaction, TransactionStatus status) {
+        pending.get(transactionId(transaction)).complete(status);
+    }
+
+    private UUID transactionId(Certificate transaction) {
+        return new TransactionReader(transaction).getTransactionId();
+    }
+
+    private Certificate transaction(UUID artifactId) {
+        return BlockchainUtils.transactionCertificateBuilder()
+            .transactionId(randomUUID())
+            .previousTransactionId(INITIAL_TRANSACTION_UUID)
+            .transactionType(randomUUID())
+            .artifactId(artifactId)
+            .artifactType(randomUUID())
+            .withFields()
+            .emit();
+    }
+
+    private RemoteAgentConnection openConnection() throws IOException {
+        RemoteAgentConnection connection = mock(RemoteAgentConnection.class);
+        when(connection.getConnectionStatus()).thenReturn(CompletableFuture.completedFuture(0));
+        when(connection.submit(any(Certificate.class))).thenAnswer(invocation -> {
+            Certificate transaction = (Certificate) invocation.getArguments()[0];
+            CompletableFuture<TransactionStatus> status = new CompletableFuture<>();
+            submittedOn.put(transactionId(transaction), connection);
+            pending.put(transactionId(transaction), status);
+            return status;
+        });
+        opened.add(connection);
+        return connection;
+    }
+}
@@ -2,19 +2,44 @@ package com.velopayments.blockchain.sdk;
 
 import com.google.common.collect.Iterables;
 import com.velopayments.blockchain.cert.CertificateBuilder;
+import com.velopayments.blockchain.cert.CertificateType;
+import com.velopayments.blockchain.cert.Field;
+import com.velopayments.blockchain.sdk.sentinel.Sentinel;
+import com.velopayments.blockchain.sdk.sentinel.SentinelRegistry;
+import com.velopayments.blockchain.sdk.sentinel.criteria.Criteria;
+import com.velopayments.blockchain.sdk.sentinel.offsetstore.AppendOnlyOffsetStore;
+import com.velopayments.blockchain.sdk.sentinel.offsetstore.BlockOffset;
 import org.junit.Before;
 import org.junit.Ignore;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.Vector;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static com.velopayments.blockchain.cert.CertificateType.ROOT_BLOCK;
 import static com.velopayments.blockchain.sdk.BlockchainUtils.INITIAL_TRANSACTION_UUID;
 import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class SentinelContainerTest {
 
@@ -24,6 +49,9 @@ public class SentinelContainerTest {
     SentinelContainer sentinelContainer;
     BlockchainOperations blockchain;
 
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     @Before
     public void setup() {
         this.blockchain = mock(BlockchainOperations.class);
@@ -66,6 +94,76 @@ public class SentinelContainerTest {
         assertEquals(3, blockIds.size());
     }
 
+    @Test
+    public void blockNotificationTriggersAPoll() throws Exception {
+        AtomicInteger polls = new AtomicInteger();
+        when(blockchain.findAllBlocksAfter(any())).thenAnswer(invocation -> {
+            polls.incrementAndGet();
+            return Stream.empty();
+        });
+        LocalBlockNotificationSource source = new LocalBlockNotificationSource();
+        SentinelContainer container = new SentinelContainer(blockchain, Executors.newScheduledThreadPool(1),
+            new SentinelRegistry(), source, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        try {
+            container.start();
+            TimeUnit.MILLISECONDS.sleep(100);
+            assertEquals(0, polls.get());
+
+            source.publish(randomUUID());
+            await().until(() -> polls.get() == 1);
+
+            // idle again, so the next poll waits for the interval
+            TimeUnit.MILLISECONDS.sleep(100);
+            assertEquals(1, polls.get());
+        } finally {
+            container.stop();
+        }
+    }
+
+    @Test
+    public void stoppingDuringAPollRecordsTheOffsetsOfTheBlocksHandled() throws Exception {
+        List<BlockReader> blocks = LongStream.rangeClosed(1, 3).mapToObj(SentinelContainerTest::block).collect(Collectors.toList());
+        when(blockchain.findAllBlocksAfter(any())).thenAnswer(invocation -> Stream.empty());
+        when(blockchain.findAllBlocksAfter(ROOT_BLOCK)).thenAnswer(invocation -> blocks.stream());
+
+        CountDownLatch handling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Sentinel sentinel = mock(Sentinel.class);
+        when(sentinel.start(any(), any())).thenReturn(Criteria.withLatestBlockId(ROOT_BLOCK));
+        when(sentinel.notify(any(UUID.class), any(Criteria.class))).thenAnswer(invocation -> {
+            UUID blockId = (UUID) invocation.getArguments()[0];
+            if (blockId.equals(blocks.get(2).getBlockId())) {
+                handling.countDown();
+                release.await();
+            }
+            return ((Criteria) invocation.getArguments()[1]).withBlockId(blockId);
+        });
+        SentinelRegistry registry = new SentinelRegistry();
+        registry.register("slow", sentinel, Map.of(), blockchain);
+        Path offsetDirectory = tempFolder.getRoot().toPath();
+        SentinelContainer container = new SentinelContainer(blockchain, Executors.newScheduledThreadPool(1), registry,
+            null, Duration.ofMillis(10), Duration.ofMillis(10), offsetDirectory);
+        container.start();
+        assertThat(handling.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // the poll is waiting for the last block to be handled when the container is stopped
+        CompletableFuture<Void> stopped = CompletableFuture.runAsync(container::stop);
+        TimeUnit.MILLISECONDS.sleep(100);
+        release.countDown();
+        stopped.get(5, TimeUnit.SECONDS);
+
+        BlockOffset reopened = new AppendOnlyOffsetStore(offsetDirectory.resolve("sentinel.offsets")).initialize();
+        assertThat(reopened.getBlockHeight()).isEqualTo(3L);
+        assertThat(reopened.getBlockId()).isEqualTo(blocks.get(2).getBlockId());
+    }
+
+    private static BlockReader block(long height) {
+        return new BlockReader(CertificateBuilder.createCertificateBuilder(CertificateType.BLOCK)
+            .addUUID(Field.BLOCK_UUID, randomUUID())
+            .addLong(Field.BLOCK_HEIGHT, height)
+            .emit());
+    }
+
     private CertificateBuilder dummyTransaction(UUID transactionId) {
         return transactionOfType(transactionId, DUMMY_TRANSACTION_TYPE);
     }
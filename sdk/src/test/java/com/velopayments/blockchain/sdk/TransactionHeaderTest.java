@@ -0,0 +1,79 @@
+package com.velopayments.blockchain.sdk;
+
+import com.velopayments.blockchain.cert.Certificate;
+import com.velopayments.blockchain.cert.CertificateBuilder;
+import com.velopayments.blockchain.cert.CertificateType;
+import com.velopayments.blockchain.cert.Field;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class TransactionHeaderTest {
+
+    @Test
+    public void headerMatchesTransactionReader() {
+        Certificate transaction = transaction(randomUUID());
+        TransactionReader reader = new TransactionReader(transaction);
+
+        TransactionHeader header = TransactionHeader.decode(transaction.toByteArray());
+
+        assertThat(header.getTransactionId()).isEqualTo(reader.getTransactionId());
+        assertThat(header.getTransactionType()).isEqualTo(reader.getTransactionType());
+        assertThat(header.getArtifactId()).isEqualTo(reader.getArtifactId());
+        assertThat(header.getArtifactType()).isEqualTo(reader.getArtifactType());
+    }
+
+    @Test
+    public void blockHeadersAreInBlockOrder() {
+        UUID tx1Id = randomUUID();
+        UUID tx2Id = randomUUID();
+        Certificate block = CertificateBuilder.createCertificateBuilder(CertificateType.BLOCK)
+            .addUUID(Field.BLOCK_UUID, randomUUID())
+            .addByteArray(Field.WRAPPED_TRANSACTION_TUPLE, transaction(tx1Id).toByteArray())
+            .addLong(Field.BLOCK_HEIGHT, 1L)
+            .addByteArray(Field.WRAPPED_TRANSACTION_TUPLE, transaction(tx2Id).toByteArray())
+            .emit();
+
+        List<TransactionHeader> headers = new BlockReader(block).getTransactionHeaders();
+
+        assertThat(headers).extracting(TransactionHeader::getTransactionId).containsExactly(tx1Id, tx2Id);
+    }
+
+    @Test
+    public void missingFieldsAreNull() {
+        Certificate transaction = CertificateBuilder.createCertificateBuilder(CertificateType.TRANSACTION)
+            .addUUID(Field.CERTIFICATE_ID, randomUUID())
+            .addUUID(Field.TRANSACTION_TYPE, randomUUID())
+            .emit();
+
+        TransactionHeader header = TransactionHeader.decode(transaction.toByteArray());
+
+        assertThat(header.getArtifactId()).isNull();
+        assertThat(header.getArtifactType()).isNull();
+    }
+
+    @Test
+    public void truncatedCertificateIsRejected() {
+        byte[] certificate = transaction(randomUUID()).toByteArray();
+
+        Throwable thrown = catchThrowable(() -> TransactionHeader.decode(Arrays.copyOf(certificate, 10)));
+
+        assertThat(thrown).isInstanceOf(BlockchainException.class);
+    }
+
+    private static Certificate transaction(UUID transactionId) {
+        return BlockchainUtils.transactionCertificateBuilder()
+            .transactionId(transactionId)
+            .transactionType(randomUUID())
+            .artifactId(randomUUID())
+            .artifactType(randomUUID())
+            .withFields()
+            .emit();
+    }
+}
@@ -0,0 +1,83 @@
+package com.velopayments.blockchain.sdk;
+
+import com.velopayments.blockchain.cert.Certificate;
+import com.velopayments.blockchain.cert.CertificateBuilder;
+import com.velopayments.blockchain.cert.CertificateType;
+import com.velopayments.blockchain.cert.Field;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransactionReaderTest {
+
+    @Test
+    public void coreFieldsAreRead() {
+        UUID transactionId = randomUUID();
+        UUID artifactId = randomUUID();
+        TransactionReader reader = new TransactionReader(CertificateBuilder.createCertificateBuilder(CertificateType.TRANSACTION)
+            .addUUID(Field.CERTIFICATE_ID, transactionId)
+            .addUUID(Field.ARTIFACT_ID, artifactId)
+            .emit());
+
+        assertThat(reader.getTransactionId()).isEqualTo(transactionId);
+        assertThat(reader.getTransactionId()).isSameAs(reader.getTransactionId());
+        assertThat(reader.getArtifactId()).isEqualTo(artifactId);
+        assertThat(reader.getArtifactType()).isNull();
+        assertThat(reader.hasField(Field.ARTIFACT_ID)).isTrue();
+        assertThat(reader.hasField(Field.ARTIFACT_TYPE)).isFalse();
+    }
+
+    @Test
+    public void primitiveAccessorsFallBackToTheDefault() {
+        UUID transactionType = randomUUID();
+        TransactionReader reader = new TransactionReader(CertificateBuilder.createCertificateBuilder(CertificateType.TRANSACTION)
+            .addUUID(Field.TRANSACTION_TYPE, transactionType)
+            .addInt(Field.NEW_ARTIFACT_STATE, 3)
+            .emit());
+
+        assertThat(reader.getIntOrDefault(Field.NEW_ARTIFACT_STATE, -1)).isEqualTo(3);
+        assertThat(reader.getIntOrDefault(Field.PREVIOUS_ARTIFACT_STATE, -1)).isEqualTo(-1);
+        assertThat(reader.getLongOrDefault(Field.CERTIFICATE_VALID_FROM, 42L)).isEqualTo(42L);
+        assertThat(reader.isOfTransactionType(transactionType)).isTrue();
+        assertThat(reader.isOfTransactionType(randomUUID())).isFalse();
+        assertThat(reader.isForArtifact(randomUUID())).isFalse();
+    }
+
+    @Test
+    public void valuesAreDecodedFromTheCertificate() {
+        UUID firstArtifactId = randomUUID();
+        TransactionReader reader = new TransactionReader(CertificateBuilder.createCertificateBuilder(CertificateType.TRANSACTION)
+            .addUUID(Field.ARTIFACT_ID, firstArtifactId)
+            .addLong(Field.CERTIFICATE_VALID_FROM, -5L)
+            .addInt(Field.NEW_ARTIFACT_STATE, 0x01020304)
+            .addString(Field.CERTIFICATE_CRYPTO_SUITE, "suite \u00e9")
+            .addByteArray(Field.PUBLIC_SIGNING_KEY, new byte[] {1, 2, 3})
+            .addUUID(Field.ARTIFACT_ID, randomUUID())
+            .emit());
+
+        assertThat(reader.getArtifactId()).isEqualTo(firstArtifactId);
+        assertThat(reader.getLong(Field.CERTIFICATE_VALID_FROM)).isEqualTo(-5L);
+        assertThat(reader.getInt(Field.NEW_ARTIFACT_STATE)).isEqualTo(0x01020304);
+        assertThat(reader.getBoolean(Field.NEW_ARTIFACT_STATE)).isFalse();
+        assertThat(reader.getCryptoSuite()).isEqualTo("suite \u00e9");
+        assertThat(reader.getByteArray(Field.PUBLIC_SIGNING_KEY)).containsExactly(1, 2, 3);
+        assertThat(reader.getString(Field.SIGNER_ID)).isNull();
+        assertThat(reader.getByteArray(Field.SIGNER_ID)).isNull();
+    }
+
+    @Test
+    public void findFirstReadsTheRequestedField() {
+        UUID artifactId = randomUUID();
+        Certificate certificate = CertificateBuilder.createCertificateBuilder(CertificateType.TRANSACTION)
+            .addUUID(Field.CERTIFICATE_ID, randomUUID())
+            .addUUID(Field.ARTIFACT_ID, artifactId)
+            .emit();
+        TransactionReader reader = new TransactionReader(certificate);
+
+        assertThat(reader.findFirst(Field.ARTIFACT_ID).map(field -> field.asUUID())).contains(artifactId);
+        assertThat(reader.findFirst(Field.ARTIFACT_TYPE)).isEmpty();
+    }
+}
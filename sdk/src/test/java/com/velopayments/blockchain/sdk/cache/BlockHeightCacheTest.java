@@ -0,0 +1,84 @@
+package com.velopayments.blockchain.sdk.cache;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BlockHeightCacheTest {
+
+    @Test
+    public void heightsAreFoundAfterTheTableGrows() {
+        BlockHeightCache cache = new BlockHeightCache();
+        List<UUID> blockIds = new ArrayList<>();
+        for (int height = 0; height < 5000; height++) {
+            UUID blockId = randomUUID();
+            blockIds.add(blockId);
+            cache.put(blockId, height);
+        }
+
+        assertThat(cache.size()).isEqualTo(5000);
+        for (int height = 0; height < 5000; height++) {
+            assertThat(cache.findHeight(blockIds.get(height))).hasValue(height);
+        }
+        assertThat(cache.findHeight(randomUUID())).isEmpty();
+    }
+
+    @Test
+    public void nilBlockIdIsHeld() {
+        BlockHeightCache cache = new BlockHeightCache();
+        UUID nil = new UUID(0, 0);
+
+        assertThat(cache.findHeight(nil)).isEmpty();
+        cache.put(nil, 7);
+        cache.put(nil, 7);
+
+        assertThat(cache.findHeight(nil)).hasValue(7);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void boundedCacheIsClearedOnceFull() {
+        BlockHeightCache cache = new BlockHeightCache(2);
+        UUID blockId1 = randomUUID();
+        UUID blockId2 = randomUUID();
+        UUID blockId3 = randomUUID();
+
+        cache.put(blockId1, 1);
+        cache.put(blockId2, 2);
+        cache.put(blockId2, 2);
+        cache.put(blockId3, 3);
+
+        assertThat(cache.findHeight(blockId1)).isEmpty();
+        assertThat(cache.findHeight(blockId3)).hasValue(3);
+        CacheStats stats = cache.stats();
+        assertThat(stats.getSize()).isEqualTo(1);
+        assertThat(stats.getEvictions()).isEqualTo(2);
+        assertThat(stats.getHits()).isEqualTo(1);
+        assertThat(stats.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    public void nilBlockIdCountsTowardsTheBound() {
+        BlockHeightCache cache = new BlockHeightCache(2);
+        UUID blockId1 = randomUUID();
+        UUID blockId2 = randomUUID();
+
+        cache.put(blockId1, 1);
+        cache.put(new UUID(0, 0), 0);
+        cache.put(blockId2, 2);
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.findHeight(blockId1)).isEmpty();
+        assertThat(cache.findHeight(blockId2)).hasValue(2);
+
+        cache.put(randomUUID(), 3);
+        cache.put(new UUID(0, 0), 0);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.stats().getEvictions()).isEqualTo(4);
+    }
+}
@@ -0,0 +1,185 @@
+package com.velopayments.blockchain.sdk.cache;
+
+import com.velopayments.blockchain.cert.Certificate;
+import com.velopayments.blockchain.cert.CertificateBuilder;
+import com.velopayments.blockchain.cert.CertificateType;
+import com.velopayments.blockchain.cert.Field;
+import com.velopayments.blockchain.sdk.BlockReader;
+import com.velopayments.blockchain.sdk.BlockchainOperations;
+import com.velopayments.blockchain.sdk.BlockchainUtils;
+import com.velopayments.blockchain.sdk.TransactionReader;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class CachingBlockchainTest {
+
+    private BlockchainOperations blockchain;
+    private CachingBlockchain cachingBlockchain;
+
+    @Before
+    public void setUp() {
+        blockchain = mock(BlockchainOperations.class);
+        cachingBlockchain = CachingBlockchain.builder()
+            .blockchain(blockchain)
+            .maxEntries(2)
+            .build();
+    }
+
+    @Test
+    public void transactionsAreReadOnce() {
+        UUID transactionId = randomUUID();
+        TransactionReader transaction = transaction(transactionId);
+        when(blockchain.findTransactionById(transactionId)).thenReturn(Optional.of(transaction));
+
+        assertThat(cachingBlockchain.findTransactionById(transactionId)).containsSame(transaction);
+        assertThat(cachingBlockchain.findTransactionById(transactionId)).containsSame(transaction);
+
+        verify(blockchain, times(1)).findTransactionById(transactionId);
+        CacheStats stats = cachingBlockchain.getTransactionCacheStats();
+        assertThat(stats.getHits()).isEqualTo(1);
+        assertThat(stats.getMisses()).isEqualTo(1);
+        assertThat(stats.getHitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    public void missesAreNotCached() {
+        UUID transactionId = randomUUID();
+        when(blockchain.findTransactionBlockId(transactionId)).thenReturn(Optional.empty());
+
+        assertThat(cachingBlockchain.findTransactionBlockId(transactionId)).isEmpty();
+        assertThat(cachingBlockchain.findTransactionBlockId(transactionId)).isEmpty();
+
+        verify(blockchain, times(2)).findTransactionBlockId(transactionId);
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() {
+        UUID blockId1 = randomUUID();
+        UUID blockId2 = randomUUID();
+        UUID blockId3 = randomUUID();
+        Stream.of(blockId1, blockId2, blockId3).forEach(blockId ->
+            when(blockchain.findBlockById(blockId)).thenReturn(Optional.of(block(blockId, 1))));
+
+        cachingBlockchain.findBlockById(blockId1);
+        cachingBlockchain.findBlockById(blockId2);
+        cachingBlockchain.findBlockById(blockId1);
+        cachingBlockchain.findBlockById(blockId3);  // evicts block 2
+
+        cachingBlockchain.findBlockById(blockId1);
+        cachingBlockchain.findBlockById(blockId2);
+        verify(blockchain, times(1)).findBlockById(blockId1);
+        verify(blockchain, times(2)).findBlockById(blockId2);
+        assertThat(cachingBlockchain.getBlockCacheStats().getEvictions()).isEqualTo(2);
+        assertThat(cachingBlockchain.getBlockCacheStats().getSize()).isEqualTo(2);
+    }
+
+    @Test
+    public void cachesCanBeBoundedByBytes() {
+        UUID blockId1 = randomUUID();
+        UUID blockId2 = randomUUID();
+        BlockReader block1 = block(blockId1, 1);
+        long blockSize = block1.getCertificate().toByteArray().length;
+        when(blockchain.findBlockById(blockId1)).thenReturn(Optional.of(block1));
+        when(blockchain.findBlockById(blockId2)).thenReturn(Optional.of(block(blockId2, 2)));
+        cachingBlockchain = CachingBlockchain.builder()
+            .blockchain(blockchain)
+            .maxBytes(blockSize + 1)
+            .build();
+
+        cachingBlockchain.findBlockById(blockId1);
+        cachingBlockchain.findBlockById(blockId2);
+
+        CacheStats stats = cachingBlockchain.getBlockCacheStats();
+        assertThat(stats.getSize()).isEqualTo(1);
+        assertThat(stats.getWeight()).isEqualTo(blockSize);
+        assertThat(stats.getEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    public void blockHeightsAreLearnedFromBlocks() {
+        UUID blockId = randomUUID();
+        when(blockchain.findAllBlocksAfter(CertificateType.ROOT_BLOCK)).thenReturn(Stream.of(block(blockId, 7)));
+
+        assertThat(cachingBlockchain.findAllBlocksAfter(CertificateType.ROOT_BLOCK)).hasSize(1);
+
+        assertThat(cachingBlockchain.findBlockIdByBlockHeight(7)).contains(blockId);
+        assertThat(cachingBlockchain.findBlockById(blockId)).isPresent();
+        verify(blockchain, never()).findBlockIdByBlockHeight(anyLong());
+        verify(blockchain, never()).findBlockById(blockId);
+    }
+
+    @Test
+    public void bulkLookupsOnlyFetchUncachedIds() {
+        UUID cachedId = randomUUID();
+        UUID missingId = randomUUID();
+        UUID uncachedId = randomUUID();
+        when(blockchain.findTransactionById(cachedId)).thenReturn(Optional.of(transaction(cachedId)));
+        cachingBlockchain.findTransactionById(cachedId);
+        when(blockchain.findTransactionsByIds(List.of(missingId, uncachedId)))
+            .thenReturn(Stream.of(Optional.empty(), Optional.of(transaction(uncachedId))));
+
+        List<Optional<UUID>> found = cachingBlockchain.findTransactionsByIds(List.of(missingId, cachedId, uncachedId))
+            .map(transaction -> transaction.map(TransactionReader::getTransactionId))
+            .collect(Collectors.toList());
+
+        assertThat(found).containsExactly(Optional.empty(), Optional.of(cachedId), Optional.of(uncachedId));
+        assertThat(cachingBlockchain.findTransactionById(uncachedId)).isPresent();
+        verify(blockchain, never()).findTransactionById(uncachedId);
+    }
+
+    @Test
+    public void blockHeightsAreHeldForBlocksSeen() {
+        UUID readBlockId = randomUUID();
+        UUID foundBlockId = randomUUID();
+        when(blockchain.findBlocksByHeightRange(1, 1, true)).thenReturn(Stream.of(block(readBlockId, 1)));
+        when(blockchain.findBlockIdByBlockHeight(2)).thenReturn(Optional.of(foundBlockId));
+
+        cachingBlockchain.findBlocksByHeightRange(1, 1, true).forEach(block -> { });
+        cachingBlockchain.findBlockIdByBlockHeight(2);
+
+        BlockHeightCache blockHeights = cachingBlockchain.getBlockHeightCache();
+        assertThat(blockHeights.findHeight(readBlockId)).hasValue(1);
+        assertThat(blockHeights.findHeight(foundBlockId)).hasValue(2);
+        assertThat(blockHeights.findHeight(randomUUID())).isEmpty();
+        assertThat(cachingBlockchain.getBlockHeightCacheStats().getHits()).isEqualTo(2);
+    }
+
+    @Test
+    public void latestBlockIsNotCached() {
+        UUID latest = randomUUID();
+        when(blockchain.getLatestBlockId()).thenReturn(latest);
+
+        cachingBlockchain.getLatestBlockId();
+        cachingBlockchain.getLatestBlockId();
+
+        verify(blockchain, times(2)).getLatestBlockId();
+    }
+
+    private static TransactionReader transaction(UUID transactionId) {
+        Certificate cert = BlockchainUtils.transactionCertificateBuilder()
+            .transactionId(transactionId)
+            .transactionType(randomUUID())
+            .artifactId(randomUUID())
+            .artifactType(randomUUID())
+            .withFields()
+            .emit();
+        return new TransactionReader(cert);
+    }
+
+    private static BlockReader block(UUID blockId, long blockHeight) {
+        return new BlockReader(CertificateBuilder.createCertificateBuilder(CertificateType.BLOCK)
+            .addUUID(Field.BLOCK_UUID, blockId)
+            .addLong(Field.BLOCK_HEIGHT, blockHeight)
+            .emit());
+    }
+}
@@ -1,12 +1,39 @@
 package com.velopayments.blockchain.sdk.sentinel;
 
+import com.velopayments.blockchain.cert.Certificate;
+import com.velopayments.blockchain.cert.CertificateBuilder;
+import com.velopayments.blockchain.cert.CertificateType;
+import com.velopayments.blockchain.cert.Field;
+import com.velopayments.blockchain.sdk.BlockReader;
+import com.velopayments.blockchain.sdk.BlockchainOperations;
 import com.velopayments.blockchain.sdk.sentinel.criteria.ArtifactIdAndState;
 import com.velopayments.blockchain.sdk.sentinel.criteria.Criteria;
 import com.velopayments.blockchain.sdk.sentinel.criteria.InvalidCriteriaException;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.velopayments.blockchain.cert.CertificateType.ROOT_BLOCK;
 import static java.util.UUID.randomUUID;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class SentinelNotificationRegistryTest {
 
@@ -60,5 +87,318 @@ public class SentinelNotificationRegistryTest {
         } catch (InvalidCriteriaException ex) {
             assertThat(ex).isInstanceOf(InvalidCriteriaException.class);
         }
+
+        // several selectors are valid with an operator, but state changes can't be combined with AND
+        SentinelRegistry.validateCriteria(Criteria.builder()
+            .latestBlockId(randomUUID())
+            .artifactIds(Set.of(randomUUID(), randomUUID()))
+            .transactionType(randomUUID())
+            .operator(Criteria.Operator.AND)
+            .build());
+        assertThatThrownBy(() -> SentinelRegistry.validateCriteria(Criteria.builder()
+            .latestBlockId(randomUUID())
+            .artifactIdAndState(new ArtifactIdAndState(randomUUID(), 5))
+            .transactionType(randomUUID())
+            .operator(Criteria.Operator.AND)
+            .build()))
+            .isInstanceOf(InvalidCriteriaException.class);
+        assertThatThrownBy(() -> SentinelRegistry.validateCriteria(Criteria.builder()
+            .latestBlockId(randomUUID())
+            .artifactTypeIds(Set.of())
+            .build()))
+            .isInstanceOf(InvalidCriteriaException.class);
+    }
+
+    @Test
+    public void slowSentinelDoesNotHoldUpTheOthers() throws Exception {
+        SentinelRegistry registry = new SentinelRegistry();
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            List<UUID> slowBlocks = new CopyOnWriteArrayList<>();
+            List<UUID> fastBlocks = new CopyOnWriteArrayList<>();
+            registry.register("slow", sentinel(blockId -> {
+                awaitRelease(release);
+                slowBlocks.add(blockId);
+            }), Map.of(), mock(BlockchainOperations.class));
+            registry.register("fast", sentinel(fastBlocks::add), Map.of(), mock(BlockchainOperations.class));
+            registry.start();
+
+            BlockReader block1 = block(1);
+            BlockReader block2 = block(2);
+            CompletableFuture<Void> acknowledged1 = registry.dispatchBlock(block1);
+            CompletableFuture<Void> acknowledged2 = registry.dispatchBlock(block2);
+
+            await().until(() -> fastBlocks.size() == 2);
+            assertThat(fastBlocks).containsExactly(block1.getBlockId(), block2.getBlockId());
+            assertThat(slowBlocks).isEmpty();
+            assertThat(acknowledged1).isNotDone();
+
+            release.countDown();
+            acknowledged2.get(1, TimeUnit.SECONDS);
+            assertThat(acknowledged1).isDone();
+            assertThat(slowBlocks).containsExactly(block1.getBlockId(), block2.getBlockId());
+        } finally {
+            registry.close();
+        }
+    }
+
+    @Test
+    public void closingWaitsForTheBlockBeingHandled() throws Exception {
+        SentinelRegistry registry = new SentinelRegistry();
+        CountDownLatch handling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<UUID> handled = new CopyOnWriteArrayList<>();
+        registry.register("slow", sentinel(blockId -> {
+            handling.countDown();
+            awaitRelease(release);
+            if (!Thread.currentThread().isInterrupted()) {
+                handled.add(blockId);
+            }
+        }), Map.of(), mock(BlockchainOperations.class));
+        registry.start();
+
+        BlockReader block = block(1);
+        CompletableFuture<Void> acknowledged = registry.dispatchBlock(block);
+        handling.await(1, TimeUnit.SECONDS);
+        CompletableFuture<Void> closed = CompletableFuture.runAsync(registry::close);
+        await().until(() -> registry.getRegistration("slow") == null);
+        assertThat(closed).isNotDone();
+
+        release.countDown();
+        closed.get(1, TimeUnit.SECONDS);
+        assertThat(acknowledged).isDone();
+        assertThat(handled).containsExactly(block.getBlockId());
+    }
+
+    @Test
+    public void fullMailboxDropsBlocksForThatSentinelOnly() throws Exception {
+        SentinelRegistry registry = new SentinelRegistry(1, MailboxOverflowPolicy.DROP, Executors.defaultThreadFactory());
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch handling = new CountDownLatch(1);
+            List<UUID> slowBlocks = new CopyOnWriteArrayList<>();
+            registry.register("slow", sentinel(blockId -> {
+                handling.countDown();
+                awaitRelease(release);
+                slowBlocks.add(blockId);
+            }), Map.of(), mock(BlockchainOperations.class));
+            registry.start();
+
+            BlockReader block1 = block(1);
+            BlockReader block2 = block(2);
+            BlockReader block3 = block(3);
+            CompletableFuture<Void> acknowledged1 = registry.dispatchBlock(block1);
+            handling.await(1, TimeUnit.SECONDS);
+            CompletableFuture<Void> acknowledged2 = registry.dispatchBlock(block2);
+            CompletableFuture<Void> acknowledged3 = registry.dispatchBlock(block3);
+
+            // block 2 waits in the mailbox, block 3 overflows it
+            assertThat(acknowledged3).isDone();
+            MailboxStats stats = registry.getMailboxStats().get("slow");
+            assertThat(stats.getSize()).isEqualTo(1);
+            assertThat(stats.getDropped()).isEqualTo(1);
+            assertThat(stats.getDispatchedHeight()).isEqualTo(3);
+            assertThat(stats.getLag()).isEqualTo(3);
+
+            release.countDown();
+            CompletableFuture.allOf(acknowledged1, acknowledged2).get(1, TimeUnit.SECONDS);
+            assertThat(slowBlocks).containsExactly(block1.getBlockId(), block2.getBlockId());
+            assertThat(registry.getMailboxStats().get("slow").getDelivered()).isEqualTo(2);
+        } finally {
+            registry.close();
+        }
+    }
+
+    @Test
+    public void onlySentinelsWatchingTheBlocksArtifactsAreNotified() throws Exception {
+        SentinelRegistry registry = new SentinelRegistry();
+        try {
+            UUID artifactA = randomUUID();
+            UUID artifactB = randomUUID();
+            List<UUID> aBlocks = new CopyOnWriteArrayList<>();
+            List<UUID> bBlocks = new CopyOnWriteArrayList<>();
+            List<UUID> cBlocks = new CopyOnWriteArrayList<>();
+            registry.register("a", sentinel(Criteria.builder().latestBlockId(ROOT_BLOCK).artifactId(artifactA).build(), aBlocks::add), Map.of(), mock(BlockchainOperations.class));
+            registry.register("b", sentinel(Criteria.builder().latestBlockId(ROOT_BLOCK).artifactId(artifactB).build(), bBlocks::add), Map.of(), mock(BlockchainOperations.class));
+            registry.register("c", sentinel(Criteria.builder().latestBlockId(ROOT_BLOCK).artifactId(randomUUID()).build(), cBlocks::add), Map.of(), mock(BlockchainOperations.class));
+            registry.start();
+
+            // artifact B's transaction is not the first in the block
+            BlockReader block = block(1, transaction(artifactA), transaction(artifactB));
+            registry.dispatchBlock(block).get(1, TimeUnit.SECONDS);
+
+            assertThat(aBlocks).containsExactly(block.getBlockId());
+            assertThat(bBlocks).containsExactly(block.getBlockId());
+            assertThat(cBlocks).isEmpty();
+            assertThat(registry.getMailboxStats().get("c").getDispatchedHeight()).isEqualTo(-1);
+        } finally {
+            registry.close();
+        }
+    }
+
+    @Test
+    public void sentinelChangingItsCriteriaWhileBlocksAreDispatchedMissesNone() throws Exception {
+        int count = 500;
+        SentinelRegistry registry = new SentinelRegistry(count, MailboxOverflowPolicy.BLOCK, Executors.defaultThreadFactory());
+        try {
+            // block n has a transaction for artifact n, and the sentinel moves on to artifact n + 1 once notified of it
+            List<UUID> artifacts = new ArrayList<>();
+            for (int i = 0; i <= count; i++) {
+                artifacts.add(randomUUID());
+            }
+            List<UUID> notified = new CopyOnWriteArrayList<>();
+            Sentinel sentinel = mock(Sentinel.class);
+            when(sentinel.start(any(), any())).thenReturn(Criteria.builder().latestBlockId(ROOT_BLOCK).artifactId(artifacts.get(1)).build());
+            when(sentinel.notify(any(UUID.class), any(Criteria.class))).thenAnswer(invocation -> {
+                UUID blockId = (UUID) invocation.getArguments()[0];
+                notified.add(blockId);
+                return Optional.of(Criteria.builder().latestBlockId(blockId).artifactId(artifacts.get(notified.size() + 1)).build());
+            });
+            registry.register("follower", sentinel, Map.of(), mock(BlockchainOperations.class));
+            registry.start();
+
+            List<UUID> blockIds = new ArrayList<>();
+            List<CompletableFuture<Void>> acknowledgements = new ArrayList<>();
+            for (int height = 1; height <= count; height++) {
+                BlockReader block = block(height, transaction(artifacts.get(height)));
+                blockIds.add(block.getBlockId());
+                acknowledgements.add(registry.dispatchBlock(block));
+            }
+            CompletableFuture.allOf(acknowledgements.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+            assertThat(notified).isEqualTo(blockIds);
+        } finally {
+            registry.close();
+        }
+    }
+
+    @Test
+    public void stateChangesAreFoundInTheBlockForAnyWatchedArtifact() throws Exception {
+        SentinelRegistry registry = new SentinelRegistry();
+        BlockchainOperations blockchain = mock(BlockchainOperations.class);
+        try {
+            UUID artifactA = randomUUID();
+            UUID artifactB = randomUUID();
+            List<UUID> changedBlocks = new CopyOnWriteArrayList<>();
+            Criteria watching = Criteria.builder()
+                .latestBlockId(ROOT_BLOCK)
+                .artifactIdsAndStates(List.of(new ArtifactIdAndState(artifactA, 1), new ArtifactIdAndState(artifactB, 3)))
+                .build();
+            registry.register("watcher", sentinel(watching, changedBlocks::add), Map.of(), blockchain);
+            registry.start();
+
+            // artifact A moves to state 2 and then back to 1 within the block, artifact B stays in state 3
+            BlockReader unchanged = block(1, transaction(artifactA, 2), transaction(artifactB, 3), transaction(artifactA, 1));
+            BlockReader changed = block(2, transaction(randomUUID(), 5), transaction(artifactB, 4));
+            registry.dispatchBlock(unchanged).get(1, TimeUnit.SECONDS);
+            registry.dispatchBlock(changed).get(1, TimeUnit.SECONDS);
+
+            assertThat(changedBlocks).containsExactly(changed.getBlockId());
+            verify(blockchain, never()).findTransactionById(any());
+        } finally {
+            registry.close();
+        }
+    }
+
+    @Test
+    public void selectorsAreCombinedByTheOperator() throws Exception {
+        SentinelRegistry registry = new SentinelRegistry();
+        try {
+            UUID created = randomUUID();
+            UUID updated = randomUUID();
+            UUID deleted = randomUUID();
+            UUID payment = randomUUID();
+            UUID artifact = randomUUID();
+            List<UUID> paymentChanges = new CopyOnWriteArrayList<>();
+            List<UUID> deletionsOrArtifact = new CopyOnWriteArrayList<>();
+            registry.register("payment-changes", sentinel(Criteria.builder()
+                .latestBlockId(ROOT_BLOCK)
+                .transactionTypes(Set.of(created, updated))
+                .artifactTypeId(payment)
+                .operator(Criteria.Operator.AND)
+                .build(), paymentChanges::add), Map.of(), mock(BlockchainOperations.class));
+            registry.register("deletions-or-artifact", sentinel(Criteria.builder()
+                .latestBlockId(ROOT_BLOCK)
+                .transactionType(deleted)
+                .artifactIds(Set.of(artifact))
+                .operator(Criteria.Operator.OR)
+                .build(), deletionsOrArtifact::add), Map.of(), mock(BlockchainOperations.class));
+            registry.start();
+
+            BlockReader otherArtifactType = block(1, transaction(created, randomUUID(), randomUUID()));
+            BlockReader paymentUpdated = block(2, transaction(updated, payment, randomUUID()));
+            BlockReader paymentDeleted = block(3, transaction(deleted, payment, randomUUID()));
+            BlockReader artifactCreated = block(4, transaction(created, randomUUID(), artifact));
+            for (BlockReader block : List.of(otherArtifactType, paymentUpdated, paymentDeleted, artifactCreated)) {
+                registry.dispatchBlock(block).get(1, TimeUnit.SECONDS);
+            }
+
+            assertThat(paymentChanges).containsExactly(paymentUpdated.getBlockId());
+            assertThat(deletionsOrArtifact).containsExactly(paymentDeleted.getBlockId(), artifactCreated.getBlockId());
+        } finally {
+            registry.close();
+        }
+    }
+
+    private static Sentinel sentinel(Consumer<UUID> onBlock) {
+        return sentinel(Criteria.withLatestBlockId(ROOT_BLOCK), onBlock);
+    }
+
+    /**
+     * A sentinel which keeps its initial criteria, apart from the latest block id
+     */
+    private static Sentinel sentinel(Criteria initial, Consumer<UUID> onBlock) {
+        Sentinel sentinel = mock(Sentinel.class);
+        when(sentinel.start(any(), any())).thenReturn(initial);
+        when(sentinel.notify(any(UUID.class), any(Criteria.class))).thenAnswer(invocation -> {
+            UUID blockId = (UUID) invocation.getArguments()[0];
+            Criteria criteria = (Criteria) invocation.getArguments()[1];
+            onBlock.accept(blockId);
+            return criteria.withBlockId(blockId);
+        });
+        return sentinel;
+    }
+
+    private static Certificate transaction(UUID artifactId) {
+        return transactionBuilder(artifactId).emit();
+    }
+
+    private static Certificate transaction(UUID artifactId, int newState) {
+        return transactionBuilder(artifactId).addInt(Field.NEW_ARTIFACT_STATE, newState).emit();
+    }
+
+    private static Certificate transaction(UUID transactionType, UUID artifactType, UUID artifactId) {
+        return CertificateBuilder.createCertificateBuilder(CertificateType.TRANSACTION)
+            .addUUID(Field.CERTIFICATE_ID, randomUUID())
+            .addUUID(Field.TRANSACTION_TYPE, transactionType)
+            .addUUID(Field.ARTIFACT_ID, artifactId)
+            .addUUID(Field.ARTIFACT_TYPE, artifactType)
+            .emit();
+    }
+
+    private static CertificateBuilder transactionBuilder(UUID artifactId) {
+        return CertificateBuilder.createCertificateBuilder(CertificateType.TRANSACTION)
+            .addUUID(Field.CERTIFICATE_ID, randomUUID())
+            .addUUID(Field.TRANSACTION_TYPE, randomUUID())
+            .addUUID(Field.ARTIFACT_ID, artifactId)
+            .addUUID(Field.ARTIFACT_TYPE, randomUUID());
+    }
+
+    private static void awaitRelease(CountDownLatch release) {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static BlockReader block(long height, Certificate... transactions) {
+        CertificateBuilder builder = CertificateBuilder.createCertificateBuilder(CertificateType.BLOCK)
+            .addUUID(Field.BLOCK_UUID, randomUUID())
+            .addLong(Field.BLOCK_HEIGHT, height);
+        for (Certificate transaction : transactions) {
+            builder.addByteArray(Field.WRAPPED_TRANSACTION_TUPLE, transaction.toByteArray());
+        }
+        return new BlockReader(builder.emit());
     }
 }
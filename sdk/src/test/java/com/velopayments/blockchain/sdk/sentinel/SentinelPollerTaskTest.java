@@ -9,6 +9,8 @@ import com.velopayments.blockchain.sdk.BlockReader;
 import com.velopayments.blockchain.sdk.BlockchainOperations;
 import com.velopayments.blockchain.sdk.BlockchainUtils;
 import com.velopayments.blockchain.sdk.TransactionReader;
+import com.velopayments.blockchain.sdk.sentinel.criteria.Criteria;
+import com.velopayments.blockchain.sdk.sentinel.offsetstore.AppendOnlyOffsetStore;
 import com.velopayments.blockchain.sdk.sentinel.offsetstore.FileSystemOffsetStore;
 import org.junit.Before;
 import org.junit.Rule;
@@ -16,13 +18,24 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static com.velopayments.blockchain.cert.CertificateType.ROOT_BLOCK;
 import static java.util.UUID.randomUUID;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.*;
 
@@ -62,21 +75,196 @@ public class SentinelPollerTaskTest {
         stubBlockWithTransactions(tx1Id, tx1Type, tx2Id, tx2Type);
 
         // when the poller executes, with sentinel registry throwing an exception
-        doThrow(new RuntimeException("pow")).when(sentinelRegistry).notifyBlock(any());
+        doThrow(new RuntimeException("pow")).when(sentinelRegistry).dispatchBlock(any());
         sentinelPollerTask.processLatestBlocks();
 
         // then both sentinels are invoked for the proper transactions
         var blockArg = ArgumentCaptor.forClass(BlockReader.class);
-        verify(sentinelRegistry, times(1)).notifyBlock(blockArg.capture());
+        verify(sentinelRegistry, times(1)).dispatchBlock(blockArg.capture());
         assertThat(blockArg.getValue().getTransactions().size()).isEqualTo(2);
 
 
         // when the poller executes again, the sentinel registry is not invoked again
         sentinelPollerTask.processLatestBlocks();
-        verify(sentinelRegistry, times(1)).notifyBlock(any());
+        verify(sentinelRegistry, times(1)).dispatchBlock(any());
 
     }
 
+    @Test
+    public void offsetIsRecordedOnceTheSentinelsHaveHandledTheBlock() throws Exception {
+        UUID blockId = stubBlockWithTransactions(randomUUID(), randomUUID(), randomUUID(), randomUUID());
+        CompletableFuture<Void> acknowledged = new CompletableFuture<>();
+        AtomicBoolean dispatched = new AtomicBoolean();
+        when(sentinelRegistry.dispatchBlock(any())).thenAnswer(invocation -> {
+            dispatched.set(true);
+            return acknowledged;
+        });
+        FileSystemOffsetStore offsetStore = new FileSystemOffsetStore(tempFolder.newFile().toPath());
+        SentinelPollerTask pollerTask = new SentinelPollerTask(blockchain, offsetStore, sentinelRegistry, Runnable::run, 4);
+
+        CompletableFuture<Void> processed = CompletableFuture.runAsync(pollerTask::processLatestBlocks);
+        await().until(dispatched::get);
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertThat(processed).isNotDone();
+        assertThat(offsetStore.isBlockProcessed(1L)).isFalse();
+
+        acknowledged.complete(null);
+        processed.get(1, TimeUnit.SECONDS);
+        assertThat(offsetStore.isBlockProcessed(1L)).isTrue();
+        assertThat(pollerTask.currentHighWaterMark()).isEqualTo(blockId);
+    }
+
+    @Test
+    public void sentinelIsReplayedApartFromTheOthers() throws Exception {
+        List<BlockReader> blocks = stubBlocks(3);
+        AppendOnlyOffsetStore offsetStore = new AppendOnlyOffsetStore(tempFolder.newFile().toPath());
+        SentinelRegistry registry = new SentinelRegistry();
+        List<UUID> live = new CopyOnWriteArrayList<>();
+        List<UUID> replayed = new CopyOnWriteArrayList<>();
+        registry.register("live", sentinel(live), Map.of(), blockchain);
+        registry.register("replayed", sentinel(replayed), Map.of(), blockchain);
+        registry.start();
+        try {
+            SentinelPollerTask pollerTask = new SentinelPollerTask(blockchain, offsetStore, registry, Runnable::run, 4, Runnable::run);
+            pollerTask.processLatestBlocks();
+            pollerTask.replay("replayed", 2);
+
+            await().until(() -> replayed.size() == 5 && offsetStore.getSentinelOffsets().isEmpty());
+            assertThat(live).containsExactly(blockIds(blocks, 0, 1, 2));
+            assertThat(replayed).containsExactly(blockIds(blocks, 0, 1, 2, 1, 2));
+        } finally {
+            registry.close();
+        }
+    }
+
+    @Test
+    public void sentinelLeftBehindCatchesUpAfterARestart() throws Exception {
+        List<BlockReader> blocks = stubBlocks(3);
+        Path offsetLog = tempFolder.newFile().toPath();
+        AppendOnlyOffsetStore previous = new AppendOnlyOffsetStore(offsetLog);
+        previous.initialize();
+        previous.recordBlock(blocks.get(2).getBlockId(), 3);
+        previous.recordBlock("replayed", blocks.get(0).getBlockId(), 1);
+        previous.close();
+
+        AppendOnlyOffsetStore offsetStore = new AppendOnlyOffsetStore(offsetLog);
+        SentinelRegistry registry = new SentinelRegistry();
+        List<UUID> live = new CopyOnWriteArrayList<>();
+        List<UUID> replayed = new CopyOnWriteArrayList<>();
+        registry.register("live", sentinel(live), Map.of(), blockchain);
+        registry.register("replayed", sentinel(replayed), Map.of(), blockchain);
+        registry.start();
+        try {
+            SentinelPollerTask pollerTask = new SentinelPollerTask(blockchain, offsetStore, registry, Runnable::run, 4, Runnable::run);
+            pollerTask.processLatestBlocks();
+
+            await().until(() -> replayed.size() == 2 && offsetStore.getSentinelOffsets().isEmpty());
+            assertThat(replayed).containsExactly(blockIds(blocks, 1, 2));
+            assertThat(live).isEmpty();
+        } finally {
+            registry.close();
+        }
+    }
+
+    @Test
+    public void replayNeedsAStoreKeepingSentinelOffsets() {
+        assertThatThrownBy(() -> sentinelPollerTask.replay("replayed", 2))
+            .isInstanceOf(SentinelException.class)
+            .hasMessageContaining("FileSystemOffsetStore");
+    }
+
+    @Test
+    public void replaysAreNotScheduledOnceStopped() throws Exception {
+        stubBlocks(3);
+        AppendOnlyOffsetStore offsetStore = new AppendOnlyOffsetStore(tempFolder.newFile().toPath());
+        SentinelRegistry registry = new SentinelRegistry();
+        registry.register("replayed", sentinel(new CopyOnWriteArrayList<>()), Map.of(), blockchain);
+        registry.start();
+        try {
+            List<Runnable> scheduled = new CopyOnWriteArrayList<>();
+            SentinelPollerTask pollerTask = new SentinelPollerTask(blockchain, offsetStore, registry, Runnable::run, 4, scheduled::add);
+            pollerTask.processLatestBlocks();
+            pollerTask.stop();
+            pollerTask.replay("replayed", 2);
+
+            assertThat(scheduled).isEmpty();
+        } finally {
+            registry.close();
+        }
+    }
+
+    @Test
+    public void pausedSentinelIsReplayedTheBlocksItSkippedOnceResumed() throws Exception {
+        List<BlockReader> blocks = stubBlocks(3);
+        AppendOnlyOffsetStore offsetStore = new AppendOnlyOffsetStore(tempFolder.newFile().toPath());
+        SentinelRegistry registry = new SentinelRegistry();
+        List<UUID> live = new CopyOnWriteArrayList<>();
+        List<UUID> paused = new CopyOnWriteArrayList<>();
+        registry.register("live", sentinel(live), Map.of(), blockchain);
+        RegistrationHandleImpl handle = (RegistrationHandleImpl) registry.register("paused", sentinel(paused), Map.of(), blockchain);
+        registry.start();
+        try {
+            SentinelPollerTask pollerTask = new SentinelPollerTask(blockchain, offsetStore, registry, Runnable::run, 4, Runnable::run);
+            handle.pause();
+            pollerTask.processLatestBlocks();
+
+            assertThat(paused).isEmpty();
+            assertThat(offsetStore.getSentinelOffsets().get("paused").getBlockId()).isEqualTo(ROOT_BLOCK);
+
+            handle.resume();
+
+            await().until(() -> paused.size() == 3 && offsetStore.getSentinelOffsets().isEmpty());
+            assertThat(paused).containsExactly(blockIds(blocks, 0, 1, 2));
+            assertThat(live).containsExactly(blockIds(blocks, 0, 1, 2));
+            assertThat(handle.isPaused()).isFalse();
+        } finally {
+            registry.close();
+        }
+    }
+
+    /**
+     * Stub a chain of blocks from height 1
+     */
+    private List<BlockReader> stubBlocks(int count) {
+        List<BlockReader> blocks = new ArrayList<>();
+        UUID previousBlockId = ROOT_BLOCK;
+        for (long height = 1; height <= count; height++) {
+            UUID blockId = randomUUID();
+            BlockReader block = new BlockReader(CertificateBuilder.createCertificateBuilder(CertificateType.BLOCK)
+                .addUUID(Field.BLOCK_UUID, blockId)
+                .addUUID(Field.PREVIOUS_BLOCK_UUID, previousBlockId)
+                .addLong(Field.BLOCK_HEIGHT, height)
+                .emit());
+            blocks.add(block);
+            when(blockchain.findBlockById(blockId)).thenReturn(Optional.of(block));
+            when(blockchain.findBlockIdByBlockHeight(height)).thenReturn(Optional.of(blockId));
+            when(blockchain.findAllBlocksAfter(blockId)).thenAnswer(invocation -> Stream.empty());
+            previousBlockId = blockId;
+        }
+        when(blockchain.findAllBlocksAfter(ROOT_BLOCK)).thenAnswer(invocation -> blocks.stream());
+        when(blockchain.findBlocksByHeightRange(anyLong(), anyLong(), eq(true))).thenAnswer(invocation -> {
+            long from = (Long) invocation.getArguments()[0];
+            long to = (Long) invocation.getArguments()[1];
+            return blocks.stream().filter(block -> block.getBlockHeightAsLong() >= from && block.getBlockHeightAsLong() <= to);
+        });
+        return blocks;
+    }
+
+    private static UUID[] blockIds(List<BlockReader> blocks, int... indexes) {
+        return IntStream.of(indexes).mapToObj(i -> blocks.get(i).getBlockId()).toArray(UUID[]::new);
+    }
+
+    private static Sentinel sentinel(List<UUID> notified) {
+        Sentinel sentinel = mock(Sentinel.class);
+        when(sentinel.start(any(), any())).thenReturn(Criteria.withLatestBlockId(ROOT_BLOCK));
+        when(sentinel.notify(any(UUID.class), any(Criteria.class))).thenAnswer(invocation -> {
+            UUID blockId = (UUID) invocation.getArguments()[0];
+            notified.add(blockId);
+            return ((Criteria) invocation.getArguments()[1]).withBlockId(blockId);
+        });
+        return sentinel;
+    }
+
     private TransactionReader dummyTransaction(UUID transactionId, UUID previousTransactionId, UUID transactionType) {
         Certificate cert = BlockchainUtils.transactionCertificateBuilder()
             .transactionId(transactionId)
@@ -0,0 +1,43 @@
+package com.velopayments.blockchain.sdk.sentinel.criteria;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UuidSetTest {
+
+    @Test
+    public void containsExactlyTheGivenIds() {
+        List<UUID> ids = IntStream.range(0, 1000).mapToObj(i -> randomUUID()).collect(Collectors.toList());
+        UuidSet set = UuidSet.of(ids);
+
+        assertThat(set.size()).isEqualTo(1000);
+        ids.forEach(id -> assertThat(set.contains(id)).isTrue());
+        assertThat(set.contains(randomUUID())).isFalse();
+        assertThat(set.contains(null)).isFalse();
+
+        Set<UUID> iterated = new HashSet<>();
+        set.forEach(iterated::add);
+        assertThat(iterated).containsExactlyInAnyOrderElementsOf(ids);
+    }
+
+    @Test
+    public void nilIdAndDuplicates() {
+        UUID nil = new UUID(0, 0);
+        UUID id = randomUUID();
+        UuidSet set = UuidSet.of(List.of(nil, id, new UUID(id.getMostSignificantBits(), id.getLeastSignificantBits())));
+
+        assertThat(set.size()).isEqualTo(2);
+        assertThat(set.contains(nil)).isTrue();
+        assertThat(set.contains(id)).isTrue();
+        assertThat(UuidSet.of(List.of(id)).contains(nil)).isFalse();
+    }
+}
@@ -0,0 +1,117 @@
+package com.velopayments.blockchain.sdk.sentinel.offsetstore;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+
+import static com.velopayments.blockchain.cert.CertificateType.ROOT_BLOCK;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class AppendOnlyOffsetStoreTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void offsetIsRecoveredAfterReopening() throws Exception {
+        Path offsetLog = tempFolder.getRoot().toPath().resolve("sentinel.offsets");
+        AppendOnlyOffsetStore offsetStore = new AppendOnlyOffsetStore(offsetLog);
+        BlockOffset initial = offsetStore.initialize();
+        assertThat(initial.getBlockId()).isEqualTo(ROOT_BLOCK);
+        assertThat(initial.getBlockHeight()).isEqualTo(0L);
+
+        UUID latest = randomUUID();
+        offsetStore.recordBlock(randomUUID(), 1);
+        offsetStore.recordBlock(latest, 2);
+        assertThat(offsetStore.isBlockProcessed(2)).isTrue();
+        assertThat(offsetStore.isBlockProcessed(3)).isFalse();
+        offsetStore.close();
+
+        BlockOffset reopened = new AppendOnlyOffsetStore(offsetLog).initialize();
+        assertThat(reopened.getBlockId()).isEqualTo(latest);
+        assertThat(reopened.getBlockHeight()).isEqualTo(2L);
+    }
+
+    @Test
+    public void tornRecordIsDiscarded() throws Exception {
+        Path offsetLog = tempFolder.getRoot().toPath().resolve("sentinel.offsets");
+        AppendOnlyOffsetStore offsetStore = new AppendOnlyOffsetStore(offsetLog);
+        offsetStore.initialize();
+        UUID committed = randomUUID();
+        offsetStore.recordBlock(committed, 1);
+        offsetStore.recordBlock(randomUUID(), 2);
+        offsetStore.close();
+
+        // corrupt the last record and leave half a record after it
+        try (FileChannel channel = FileChannel.open(offsetLog, WRITE)) {
+            channel.truncate(AppendOnlyOffsetStore.RECORD_SIZE * 2 - 1);
+            channel.position(channel.size());
+            channel.write(ByteBuffer.allocate(AppendOnlyOffsetStore.RECORD_SIZE / 2));
+        }
+
+        AppendOnlyOffsetStore recovered = new AppendOnlyOffsetStore(offsetLog);
+        BlockOffset offset = recovered.initialize();
+        assertThat(offset.getBlockId()).isEqualTo(committed);
+        assertThat(offset.getBlockHeight()).isEqualTo(1L);
+        assertThat(Files.size(offsetLog)).isEqualTo(AppendOnlyOffsetStore.RECORD_SIZE);
+
+        // the log can be appended to after recovery
+        UUID next = randomUUID();
+        recovered.recordBlock(next, 2);
+        recovered.close();
+        assertThat(new AppendOnlyOffsetStore(offsetLog).initialize().getBlockId()).isEqualTo(next);
+    }
+
+    @Test
+    public void logIsCompacted() throws Exception {
+        Path offsetLog = tempFolder.getRoot().toPath().resolve("sentinel.offsets");
+        AppendOnlyOffsetStore offsetStore = AppendOnlyOffsetStore.builder()
+            .offsetLog(offsetLog)
+            .commitBatchSize(4)
+            .compactAfterRecords(10)
+            .build();
+        offsetStore.initialize();
+        UUID latest = null;
+        for (long height = 1; height <= 25; height++) {
+            latest = randomUUID();
+            offsetStore.recordBlock(latest, height);
+        }
+        offsetStore.close();
+
+        assertThat(Files.size(offsetLog)).isLessThan(10L * AppendOnlyOffsetStore.RECORD_SIZE);
+        BlockOffset reopened = new AppendOnlyOffsetStore(offsetLog).initialize();
+        assertThat(reopened.getBlockId()).isEqualTo(latest);
+        assertThat(reopened.getBlockHeight()).isEqualTo(25L);
+    }
+
+    @Test
+    public void pendingRecordsAreCommittedOnceTheDelayHasPassed() throws Exception {
+        Path offsetLog = tempFolder.getRoot().toPath().resolve("sentinel.offsets");
+        AppendOnlyOffsetStore offsetStore = AppendOnlyOffsetStore.builder()
+            .offsetLog(offsetLog)
+            .commitBatchSize(10)
+            .maxCommitDelay(Duration.ofMillis(500))
+            .build();
+        offsetStore.initialize();
+        try {
+            offsetStore.recordBlock(randomUUID(), 1);
+            offsetStore.recordBlock(randomUUID(), 2);
+            assertThat(offsetStore.getPending()).isEqualTo(2);
+
+            // nothing more is recorded
+            await().until(() -> offsetStore.getPending() == 0);
+        } finally {
+            offsetStore.close();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.velopayments.blockchain.sdk.store;
+
+import com.velopayments.blockchain.cert.CertificateBuilder;
+import com.velopayments.blockchain.cert.CertificateType;
+import com.velopayments.blockchain.cert.Field;
+import com.velopayments.blockchain.sdk.BlockReader;
+import com.velopayments.blockchain.sdk.BlockchainIOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BlockSegmentStoreTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void blocksAreFoundByHeightAndIdAfterReopening() throws Exception {
+        Path directory = tempFolder.getRoot().toPath();
+        List<BlockReader> blocks = blocks(5, 20);
+        try (BlockSegmentStore store = BlockSegmentStore.open(directory, 256)) {
+            blocks.forEach(block -> assertThat(store.append(block)).isTrue());
+            assertThat(store.append(block(30))).isFalse();
+        }
+        try (Stream<Path> segments = Files.list(directory)) {
+            assertThat(segments.count()).isGreaterThan(1);
+        }
+
+        try (BlockSegmentStore store = BlockSegmentStore.open(directory, 256)) {
+            assertThat(store.getFirstHeight()).isEqualTo(OptionalLong.of(5));
+            assertThat(store.getLastHeight()).isEqualTo(OptionalLong.of(24));
+            for (BlockReader block : blocks) {
+                long height = block.getBlockHeightAsLong();
+                assertThat(store.findByHeight(height).map(BlockReader::getBlockId)).contains(block.getBlockId());
+                assertThat(store.findById(block.getBlockId()).map(BlockReader::getBlockHeight)).contains(height);
+                assertThat(store.findBlockId(height)).contains(block.getBlockId());
+            }
+            assertThat(store.findByHeight(4)).isEmpty();
+            assertThat(store.findById(randomUUID())).isEmpty();
+            assertThat(store.findByHeightRange(10, 30).map(BlockReader::getBlockHeightAsLong).collect(Collectors.toList()))
+                .containsExactlyElementsOf(LongStream.rangeClosed(10, 24).boxed().collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void missingSegmentFailsToOpen() throws Exception {
+        Path directory = tempFolder.getRoot().toPath();
+        try (BlockSegmentStore store = BlockSegmentStore.open(directory, 256)) {
+            blocks(1, 20).forEach(store::append);
+        }
+        Files.delete(directory.resolve("blocks-000001.segment"));
+
+        assertThatThrownBy(() -> BlockSegmentStore.open(directory, 256))
+            .isInstanceOf(BlockchainIOException.class)
+            .hasMessageContaining("missing segment");
+    }
+
+    @Test
+    public void tornRecordIsOverwritten() throws Exception {
+        Path directory = tempFolder.getRoot().toPath();
+        List<BlockReader> blocks = blocks(1, 3);
+        try (BlockSegmentStore store = BlockSegmentStore.open(directory)) {
+            blocks.forEach(store::append);
+        }
+
+        // corrupt the last byte of the last record's checksum
+        Path segment = directory.resolve("blocks-000000.segment");
+        int end = blocks.stream().mapToInt(block -> block.getCertificate().toByteArray().length + 16).sum();
+        try (FileChannel channel = FileChannel.open(segment, READ, WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xff}), end - 1);
+        }
+
+        BlockReader replacement = block(3);
+        try (BlockSegmentStore store = BlockSegmentStore.open(directory)) {
+            assertThat(store.getLastHeight()).isEqualTo(OptionalLong.of(2));
+            assertThat(store.findById(blocks.get(2).getBlockId())).isEmpty();
+            assertThat(store.append(replacement)).isTrue();
+        }
+        try (BlockSegmentStore store = BlockSegmentStore.open(directory)) {
+            assertThat(store.getLastHeight()).isEqualTo(OptionalLong.of(3));
+            assertThat(store.findByHeight(3).map(BlockReader::getBlockId)).contains(replacement.getBlockId());
+        }
+    }
+
+    static List<BlockReader> blocks(long fromHeight, int count) {
+        return LongStream.range(fromHeight, fromHeight + count).mapToObj(BlockSegmentStoreTest::block).collect(Collectors.toList());
+    }
+
+    static BlockReader block(long height) {
+        return new BlockReader(CertificateBuilder.createCertificateBuilder(CertificateType.BLOCK)
+            .addUUID(Field.BLOCK_UUID, randomUUID())
+            .addLong(Field.BLOCK_HEIGHT, height)
+            .addByteArray(Field.WRAPPED_TRANSACTION_TUPLE, new byte[40])
+            .emit());
+    }
+}
@@ -0,0 +1,169 @@
+package com.velopayments.blockchain.sdk.store;
+
+import com.velopayments.blockchain.cert.Certificate;
+import com.velopayments.blockchain.cert.CertificateBuilder;
+import com.velopayments.blockchain.cert.CertificateType;
+import com.velopayments.blockchain.cert.Field;
+import com.velopayments.blockchain.sdk.BlockReader;
+import com.velopayments.blockchain.sdk.BlockchainOperations;
+import com.velopayments.blockchain.sdk.TransactionReader;
+import com.velopayments.blockchain.sdk.sentinel.BlockchainSentinelHelper;
+import com.velopayments.blockchain.sdk.sentinel.QueryResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.velopayments.blockchain.cert.CertificateType.ROOT_BLOCK;
+import static com.velopayments.blockchain.sdk.BlockchainUtils.INITIAL_TRANSACTION_UUID;
+import static com.velopayments.blockchain.sdk.store.BlockSegmentStoreTest.blocks;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class LocalBlockStoreBlockchainTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private BlockchainOperations blockchain;
+    private BlockSegmentStore store;
+    private LocalBlockStoreBlockchain localBlockchain;
+
+    @Before
+    public void setUp() throws Exception {
+        blockchain = mock(BlockchainOperations.class);
+        store = BlockSegmentStore.open(tempFolder.getRoot().toPath());
+        localBlockchain = new LocalBlockStoreBlockchain(blockchain, store);
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void polledBlocksAreReadLocallyAfterwards() {
+        List<BlockReader> blocks = blocks(1, 5);
+        UUID lastBlockId = blocks.get(4).getBlockId();
+        when(blockchain.findAllBlocksAfter(ROOT_BLOCK)).thenReturn(blocks.stream());
+        when(blockchain.findAllBlocksAfter(lastBlockId)).thenReturn(Stream.empty());
+
+        assertThat(ids(localBlockchain.findAllBlocksAfter(ROOT_BLOCK))).containsExactlyElementsOf(ids(blocks.stream()));
+
+        // replaying reads the stored blocks, then asks the blockchain for the blocks after them
+        assertThat(ids(localBlockchain.findAllBlocksAfter(blocks.get(1).getBlockId())))
+            .containsExactlyElementsOf(ids(blocks.stream().skip(2)));
+        assertThat(ids(localBlockchain.findBlocksByHeightRange(2, 4))).containsExactlyElementsOf(ids(blocks.stream().skip(1).limit(3)));
+        assertThat(localBlockchain.findBlockById(blocks.get(3).getBlockId())).isPresent();
+        assertThat(localBlockchain.findNextBlockId(blocks.get(3).getBlockId())).contains(lastBlockId);
+        assertThat(localBlockchain.findBlockIdByBlockHeight(5)).contains(lastBlockId);
+
+        verify(blockchain, times(1)).findAllBlocksAfter(ROOT_BLOCK);
+        verify(blockchain, times(1)).findAllBlocksAfter(lastBlockId);
+        verify(blockchain, never()).findBlockById(any());
+        verify(blockchain, never()).findBlocksByHeightRange(anyLong(), anyLong(), anyBoolean());
+    }
+
+    @Test
+    public void missingBlocksAreFilledIn() {
+        List<BlockReader> blocks = blocks(1, 6);
+        blocks.subList(0, 2).forEach(store::append);
+        when(blockchain.findAllBlocksAfter(blocks.get(3).getBlockId())).thenReturn(blocks.stream().skip(4));
+        when(blockchain.findBlocksByHeightRange(3, 4, true)).thenReturn(blocks.stream().skip(2).limit(2));
+
+        assertThat(ids(localBlockchain.findAllBlocksAfter(blocks.get(3).getBlockId()))).containsExactlyElementsOf(ids(blocks.stream().skip(4)));
+
+        assertThat(store.getLastHeight()).hasValue(6);
+    }
+
+    @Test
+    public void artifactTransactionsAreFoundFromTheIndex() {
+        UUID artifactId = randomUUID();
+        List<Certificate> transactions = List.of(transaction(artifactId), transaction(randomUUID()), transaction(artifactId),
+            transaction(artifactId));
+        List<BlockReader> blocks = List.of(
+            block(1, transactions.get(0), transactions.get(1)),
+            block(2, transactions.get(2)),
+            block(3, transactions.get(3)));
+        when(blockchain.findAllBlocksAfter(ROOT_BLOCK)).thenReturn(blocks.stream());
+        localBlockchain.findAllBlocksAfter(ROOT_BLOCK).forEach(block -> { });
+
+        List<UUID> expected = List.of(transactionId(transactions.get(0)), transactionId(transactions.get(2)));
+        when(blockchain.findTransactionsByIds(expected)).thenReturn(expected.stream()
+            .map(id -> Optional.of(new TransactionReader(transactions.get(id.equals(expected.get(0)) ? 0 : 2)))));
+
+        QueryResult<List<TransactionReader>> result = new BlockchainSentinelHelper(localBlockchain)
+            .findTransactionsForArtifact(artifactId, blocks.get(1).getBlockId());
+
+        assertThat(result.getResult()).extracting(TransactionReader::getTransactionId).containsExactlyElementsOf(expected);
+        verify(blockchain, never()).findLastTransactionIdForArtifactById(any());
+        verify(blockchain, never()).findBlockById(any());
+    }
+
+    @Test
+    public void artifactsStartedAfterTheFirstStoredBlockAreFoundFromTheIndex() {
+        UUID started = randomUUID();
+        UUID earlier = randomUUID();
+        Certificate first = transaction(started, INITIAL_TRANSACTION_UUID);
+        Certificate second = transaction(started, transactionId(first));
+        List<BlockReader> blocks = List.of(
+            block(5, first, transaction(earlier, randomUUID())),
+            block(6, second));
+        when(blockchain.findAllBlocksAfter(ROOT_BLOCK)).thenReturn(blocks.stream());
+        localBlockchain.findAllBlocksAfter(ROOT_BLOCK).forEach(block -> { });
+
+        ArtifactTransactionIndex index = localBlockchain.getArtifactIndex();
+        assertThat(index.covers(6)).isFalse();
+        assertThat(index.findTransactionIds(started, 6)).contains(List.of(transactionId(first), transactionId(second)));
+        assertThat(index.findTransactionIds(started, 4)).contains(List.of());
+        assertThat(index.findTransactionIds(started, 7)).isEmpty();
+        // the artifact's earlier transactions are not in the store
+        assertThat(index.findTransactionIds(earlier, 6)).isEmpty();
+        assertThat(index.findTransactionIds(randomUUID(), 6)).isEmpty();
+    }
+
+    private static Certificate transaction(UUID artifactId) {
+        return CertificateBuilder.createCertificateBuilder(CertificateType.TRANSACTION)
+            .addUUID(Field.CERTIFICATE_ID, randomUUID())
+            .addUUID(Field.TRANSACTION_TYPE, randomUUID())
+            .addUUID(Field.ARTIFACT_ID, artifactId)
+            .addUUID(Field.ARTIFACT_TYPE, randomUUID())
+            .emit();
+    }
+
+    private static Certificate transaction(UUID artifactId, UUID previousTransactionId) {
+        return CertificateBuilder.createCertificateBuilder(CertificateType.TRANSACTION)
+            .addUUID(Field.CERTIFICATE_ID, randomUUID())
+            .addUUID(Field.PREVIOUS_CERTIFICATE_ID, previousTransactionId)
+            .addUUID(Field.TRANSACTION_TYPE, randomUUID())
+            .addUUID(Field.ARTIFACT_ID, artifactId)
+            .addUUID(Field.ARTIFACT_TYPE, randomUUID())
+            .emit();
+    }
+
+    private static UUID transactionId(Certificate transaction) {
+        return new TransactionReader(transaction).getTransactionId();
+    }
+
+    private static BlockReader block(long height, Certificate... transactions) {
+        CertificateBuilder builder = CertificateBuilder.createCertificateBuilder(CertificateType.BLOCK)
+            .addUUID(Field.BLOCK_UUID, randomUUID())
+            .addLong(Field.BLOCK_HEIGHT, height);
+        for (Certificate transaction : transactions) {
+            builder.addByteArray(Field.WRAPPED_TRANSACTION_TUPLE, transaction.toByteArray());
+        }
+        return new BlockReader(builder.emit());
+    }
+
+    private static List<UUID> ids(Stream<BlockReader> blocks) {
+        return blocks.map(BlockReader::getBlockId).collect(Collectors.toList());
+    }
+}